@@ -0,0 +1,70 @@
+package pro.verron.officestamper.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import pro.verron.officestamper.api.ExpressionEngine.CompiledExpression;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.preset.ExpressionEngines;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static pro.verron.officestamper.preset.EvaluationContextConfigurers.defaultConfigurer;
+
+/**
+ * Compares the evaluation of the placeholder expressions by SpEL and by the path expression engine, both on an
+ * expression compiled once, as the stampers cache them.
+ * <p>
+ * Run with {@code mvn -Pbenchmark package -DskipTests} from the root, then
+ * {@code java -jar benchmarks/target/benchmarks.jar ExpressionEngineBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionEngineBenchmark {
+
+    @Param({"name", "customer.address.city", "items[1].name", "labels['title']"})
+    public String expression;
+
+    private StandardEvaluationContext context;
+    private Expression spel;
+    private CompiledExpression path;
+
+    @Setup
+    public void setup() {
+        var address = new Address("Springfield");
+        var customer = new Customer(address);
+        var items = List.of(new Item("Donut"), new Item("Duff"));
+        var root = new Order("Homer", customer, items, Map.of("title", "Mr."));
+        context = new StandardEvaluationContext(root);
+        defaultConfigurer().configureEvaluationContext(context);
+        spel = new SpelExpressionParser().parseExpression(expression);
+        path = ExpressionEngines.paths()
+                                .compile(expression)
+                                .orElseThrow(() -> new OfficeStamperException("Not a path: " + expression));
+    }
+
+    @Benchmark
+    public Object spel() {
+        return spel.getValue(context);
+    }
+
+    @Benchmark
+    public Object paths() {
+        return path.evaluate(context, () -> spel.getValue(context));
+    }
+
+    public record Order(String name, Customer customer, List<Item> items, Map<String, String> labels) {}
+
+    public record Customer(Address address) {}
+
+    public record Address(String city) {}
+
+    public record Item(String name) {}
+}
@@ -6,6 +6,7 @@
  * - spring.core
  * - spring.expression
  * - org.docx4j.core
+ * - org.apache.commons.compress
  * <p>
  * It also requires the following modules statically:
  * - org.apache.commons.io
@@ -29,6 +30,8 @@ module pro.verron.officestamper {
 
     requires transitive org.docx4j.core;
 
+    requires org.apache.commons.compress;
+
     requires static org.apache.commons.io;
     requires static org.slf4j;
     requires static jakarta.xml.bind;
@@ -0,0 +1,42 @@
+package pro.verron.officestamper.api;
+
+/**
+ * The engine chosen to stamp a template, and why it was chosen.
+ * <p>
+ * When the automatic engine selection is enabled, a template is analyzed the first time it is stamped, and the
+ * selection is kept for the next stampings of the same template.
+ *
+ * @param engine   the engine stamping the template.
+ * @param reason   why this engine was chosen, for debugging.
+ * @param template identifies the content of the analyzed template.
+ * @param cached   whether the selection was kept from a previous stamping of the same template.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public record EngineSelection(Engine engine, String reason, String template, boolean cached) {
+
+    /**
+     * The engines able to stamp a Word template.
+     */
+    public enum Engine {
+        /**
+         * Builds the object model of the template, and supports every feature of the stamper.
+         */
+        DOM,
+        /**
+         * Streams the main document, headers and footers of the template, and only resolves their placeholders.
+         */
+        STREAMING
+    }
+
+    /**
+     * Returns the same selection, marked as kept from a previous stamping.
+     *
+     * @return the cached selection.
+     */
+    public EngineSelection asCached() {
+        return new EngineSelection(engine, reason, template, true);
+    }
+}
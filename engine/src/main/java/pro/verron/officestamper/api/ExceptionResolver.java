@@ -11,4 +11,20 @@ package pro.verron.officestamper.api;
 @FunctionalInterface
 public interface ExceptionResolver {
     String resolve(Placeholder placeholder, String message, Exception cause);
+
+    /**
+     * Resolves a placeholder whose expression could not be resolved because of a missing or null property, when the
+     * missing property was detected without any exception being thrown.
+     * <p>
+     * Such placeholders are summarized once per stamping, so implementations are not expected to log them.
+     * The default implementation delegates to {@link #resolve(Placeholder, String, Exception)}.
+     *
+     * @param placeholder the unresolved placeholder
+     * @param message     the description of the missing property
+     *
+     * @return the replacement text of the placeholder
+     */
+    default String resolveMissing(Placeholder placeholder, String message) {
+        return resolve(placeholder, message, new OfficeStamperException(message));
+    }
 }
@@ -0,0 +1,68 @@
+package pro.verron.officestamper.api;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.lang.Nullable;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * An engine evaluating the expressions of the placeholders and comments, tried before the SpEL parser.
+ * <p>
+ * Each expression text is compiled once per stamper: the expressions the engine does not support are parsed and
+ * evaluated by SpEL, as usual.
+ * An engine only supporting simple expressions, like property paths, saves the parsing and the evaluation overhead
+ * of SpEL on the most common placeholders, while the others keep the full SpEL language.
+ * <p>
+ * The compiled expressions are evaluated against the evaluation context of the stamper, so an engine can read the
+ * properties through its accessors, and behave like SpEL for the expressions it supports.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+@FunctionalInterface
+public interface ExpressionEngine {
+
+    /**
+     * Compiles an expression, if this engine supports it.
+     *
+     * @param expression the text of the expression, without its placeholder delimiters.
+     *
+     * @return the compiled expression, or an empty optional to leave the expression to SpEL.
+     */
+    Optional<CompiledExpression> compile(String expression);
+
+    /**
+     * An expression compiled by an {@link ExpressionEngine}.
+     */
+    @FunctionalInterface
+    interface CompiledExpression {
+
+        /**
+         * Evaluates the expression against the root object of the given context.
+         * <p>
+         * When a value cannot be evaluated by the engine, for example, when a property cannot be read, the engine
+         * returns the fallback value instead, the SpEL evaluation of the expression, so that the reported errors and
+         * the lenient behaviors stay the ones of SpEL.
+         * The fallback evaluates the whole expression again, so the values the engine read before giving up, like the
+         * getters of a path, are read a second time.
+         *
+         * @param context  the evaluation context of the stamper, holding the root object.
+         * @param fallback the evaluation of the expression by SpEL.
+         *
+         * @return the value of the expression.
+         */
+        @Nullable Object evaluate(EvaluationContext context, Supplier<Object> fallback);
+
+        /**
+         * Tells whether the expression only reads values, so that its value can be memoized and shared between
+         * stampers without parsing it with SpEL to find out.
+         *
+         * @return true if the expression has no side effect, false by default, leaving SpEL to tell.
+         */
+        default boolean isSideEffectFree() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package pro.verron.officestamper.api;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Stamps one template with many contexts, and writes the stamped records as a single document, or as a few
+ * documents when the merge rolls over.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public interface MailMerger {
+    /**
+     * Merges the records stamped from the template into a single document, whatever the limits of the merge.
+     *
+     * @param template the template to stamp, read once.
+     * @param contexts the context of each record, read one at a time.
+     * @param out      where the merged document is written, left open.
+     *
+     * @throws OfficeStamperException if the merge fails, or if there is no context.
+     */
+    void merge(InputStream template, Stream<?> contexts, OutputStream out)
+            throws OfficeStamperException;
+
+    /**
+     * Merges the records stamped from the template, rolling over to a new document when the limits are reached.
+     *
+     * @param template the template to stamp, read once.
+     * @param contexts the context of each record, read one at a time.
+     * @param outputs  where each merged document is written, by index from 0, closed once written.
+     *
+     * @return the number of merged documents written.
+     *
+     * @throws OfficeStamperException if the merge fails, or if there is no context.
+     */
+    int merge(InputStream template, Stream<?> contexts, IntFunction<OutputStream> outputs)
+            throws OfficeStamperException;
+}
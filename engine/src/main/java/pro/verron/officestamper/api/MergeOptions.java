@@ -0,0 +1,103 @@
+package pro.verron.officestamper.api;
+
+/**
+ * How the documents stamped by a {@link MailMerger} are put together.
+ * <p>
+ * A merged document rolls over to a new file before a record would make it exceed one of the limits; a record alone
+ * exceeding them still gets a file of its own.
+ * The limits are estimated without laying the document out: the size is the one of the uncompressed main document,
+ * and the pages are counted from the records, and the page and section breaks they hold.
+ *
+ * @param separator what separates two records.
+ * @param maxBytes  the largest uncompressed size of the main document of a merged file.
+ * @param maxPages  the largest estimated number of pages of a merged file.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public record MergeOptions(Separator separator, long maxBytes, int maxPages) {
+
+    /**
+     * Creates merge options, checking their separator and their limits.
+     *
+     * @param separator what separates two records.
+     * @param maxBytes  the largest uncompressed size of the main document of a merged file.
+     * @param maxPages  the largest estimated number of pages of a merged file.
+     */
+    public MergeOptions {
+        if (separator == null) throw new OfficeStamperException("The separator must not be null");
+        if (maxBytes <= 0) throw new OfficeStamperException("The size limit must be positive: " + maxBytes);
+        if (maxPages <= 0) throw new OfficeStamperException("The page limit must be positive: " + maxPages);
+    }
+
+    /**
+     * Returns the default options: records separated by section breaks, in a single file.
+     *
+     * @return the default merge options.
+     */
+    public static MergeOptions defaults() {
+        return new MergeOptions(Separator.SECTION_BREAK, Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the same options with another separator.
+     *
+     * @param separator what separates two records.
+     *
+     * @return the updated options.
+     */
+    public MergeOptions withSeparator(Separator separator) {
+        return new MergeOptions(separator, maxBytes, maxPages);
+    }
+
+    /**
+     * Returns the same options with another size limit.
+     *
+     * @param maxBytes the largest uncompressed size of the main document of a merged file.
+     *
+     * @return the updated options.
+     */
+    public MergeOptions withMaxBytes(long maxBytes) {
+        return new MergeOptions(separator, maxBytes, maxPages);
+    }
+
+    /**
+     * Returns the same options with another page limit.
+     *
+     * @param maxPages the largest estimated number of pages of a merged file.
+     *
+     * @return the updated options.
+     */
+    public MergeOptions withMaxPages(int maxPages) {
+        return new MergeOptions(separator, maxBytes, maxPages);
+    }
+
+    /**
+     * Tells whether a merged file of the given size still fits these options.
+     *
+     * @param bytes the uncompressed size of the main document.
+     * @param pages the estimated number of pages.
+     *
+     * @return true if the file is within both limits.
+     */
+    public boolean admits(long bytes, int pages) {
+        return bytes <= maxBytes && pages <= maxPages;
+    }
+
+    /**
+     * What separates two merged records.
+     */
+    public enum Separator {
+        /**
+         * Starts each record in a new section, on a new page, keeping the page setup of the template, with its own
+         * headers and footers.
+         */
+        SECTION_BREAK,
+        /**
+         * Starts each record on a new page, in the same section, so all the records must have the same headers and
+         * footers.
+         */
+        PAGE_BREAK
+    }
+}
@@ -1,12 +1,15 @@
 package pro.verron.officestamper.api;
 
 import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.lang.Nullable;
 import pro.verron.officestamper.api.CustomFunction.NeedsBiFunctionImpl;
 import pro.verron.officestamper.api.CustomFunction.NeedsFunctionImpl;
 import pro.verron.officestamper.api.CustomFunction.NeedsTriFunctionImpl;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -221,6 +224,156 @@ public interface OfficeStamperConfiguration {
             SpelParserConfiguration spelParserConfiguration
     );
 
+    /**
+     * Indicates whether the values of placeholders are memoized during a stamping.
+     *
+     * @return true if the values of repeated placeholders are evaluated once per root object, false otherwise.
+     */
+    boolean isMemoizingExpressions();
+
+    /**
+     * Sets whether the values of placeholders are memoized during a stamping.
+     * <p>
+     * When set, the value of a placeholder expression is kept for the current stamping and root object, keyed by the
+     * expression text, so repeated placeholders are evaluated once.
+     * The memoized values are forgotten whenever the root object changes, for example, for each item of a repeated
+     * paragraph or table row.
+     * Comment processor expressions, and expressions calling methods, functions or constructors, are always
+     * evaluated, as they may have side effects; turning a placeholder into a method call opts it out.
+     *
+     * @param memoizingExpressions true to memoize the values of placeholders, false to evaluate each placeholder.
+     *
+     * @return the updated OfficeStamperConfiguration object
+     */
+    OfficeStamperConfiguration setMemoizingExpressions(boolean memoizingExpressions);
+
+    /**
+     * Retrieves the engine evaluating the expressions it supports before SpEL.
+     *
+     * @return the expression engine tried before SpEL.
+     */
+    ExpressionEngine getExpressionEngine();
+
+    /**
+     * Sets the engine evaluating the expressions it supports before SpEL.
+     * <p>
+     * The expressions the engine does not compile, and the evaluations it cannot complete, are left to SpEL, so an
+     * engine only changes how fast the supported expressions are evaluated, for example, with
+     * {@link pro.verron.officestamper.preset.ExpressionEngines#paths()} for the plain property paths.
+     * By default, all the expressions are evaluated by SpEL.
+     *
+     * @param expressionEngine the engine to try before SpEL.
+     *
+     * @return the updated OfficeStamperConfiguration object
+     */
+    OfficeStamperConfiguration setExpressionEngine(ExpressionEngine expressionEngine);
+
+    /**
+     * Indicates whether missing and null properties are resolved to a sentinel instead of failing.
+     *
+     * @return true if missing properties are detected without exceptions, false otherwise.
+     */
+    boolean isLenientPropertyAccess();
+
+    /**
+     * Sets whether missing and null properties are resolved to a sentinel instead of failing.
+     * <p>
+     * When set, a placeholder made of a single property path, like {@code ${customer.address.city}}, reading a
+     * property that does not exist, or a property on null, resolves to a
+     * {@link pro.verron.officestamper.preset.MissingPropertyAccessor.Missing} value instead of throwing.
+     * Placeholders resolving to it are replaced through {@link ExceptionResolver#resolveMissing(Placeholder, String)},
+     * and reported in a single summary at the end of each stamping, instead of one log per placeholder.
+     * The other expressions, like concatenations, conditions or comment processor calls, fail as usual on a missing
+     * property.
+     *
+     * @param lenientPropertyAccess true to detect missing properties without exceptions.
+     *
+     * @return the updated OfficeStamperConfiguration object
+     */
+    OfficeStamperConfiguration setLenientPropertyAccess(boolean lenientPropertyAccess);
+
+    /**
+     * Retrieves the executor preparing the images in parallel, if any.
+     *
+     * @return the executor preparing the images, or null if the images are prepared on the stamping thread.
+     */
+    @Nullable Executor getImagePreparationExecutor();
+
+    /**
+     * Sets the executor preparing the images of a document in parallel.
+     * <p>
+     * When set, the images resolved while stamping are read, hashed and probed on this executor, and their parts are
+     * added to the document once the placeholders of a stamping stage are resolved, in resolution order.
+     * This cuts the stamping time of documents holding many {@link pro.verron.officestamper.preset.Image} values.
+     *
+     * @param executor the executor preparing the images, or null to prepare them on the stamping thread.
+     *
+     * @return the updated OfficeStamperConfiguration object
+     */
+    OfficeStamperConfiguration setImagePreparationExecutor(@Nullable Executor executor);
+
+    /**
+     * Retrieves the number of images whose metadata the stampers created from this configuration keep.
+     *
+     * @return the capacity of the shared image metadata cache the stampers use.
+     */
+    int getImageMetadataCapacity();
+
+    /**
+     * Sets the number of images whose metadata the stampers created from this configuration keep.
+     * <p>
+     * The stampers configured with the same capacity share a process-wide cache: an image stamped into many documents
+     * is probed once, the next image parts are created from the cached content type and size, see
+     * {@link pro.verron.officestamper.preset.ImageMetadata.Cache#shared(int)}.
+     *
+     * @param capacity the capacity of the shared image metadata cache, zero disables the cache.
+     *
+     * @return the updated OfficeStamperConfiguration object
+     *
+     * @throws OfficeStamperException if the capacity is negative.
+     */
+    OfficeStamperConfiguration setImageMetadataCapacity(int capacity);
+
+    /**
+     * Retrieves how the parts of the stamped documents are compressed.
+     *
+     * @return the compression policy of the output.
+     */
+    OutputCompression getOutputCompression();
+
+    /**
+     * Sets how the parts of the stamped documents are compressed.
+     * <p>
+     * {@link OutputCompression#STORED} and {@link OutputCompression#FAST} trade a larger output for a faster save of
+     * large documents, {@link OutputCompression#BEST} trades a slower save for a smaller output.
+     *
+     * @param compression the compression policy of the output.
+     *
+     * @return the updated OfficeStamperConfiguration object
+     */
+    OfficeStamperConfiguration setOutputCompression(OutputCompression compression);
+
+    /**
+     * Retrieves the executor writing the parts of the stamped documents in parallel, if any.
+     *
+     * @return the executor writing the parts, or null if the parts are written on the stamping thread.
+     */
+    @Nullable Executor getOutputExecutor();
+
+    /**
+     * Sets the executor writing the parts of the stamped documents in parallel.
+     * <p>
+     * When set, the parts are marshalled and compressed concurrently on this executor, then written to the zip
+     * stream in the order docx4j saves them.
+     * This cuts the save time of documents with large parts, at the cost of holding their compressed content in
+     * memory until it is written.
+     *
+     * @param executor the executor writing the parts, or null to write them on the stamping thread.
+     *
+     * @return the updated OfficeStamperConfiguration object
+     */
+    OfficeStamperConfiguration setOutputExecutor(@Nullable Executor executor);
+
     /**
      * Retrieves the map of expression functions associated with their corresponding classes.
      *
@@ -288,4 +441,47 @@ public interface OfficeStamperConfiguration {
 
     void addPostprocessor(PostProcessor postProcessor);
 
+
+    /**
+     * Tells whether the stamper chooses the cheapest engine able to stamp each template.
+     *
+     * @return true if the engine is chosen per template, false if the templates are always stamped on their object
+     *         model.
+     */
+    boolean isAutomaticEngineSelection();
+
+    /**
+     * Sets whether the stamper chooses the cheapest engine able to stamp each template.
+     * <p>
+     * When enabled, a template is analyzed the first time it is stamped: the templates holding comments, inline
+     * processors, content controls, or placeholders the streaming engine cannot split, and any configuration with
+     * preprocessors or postprocessors acting on the object model, are stamped on their object model as usual.
+     * The other templates only hold placeholders, and are streamed with StAX instead.
+     * The selection is kept for the next stampings of the same template.
+     *
+     * @param automaticEngineSelection true to choose the engine per template.
+     *
+     * @return the updated OfficeStamperConfiguration object
+     */
+    OfficeStamperConfiguration setAutomaticEngineSelection(boolean automaticEngineSelection);
+
+    /**
+     * Retrieves the listener notified of the engine chosen for each stamping.
+     *
+     * @return the listener of the engine selections.
+     */
+    Consumer<EngineSelection> getEngineSelectionListener();
+
+    /**
+     * Sets the listener notified of the engine chosen for each stamping, when the automatic engine selection is
+     * enabled.
+     * <p>
+     * The listener is called on the stamping thread, before the template is stamped, and can be used to log or count
+     * the selections.
+     *
+     * @param listener the listener of the engine selections.
+     *
+     * @return the updated OfficeStamperConfiguration object
+     */
+    OfficeStamperConfiguration setEngineSelectionListener(Consumer<EngineSelection> listener);
 }
@@ -0,0 +1,47 @@
+package pro.verron.officestamper.api;
+
+import java.util.zip.Deflater;
+
+/**
+ * How the parts of a stamped document are compressed in its zip package.
+ * <p>
+ * The images docx4j stores uncompressed stay uncompressed, and the parts copied unchanged from a lazily loaded
+ * template keep their original compression, whatever the chosen policy.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public enum OutputCompression {
+    /**
+     * Stores the parts without compressing them, the fastest to write and the largest output.
+     */
+    STORED(Deflater.NO_COMPRESSION),
+    /**
+     * Compresses the parts with the fastest deflate level.
+     */
+    FAST(Deflater.BEST_SPEED),
+    /**
+     * Compresses the parts with the default deflate level, like docx4j does.
+     */
+    DEFAULT(Deflater.DEFAULT_COMPRESSION),
+    /**
+     * Compresses the parts with the best deflate level, the slowest to write and the smallest output.
+     */
+    BEST(Deflater.BEST_COMPRESSION);
+
+    private final int level;
+
+    OutputCompression(int level) {
+        this.level = level;
+    }
+
+    /**
+     * Returns the deflate level of this policy.
+     *
+     * @return the {@link Deflater} level used to compress the parts.
+     */
+    public int level() {
+        return level;
+    }
+}
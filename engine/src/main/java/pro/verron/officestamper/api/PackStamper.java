@@ -0,0 +1,40 @@
+package pro.verron.officestamper.api;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.SequencedMap;
+
+/**
+ * Stamps a pack of templates against the same context, evaluating the expressions they share only once.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public interface PackStamper {
+    /**
+     * Stamps each template against the context.
+     *
+     * @param templates the templates of the pack.
+     * @param context   the context shared by the templates.
+     *
+     * @return the stamped documents, in the order of their templates.
+     *
+     * @throws OfficeStamperException if the stamping of a template fails.
+     */
+    List<byte[]> stamp(List<? extends InputStream> templates, Object context)
+            throws OfficeStamperException;
+
+    /**
+     * Stamps each template against the context, and writes the stamped documents in a zip archive.
+     *
+     * @param templates the templates of the pack, by name of their entry in the archive.
+     * @param context   the context shared by the templates.
+     * @param out       where the archive is written, left open.
+     *
+     * @throws OfficeStamperException if the stamping of a template, or the writing of the archive, fails.
+     */
+    void stamp(SequencedMap<String, ? extends InputStream> templates, Object context, OutputStream out)
+            throws OfficeStamperException;
+}
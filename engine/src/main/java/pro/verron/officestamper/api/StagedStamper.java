@@ -0,0 +1,28 @@
+package pro.verron.officestamper.api;
+
+import java.io.InputStream;
+
+/**
+ * Stamps a template in two stages: the expressions rooted in a shared namespace are resolved once against a shared
+ * context, then the rest of the template is stamped for each recipient.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public interface StagedStamper {
+    /**
+     * Resolves the expressions of the template rooted in the shared namespace, and the comments reading nothing but
+     * the shared namespace, leaving the other ones for the per-recipient stage.
+     *
+     * @param template the template to stamp.
+     * @param shared   the context read through the shared namespace.
+     *
+     * @return the partially stamped template.
+     *
+     * @throws OfficeStamperException if the stamping fails, or if an expression reads both the shared namespace and
+     *                                the context of the recipients, like {@code ${shared.greeting + name}}.
+     */
+    StagedTemplate compile(InputStream template, Object shared)
+            throws OfficeStamperException;
+}
@@ -0,0 +1,23 @@
+package pro.verron.officestamper.api;
+
+import java.io.OutputStream;
+
+/**
+ * A template partially stamped by a {@link StagedStamper}, ready to be stamped for each recipient.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public interface StagedTemplate {
+    /**
+     * Stamps the expressions left in the template against the context of a recipient.
+     *
+     * @param context the context of the recipient.
+     * @param out     where the stamped document is written.
+     *
+     * @throws OfficeStamperException if the stamping fails.
+     */
+    void stamp(Object context, OutputStream out)
+            throws OfficeStamperException;
+}
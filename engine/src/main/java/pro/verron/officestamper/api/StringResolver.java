@@ -18,7 +18,7 @@ import static pro.verron.officestamper.utils.WmlFactory.newRun;
  * @since 1.6.7
  */
 public abstract class StringResolver<T>
-        implements ObjectResolver {
+        implements TypeBasedResolver {
 
     private final Class<T> type;
 
@@ -62,6 +62,18 @@ public abstract class StringResolver<T>
         return type.isInstance(object);
     }
 
+    /**
+     * Determines if objects of the given type can be resolved by the StringResolver.
+     *
+     * @param type the class of the object to be resolved
+     *
+     * @return true if objects of this type can be resolved, false otherwise
+     */
+    @Override
+    public final boolean canResolve(Class<?> type) {
+        return this.type.isAssignableFrom(type);
+    }
+
     /**
      * Resolves an object to a string.
      *
@@ -0,0 +1,24 @@
+package pro.verron.officestamper.api;
+
+import java.io.InputStream;
+
+/**
+ * Analyzes templates without stamping them, to find what they need from their context.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public interface TemplateIntrospector {
+    /**
+     * Finds the property paths a template reads from its context.
+     *
+     * @param template the template to analyze.
+     *
+     * @return the paths read by each expression of the template.
+     *
+     * @throws OfficeStamperException if the template cannot be read.
+     */
+    TemplateRequirements requirements(InputStream template)
+            throws OfficeStamperException;
+}
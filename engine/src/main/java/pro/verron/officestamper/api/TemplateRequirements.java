@@ -0,0 +1,43 @@
+package pro.verron.officestamper.api;
+
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The property paths a template reads from its context, found by analyzing its expressions without stamping it.
+ * <p>
+ * A path names the properties read from the root, separated by dots, like {@code customer.address.city}.
+ * An element of a list or of a map is written {@code []}: the rows repeated by {@code repeatTableRow(items)} read
+ * their properties under {@code items[]}, like {@code items[].sku}.
+ * The properties read by methods, functions and variables cannot be known statically, only the path up to them is.
+ *
+ * @param expressions the paths read by each expression of the template, placeholders and comments, by expression.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public record TemplateRequirements(Map<String, SortedSet<String>> expressions) {
+
+    /**
+     * Creates template requirements, keeping an immutable copy of the expressions.
+     *
+     * @param expressions the paths read by each expression of the template.
+     */
+    public TemplateRequirements {
+        expressions = Map.copyOf(expressions);
+    }
+
+    /**
+     * Returns all the paths read by the template.
+     *
+     * @return the paths read by any of its expressions, sorted.
+     */
+    public SortedSet<String> paths() {
+        var paths = new TreeSet<String>();
+        expressions.values()
+                   .forEach(paths::addAll);
+        return paths;
+    }
+}
@@ -0,0 +1,27 @@
+package pro.verron.officestamper.api;
+
+/**
+ * An {@link ObjectResolver} whose decision to resolve a non-null object only depends on the class of this object.
+ * <p>
+ * Registries can then remember which resolver handles a given class, instead of asking every resolver again for
+ * each resolved value. Resolvers that need to look at the value itself should keep implementing
+ * {@link ObjectResolver} directly, they are always asked.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public interface TypeBasedResolver
+        extends ObjectResolver {
+
+    /**
+     * Checks if any non-null object of the given type can be resolved.
+     * <p>
+     * The answer must be consistent with {@link #canResolve(Object)} for every non-null instance of the type.
+     *
+     * @param type the class of the object to be resolved
+     *
+     * @return true if objects of this type can be resolved, false otherwise
+     */
+    boolean canResolve(Class<?> type);
+}
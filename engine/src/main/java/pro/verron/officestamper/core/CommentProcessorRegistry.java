@@ -1,5 +1,6 @@
 package pro.verron.officestamper.core;
 
+import org.docx4j.XmlUtils;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.docx4j.wml.*;
 import org.jvnet.jaxb2_commons.ppp.Child;
@@ -7,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelParseException;
+import org.springframework.lang.Nullable;
 import pro.verron.officestamper.api.*;
 import pro.verron.officestamper.utils.WmlFactory;
 import pro.verron.officestamper.utils.WmlUtils;
@@ -30,6 +32,7 @@ import static pro.verron.officestamper.core.Placeholders.findProcessors;
 public class CommentProcessorRegistry {
 
     private static final Logger logger = LoggerFactory.getLogger(CommentProcessorRegistry.class);
+    private static final Set<String> REPEATS = Set.of("repeatTableRow", "repeatParagraph", "repeatDocPart");
     private final DocxPart source;
     private final CommentProcessors commentProcessors;
     private final ExpressionResolver expressionResolver;
@@ -57,10 +60,12 @@ public class CommentProcessorRegistry {
 
     public <T> void runProcessors(T expressionContext) {
         var proceedComments = new ArrayList<Comment>();
+        var decided = runRemovalProcessors(expressionContext, proceedComments);
 
         source.streamRun()
               .forEach(run -> {
                   var comments = collectComments();
+                  decided.forEach(comments::remove);
                   var runParent = StandardParagraph.from(source, (P) run.getParent());
                   var optional = runProcessorsOnRunComment(comments, expressionContext, run, runParent);
                   optional.ifPresent(proceedComments::add);
@@ -71,6 +76,7 @@ public class CommentProcessorRegistry {
         source.streamParagraphs()
               .forEach(p -> {
                   var comments = collectComments();
+                  decided.forEach(comments::remove);
                   var paragraphComment = p.getComment();
                   paragraphComment.forEach((pc -> {
                       var optional = runProcessorsOnParagraphComment(comments, expressionContext, p, pc.getId());
@@ -85,6 +91,111 @@ public class CommentProcessorRegistry {
         proceedComments.forEach(CommentUtil::deleteComment);
     }
 
+    /**
+     * Runs the comment processors deciding whether to remove content, like {@code displayParagraphIf}, before any
+     * other processor or expression of the part.
+     * <p>
+     * The content they remove, with its expressions and nested repeats, is then never evaluated.
+     * The decisions are taken in document order, from run comments, paragraph comments and inline processors alike,
+     * skipping the ones within content an earlier decision already removed.
+     * The inline processors within the content of a repeat are left to the stamping of each repeated copy, since they
+     * are resolved against the repeated elements rather than the context root.
+     *
+     * @param context         the context root object.
+     * @param proceedComments the processed comments, to be deleted at the end.
+     * @param <T>             type of the context root object.
+     *
+     * @return the ids of the comments holding a decision, already processed.
+     */
+    private <T> Set<BigInteger> runRemovalProcessors(T context, List<Comment> proceedComments) {
+        var decided = new HashSet<BigInteger>();
+        var removals = commentProcessors.removals();
+        if (removals.isEmpty()) return decided;
+        var comments = collectComments();
+        var repeated = comments.values()
+                               .stream()
+                               .filter(c -> expressionResolver.isCallTo(c.asPlaceholder(), REPEATS))
+                               .flatMap(c -> c.getElements()
+                                              .stream())
+                               .toList();
+        var paragraphs = DocumentUtil.streamObjectElements(source, P.class)
+                                     .toList();
+        for (var p : paragraphs) {
+            var paragraph = StandardParagraph.from(source, p);
+            for (var run : List.copyOf(p.getContent())) {
+                if (!(run instanceof R r)) continue;
+                CommentUtil.getCommentAround(r, document())
+                           .map(c -> comments.get(c.getId()))
+                           .filter(c -> isRemoval(context, c, removals, decided) && isAttached(p))
+                           .ifPresent(c -> runRemovalProcessor(context, c, paragraph, r, decided, proceedComments));
+            }
+            for (var pc : paragraph.getComment()) {
+                var c = comments.get(pc.getId());
+                if (isRemoval(context, c, removals, decided) && isAttached(p))
+                    runRemovalProcessor(context, c, paragraph, null, decided, proceedComments);
+            }
+            if (isWithin(p, repeated)) continue;
+            for (var placeholder : findProcessors(paragraph.asString())) {
+                if (expressionResolver.isCallTo(placeholder, removals) && !expressionResolver.isDeferred(context,
+                        placeholder) && isAttached(p))
+                    runInlineProcessor(context, paragraph, paragraph.processorContext(placeholder));
+            }
+        }
+        return decided;
+    }
+
+    private <T> boolean isRemoval(
+            T context, @Nullable Comment comment, Set<String> removals, Set<BigInteger> decided
+    ) {
+        if (comment == null || decided.contains(comment.getComment()
+                                                       .getId())) return false;
+        var placeholder = comment.asPlaceholder();
+        return expressionResolver.isCallTo(placeholder, removals) && !expressionResolver.isDeferred(context,
+                placeholder);
+    }
+
+    private <T> void runRemovalProcessor(
+            T context,
+            Comment comment,
+            Paragraph paragraph,
+            @Nullable R run,
+            Set<BigInteger> decided,
+            List<Comment> proceedComments
+    ) {
+        decided.add(comment.getComment()
+                           .getId());
+        var placeholder = comment.asPlaceholder();
+        commentProcessors.setContext(new ProcessorContext(paragraph, run, comment, placeholder));
+        if (runCommentProcessors(context, placeholder)) proceedComments.add(comment);
+        commentProcessors.commitChanges(source);
+    }
+
+    private static boolean isWithin(P paragraph, List<Object> elements) {
+        for (var element : elements)
+            if (DocumentUtil.depthElementSearch(paragraph, element)) return true;
+        return false;
+    }
+
+    /**
+     * Tells whether an element is still in its document, following its parents up to the root of its part.
+     */
+    private static boolean isAttached(Child element) {
+        Object current = element;
+        // the body is the root of the main part, its document exposes the body content as its own
+        while (!(current instanceof Body) && current instanceof Child child
+               && child.getParent() instanceof ContentAccessor parent) {
+            if (!contains(parent.getContent(), current)) return false;
+            current = parent;
+        }
+        return true;
+    }
+
+    private static boolean contains(List<Object> content, Object element) {
+        for (var item : content)
+            if (item == element || XmlUtils.unwrap(item) == element) return true;
+        return false;
+    }
+
     private Map<BigInteger, Comment> collectComments() {
         var rootComments = new HashMap<BigInteger, Comment>();
         var allComments = new HashMap<BigInteger, Comment>();
@@ -112,6 +223,7 @@ public class CommentProcessorRegistry {
     ) {
         return CommentUtil.getCommentAround(run, document())
                           .flatMap(c -> Optional.ofNullable(comments.get(c.getId())))
+                          .filter(c -> !expressionResolver.isDeferred(expressionContext, c.asPlaceholder()))
                           .flatMap(c -> {
                               var cPlaceholder = c.asPlaceholder();
                               var cComment = c.getComment();
@@ -139,6 +251,7 @@ public class CommentProcessorRegistry {
 
         var c = comments.get(paragraphCommentId);
         var cPlaceholder = c.asPlaceholder();
+        if (expressionResolver.isDeferred(expressionContext, cPlaceholder)) return Optional.empty();
         var cComment = c.getComment();
         comments.remove(cComment.getId());
         commentProcessors.setContext(new ProcessorContext(paragraph, null, c, cPlaceholder));
@@ -158,19 +271,25 @@ public class CommentProcessorRegistry {
                                                                     .map(paragraph::processorContext)
                                                                     .toList();
         for (var processorContext : processorContexts) {
-            commentProcessors.setContext(processorContext);
             var placeholder = processorContext.placeholder();
-            try {
-                expressionResolver.setContext(context);
-                expressionResolver.resolve(placeholder);
-                paragraph.replace(placeholder, WmlFactory.newRun(""));
-                logger.debug("Placeholder '{}' successfully processed by a comment processor.", placeholder);
-            } catch (SpelEvaluationException | SpelParseException e) {
-                var message = "Placeholder '%s' failed to process.".formatted(placeholder);
-                exceptionResolver.resolve(placeholder, message, e);
-            }
-            commentProcessors.commitChanges(source);
+            if (expressionResolver.isDeferred(context, placeholder)) continue;
+            runInlineProcessor(context, paragraph, processorContext);
+        }
+    }
+
+    private <T> void runInlineProcessor(T context, Paragraph paragraph, ProcessorContext processorContext) {
+        var placeholder = processorContext.placeholder();
+        commentProcessors.setContext(processorContext);
+        try {
+            expressionResolver.setContext(context);
+            expressionResolver.resolve(placeholder);
+            paragraph.replace(placeholder, WmlFactory.newRun(""));
+            logger.debug("Placeholder '{}' successfully processed by a comment processor.", placeholder);
+        } catch (SpelEvaluationException | SpelParseException e) {
+            var message = "Placeholder '%s' failed to process.".formatted(placeholder);
+            exceptionResolver.resolve(placeholder, message, e);
         }
+        commentProcessors.commitChanges(source);
     }
 
     private WordprocessingMLPackage document() {
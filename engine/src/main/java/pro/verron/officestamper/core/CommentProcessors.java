@@ -1,18 +1,38 @@
 package pro.verron.officestamper.core;
 
 import pro.verron.officestamper.api.*;
+import pro.verron.officestamper.preset.CommentProcessorFactory.IDisplayIfProcessor;
 
+import java.lang.reflect.Method;
 import java.util.AbstractMap;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 
+import static java.util.stream.Collectors.toUnmodifiableSet;
+
 public class CommentProcessors
         extends AbstractMap<Class<?>, CommentProcessor> {
 
     private final Map<Class<?>, CommentProcessor> processors;
+    private final Set<String> removals;
 
     public CommentProcessors(Map<Class<?>, CommentProcessor> processors) {
         this.processors = processors;
+        this.removals = processors.keySet()
+                                  .stream()
+                                  .filter(IDisplayIfProcessor.class::isAssignableFrom)
+                                  .flatMap(type -> Arrays.stream(type.getMethods()))
+                                  .map(Method::getName)
+                                  .collect(toUnmodifiableSet());
+    }
+
+    /// Returns the names of the processor methods deciding whether to remove content, like `displayParagraphIf`, so
+    /// they can be run before the expressions of the content they might remove.
+    ///
+    /// @return the names of the methods of the registered [IDisplayIfProcessor] interfaces.
+    Set<String> removals() {
+        return removals;
     }
 
     public void setContext(ProcessorContext context) {
@@ -8,7 +8,6 @@ import org.docx4j.model.structure.HeaderFooterPolicy;
 import org.docx4j.model.structure.SectionWrapper;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.docx4j.openpackaging.parts.JaxbXmlPart;
-import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
 import org.docx4j.utils.TraversalUtilVisitor;
 import org.docx4j.wml.*;
 import org.jvnet.jaxb2_commons.ppp.Child;
@@ -16,13 +15,13 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.function.ThrowingFunction;
 import pro.verron.officestamper.api.DocxPart;
 import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.utils.ByteUtils;
 
 import java.util.*;
 import java.util.stream.Stream;
 
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Stream.Builder;
-import static pro.verron.officestamper.utils.WmlFactory.newRun;
 
 /**
  * Utility class to retrieve elements from a document.
@@ -71,6 +70,10 @@ public class DocumentUtil {
 
     /**
      * Recursively walk through source accessor to find embedded images and import the target document.
+     * <p>
+     * Images are imported by content: an image already present in the target, for example, imported from a previous
+     * repetition of the same template, is referenced again instead of being added as a new part.
+     * The image parts are transferred without being probed again, and the imported drawings keep their extents.
      *
      * @param container source container to walk.
      * @param source    source document containing image files.
@@ -84,6 +87,9 @@ public class DocumentUtil {
             WordprocessingMLPackage target
     ) {
         Map<R, R> replacements = new HashMap<>();
+        var docxImageExtractor = new DocxImageExtractor(source);
+        var imageParts = ImageParts.of(target);
+        var importedParts = new HashMap<String, String>();
         for (Object obj : container.getContent()) {
             Queue<Object> queue = new ArrayDeque<>();
             queue.add(obj);
@@ -92,11 +98,10 @@ public class DocumentUtil {
                 Object currentObj = queue.remove();
 
                 if (currentObj instanceof R currentR && isImageRun(currentR)) {
-                    var docxImageExtractor = new DocxImageExtractor(source);
-                    var imageData = docxImageExtractor.getRunDrawingData(currentR);
-                    var maxWidth = docxImageExtractor.getRunDrawingMaxWidth(currentR);
-                    var imagePart = tryCreateImagePart(target, imageData);
-                    var runWithImage = newRun(maxWidth, imagePart, "dummyFileName", "dummyAltText");
+                    var partName = docxImageExtractor.getRunDrawingPartName(currentR);
+                    var relationshipId = importedParts.computeIfAbsent(partName,
+                            name -> importImagePart(docxImageExtractor, imageParts, target, name));
+                    var runWithImage = DocxImageExtractor.copyRunDrawing(currentR, relationshipId);
                     replacements.put(currentR, runWithImage);
                 }
                 else if (currentObj instanceof ContentAccessor contentAccessor)
@@ -122,12 +127,18 @@ public class DocumentUtil {
                   .anyMatch(Drawing.class::isInstance);
     }
 
-    private static BinaryPartAbstractImage tryCreateImagePart(WordprocessingMLPackage destDocument, byte[] imageData) {
-        try {
-            return BinaryPartAbstractImage.createImagePart(destDocument, imageData);
-        } catch (Exception e) {
-            throw new OfficeStamperException(e);
-        }
+    private static String importImagePart(
+            DocxImageExtractor extractor,
+            ImageParts imageParts,
+            WordprocessingMLPackage target,
+            String partName
+    ) {
+        var content = extractor.getPartContent(partName);
+        var contentType = extractor.getPartContentType(partName);
+        var digest = ByteUtils.sha1b64(content);
+        return imageParts.imagePart(target.getMainDocumentPart(), digest, content, contentType)
+                         .relationship()
+                         .getId();
     }
 
     /**
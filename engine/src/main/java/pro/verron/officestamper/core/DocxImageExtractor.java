@@ -1,18 +1,26 @@
 package pro.verron.officestamper.core;
 
 import jakarta.xml.bind.JAXBElement;
+import org.docx4j.XmlUtils;
 import org.docx4j.dml.Graphic;
 import org.docx4j.dml.picture.Pic;
 import org.docx4j.dml.wordprocessingDrawing.Inline;
 import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.exceptions.InvalidFormatException;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPart;
 import org.docx4j.wml.Drawing;
 import org.docx4j.wml.R;
+import org.springframework.lang.Nullable;
 import pro.verron.officestamper.api.OfficeStamperException;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.Random;
 
 /**
  * Extracts images from a docx document.
@@ -23,6 +31,8 @@ import java.util.Arrays;
  */
 public class DocxImageExtractor {
 
+    private static final Random RANDOM = new Random();
+
     private final WordprocessingMLPackage wordprocessingMLPackage;
 
     /**
@@ -35,27 +45,101 @@ public class DocxImageExtractor {
     }
 
     /**
-     * Extract an image bytes from an embedded image run.
+     * Extract the name of the part holding the image of an embedded image run.
      *
      * @param run run containing the embedded drawing.
+     *
+     * @return the name of the image part, relative to the package root.
      */
-    byte[] getRunDrawingData(R run) {
+    String getRunDrawingPartName(R run) {
         String imageRelId = getPic(run).getBlipFill()
                                        .getBlip()
                                        .getEmbed();
-        String imageRelPartName = getImageRelPartName(imageRelId);
+        return getImageRelPartName(imageRelId);
+    }
+
+    /**
+     * Extract the content of an image part, without copying it when possible.
+     * <p>
+     * The buffer of the image part is shared when the part is already loaded in the document, other parts are read
+     * from the source part store.
+     *
+     * @param imageRelPartName name of the image part, relative to the package root.
+     *
+     * @return a read-only buffer over the content of the image part.
+     */
+    ByteBuffer getPartContent(String imageRelPartName) {
+        if (getPart(imageRelPartName) instanceof BinaryPart part && part.isLoaded()) return part.getBuffer()
+                                                                                                .duplicate()
+                                                                                                .rewind()
+                                                                                                .asReadOnlyBuffer();
         long size = getImageSize(imageRelPartName);
-        InputStream stream = getImageStream(imageRelPartName);
-        return streamToByteArray(size, stream);
+        try (InputStream stream = getImageStream(imageRelPartName)) {
+            return ByteBuffer.wrap(streamToByteArray(size, stream))
+                             .asReadOnlyBuffer();
+        } catch (IOException e) {
+            throw new OfficeStamperException(e);
+        }
+    }
+
+    /**
+     * Extract the content type of an image part.
+     *
+     * @param imageRelPartName name of the image part, relative to the package root.
+     *
+     * @return the content type of the image part.
+     */
+    String getPartContentType(String imageRelPartName) {
+        var part = getPart(imageRelPartName);
+        if (part == null) throw new OfficeStamperException("Image part %s not found !".formatted(imageRelPartName));
+        return part.getContentType();
+    }
+
+    /**
+     * Copy an embedded image run, pointing its drawing to another image relationship.
+     * <p>
+     * The extents, name and description of the drawing are kept as they are, only its identifiers are renewed, so
+     * the copies stay unique in the target document.
+     *
+     * @param run            run containing the embedded drawing.
+     * @param relationshipId id of the relationship to the image part in the target document.
+     *
+     * @return the copy of the run.
+     */
+    static R copyRunDrawing(R run, String relationshipId) {
+        var copy = XmlUtils.deepCopy(run);
+        var pic = getPic(copy);
+        pic.getBlipFill()
+           .getBlip()
+           .setEmbed(relationshipId);
+        pic.getNvPicPr()
+           .getCNvPr()
+           .setId(RANDOM.nextInt(100_000));
+        getInline(copy).getDocPr()
+                       .setId(RANDOM.nextLong(100_000L));
+        return copy;
+    }
+
+    @Nullable private Part getPart(String imageRelPartName) {
+        try {
+            return wordprocessingMLPackage.getParts()
+                                          .get(new PartName("/" + imageRelPartName));
+        } catch (InvalidFormatException e) {
+            throw new OfficeStamperException(e);
+        }
     }
 
     private static Pic getPic(R run) {
+        Graphic graphic = getInline(run).getGraphic();
+        return graphic.getGraphicData()
+                      .getPic();
+    }
+
+    private static Inline getInline(R run) {
         for (Object runContent : run.getContent()) {
             if (!(runContent instanceof JAXBElement<?> runElement)) break;
             if (!(runElement.getValue() instanceof Drawing drawing)) break;
-            Graphic graphic = getInlineGraphic(drawing);
-            return graphic.getGraphicData()
-                          .getPic();
+            return getInline(drawing);
         }
         throw new OfficeStamperException("Run drawing not found !");
     }
@@ -99,27 +183,27 @@ public class DocxImageExtractor {
     private static byte[] streamToByteArray(long size, InputStream is) {
         if (size > Integer.MAX_VALUE) throw new OfficeStamperException("Image size exceeds maximum allowed (2GB)");
 
-        int intSize = (int) size;
-        byte[] data = new byte[intSize];
-        int numRead = tryRead(is, data);
-        return Arrays.copyOfRange(data, 0, numRead);
+        return tryReadFully(is, (int) Math.max(size, 0));
     }
 
     /**
-     * Extract an inline graphic from a drawing.
+     * Extract the inline of a drawing.
      *
      * @param drawing the drawing containing the graphic.
      */
-    private static Graphic getInlineGraphic(Drawing drawing) {
+    private static Inline getInline(Drawing drawing) {
         var anchorOrInline = drawing.getAnchorOrInline();
         if (anchorOrInline.isEmpty()) throw new OfficeStamperException("Anchor or Inline is empty !");
-        if (anchorOrInline.getFirst() instanceof Inline inline) return inline.getGraphic();
+        if (anchorOrInline.getFirst() instanceof Inline inline) return inline;
         throw new OfficeStamperException("Don't know how to process anchor !");
     }
 
-    private static int tryRead(InputStream is, byte[] data) {
+    private static byte[] tryReadFully(InputStream is, int size) {
         try {
-            return is.read(data);
+            // the size is only a hint, the stream is read until its end
+            var out = new ByteArrayOutputStream(size);
+            is.transferTo(out);
+            return out.toByteArray();
         } catch (IOException e) {
             throw new OfficeStamperException(e);
         }
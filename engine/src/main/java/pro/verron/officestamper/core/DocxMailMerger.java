@@ -0,0 +1,495 @@
+package pro.verron.officestamper.core;
+
+import jakarta.xml.bind.JAXBException;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.Save;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.FooterPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.HeaderPart;
+import org.docx4j.openpackaging.parts.relationships.RelationshipsPart;
+import org.docx4j.relationships.ObjectFactory;
+import org.docx4j.relationships.Relationship;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.MailMerger;
+import pro.verron.officestamper.api.MergeOptions;
+import pro.verron.officestamper.api.OfficeStamperConfiguration;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.api.OutputCompression;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.docx4j.openpackaging.parts.relationships.RelationshipsPart.AddPartBehaviour.RENAME_IF_NAME_EXISTS;
+import static org.docx4j.openpackaging.parts.relationships.RelationshipsPart.AddPartBehaviour.REUSE_EXISTING;
+
+/// Stamps one template with many contexts, and writes the stamped records one after the other in the body of a
+/// single document.
+///
+/// Each record is stamped on its own copy of the template, then its body is marshalled and appended to a temporary
+/// file, which is copied in place of the main document when the merged document is saved: only one record is held
+/// in memory at a time, with the images of the merged document.
+/// The first record of each merged document gives it everything but its body and its headers and footers.
+/// Separated by section breaks, each record keeps its own headers and footers, added to the merged document once per
+/// distinct content; separated by page breaks, the records share a single section, so their headers and footers
+/// must be the same.
+/// The images of the records are added to the merged document once per distinct content.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public final class DocxMailMerger
+        implements MailMerger {
+
+    private static final Pattern RELATIONSHIP_ATTRIBUTE = Pattern.compile("( r:\\w+=\")([^\"]+)\"");
+    private static final Pattern DRAWING_ID = Pattern.compile("(<(?:wp:docPr|pic:cNvPr) id=\")\\d+\"");
+    private static final String PAGE_BREAK = "<w:p><w:r><w:br w:type=\"page\"/></w:r></w:p>";
+
+    private final DocxStamper stamper;
+    private final MergeOptions options;
+    private final OutputCompression outputCompression;
+    @Nullable private final Executor outputExecutor;
+
+    /// Creates a new DocxMailMerger stamping its records with the given configuration.
+    ///
+    /// @param configuration the configuration used to stamp each record.
+    /// @param options       how the records are separated, and when the merge rolls over.
+    public DocxMailMerger(OfficeStamperConfiguration configuration, MergeOptions options) {
+        this.stamper = new DocxStamper(configuration);
+        this.options = options;
+        this.outputCompression = configuration.getOutputCompression();
+        this.outputExecutor = configuration.getOutputExecutor();
+    }
+
+    @Override
+    public void merge(InputStream template, Stream<?> contexts, OutputStream out) {
+        var kept = new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len)
+                    throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close()
+                    throws IOException {
+                flush();
+            }
+        };
+        merge(template, contexts, index -> kept, false);
+    }
+
+    @Override
+    public int merge(InputStream template, Stream<?> contexts, IntFunction<OutputStream> outputs) {
+        return merge(template, contexts, outputs, true);
+    }
+
+    private int merge(InputStream template, Stream<?> contexts, IntFunction<OutputStream> outputs, boolean rolling) {
+        byte[] bytes;
+        try {
+            bytes = template.readAllBytes();
+        } catch (IOException e) {
+            throw new OfficeStamperException(e);
+        }
+        var templateIds = relationshipIds(load(bytes));
+        var files = 0;
+        MergedFile file = null;
+        try (contexts) {
+            for (var iterator = contexts.iterator(); iterator.hasNext(); ) {
+                var document = load(bytes);
+                stamper.stampDeferring(document, iterator.next());
+                Record record;
+                try {
+                    // writes the streamed repeats of the body, and expands the ones of the headers and footers
+                    record = Record.of(document);
+                    if (file != null && rolling && !options.admits(file.bytes + record.bytes(),
+                            file.pages + record.pages())) {
+                        file.finish(outputs.apply(files++));
+                        file = null;
+                    }
+                    if (file == null) file = new MergedFile(document, record, templateIds);
+                    else file.append(document, record);
+                } finally {
+                    stamper.settle();
+                }
+            }
+            if (file == null) throw new OfficeStamperException("Nothing to merge, there is no context");
+            file.finish(outputs.apply(files++));
+            return files;
+        } catch (IOException | Docx4JException e) {
+            throw new OfficeStamperException(e);
+        } finally {
+            if (file != null) file.discard();
+        }
+    }
+
+    private static WordprocessingMLPackage load(byte[] template) {
+        return ZipEntryPartStore.load(new ByteArrayInputStream(template));
+    }
+
+    private static Set<String> relationshipIds(WordprocessingMLPackage document) {
+        var relationships = document.getMainDocumentPart()
+                                    .getRelationshipsPart();
+        var ids = new HashSet<String>();
+        if (relationships == null) return ids;
+        for (var relationship : relationships.getRelationships()
+                                             .getRelationship())
+            ids.add(relationship.getId());
+        return ids;
+    }
+
+    private static String digest(BinaryPart part) {
+        try {
+            return HexFormat.of()
+                            .formatHex(MessageDigest.getInstance("SHA-256")
+                                                    .digest(part.getBytes()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new OfficeStamperException(e);
+        }
+    }
+
+    /// The body of a stamped record, split around its content.
+    ///
+    /// @param prefix  the main document up to the opening of its body.
+    /// @param body    the content of the body, without its final section properties.
+    /// @param section the final section properties of the body, if any.
+    /// @param suffix  the main document from the closing of its body.
+    private record Record(String prefix, String body, String section, String suffix) {
+
+        static Record of(WordprocessingMLPackage document)
+                throws IOException {
+            var part = document.getMainDocumentPart();
+            var marshalled = new ByteArrayOutputStream();
+            var repeats = StreamedRepeats.in(part);
+            if (repeats != null) repeats.write(part, marshalled);
+            else {
+                try {
+                    part.marshal(marshalled);
+                } catch (JAXBException e) {
+                    throw new IOException("Failed to marshal " + part.getPartName(), e);
+                }
+            }
+            var xml = marshalled.toString(StandardCharsets.UTF_8);
+            var bodyStart = xml.indexOf("<w:body>");
+            var bodyEnd = xml.lastIndexOf("</w:body>");
+            if (bodyStart < 0 || bodyEnd < 0) throw new OfficeStamperException("No body in " + part.getPartName());
+            bodyStart += "<w:body>".length();
+            var sectionStart = xml.lastIndexOf("<w:sectPr", bodyEnd);
+            var lastContent = Math.max(xml.lastIndexOf("</w:p>", bodyEnd), xml.lastIndexOf("</w:tbl>", bodyEnd));
+            if (sectionStart < bodyStart || sectionStart < lastContent) sectionStart = bodyEnd;
+            return new Record(xml.substring(0, bodyStart),
+                    xml.substring(bodyStart, sectionStart),
+                    xml.substring(sectionStart, bodyEnd),
+                    xml.substring(bodyEnd));
+        }
+
+        long bytes() {
+            return body.length();
+        }
+
+        /// Estimates the pages of the record: one, plus one for each page break and section break it holds.
+        int pages() {
+            return 1 + occurrences("w:type=\"page\"") + occurrences("<w:sectPr");
+        }
+
+        private int occurrences(String token) {
+            var count = 0;
+            for (var i = body.indexOf(token); i >= 0; i = body.indexOf(token, i + token.length()))
+                count++;
+            return count;
+        }
+    }
+
+    private final class MergedFile {
+        private final WordprocessingMLPackage base;
+        private final Set<String> templateIds;
+        private final Path file;
+        private final Writer writer;
+        private final String suffix;
+        private final Map<String, String> images = new HashMap<>();
+        private final Map<String, BinaryPart> addedImages = new LinkedHashMap<>();
+        private final Map<String, String> templateSections = new HashMap<>();
+        private final Map<String, String> sections = new HashMap<>();
+        private final Map<String, JaxbXmlPart<?>> addedSections = new LinkedHashMap<>();
+        private final Map<String, BinaryPart> sectionImages = new HashMap<>();
+        private final List<Relationship> addedLinks = new ArrayList<>();
+        private String section;
+        private long bytes;
+        private int pages;
+        private int nextId = 1;
+
+        MergedFile(WordprocessingMLPackage base, Record record, Set<String> templateIds)
+                throws IOException {
+            this.base = base;
+            this.templateIds = templateIds;
+            this.file = Files.createTempFile("officestamper-merge", ".xml");
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            this.suffix = record.suffix();
+            this.section = record.section();
+            var relationships = base.getMainDocumentPart()
+                                    .getRelationshipsPart();
+            if (relationships != null) for (var relationship : relationships.getRelationships()
+                                                                            .getRelationship()) {
+                var part = relationships.getPart(relationship);
+                if (part instanceof HeaderPart || part instanceof FooterPart) {
+                    var signature = signature((JaxbXmlPart<?>) part);
+                    templateSections.put(relationship.getId(), signature);
+                    sections.putIfAbsent(signature, relationship.getId());
+                }
+                else if (!templateIds.contains(relationship.getId()) && part instanceof BinaryPart image)
+                    images.put(digest(image), relationship.getId());
+            }
+            writer.write(record.prefix());
+            write(record.body(), record.pages());
+        }
+
+        void append(WordprocessingMLPackage document, Record record)
+                throws IOException {
+            var relationships = document.getMainDocumentPart()
+                                        .getRelationshipsPart();
+            var ids = remap(relationships);
+            remapSections(relationships, ids);
+            writer.write(switch (options.separator()) {
+                case SECTION_BREAK -> section.isEmpty() ? PAGE_BREAK : "<w:p><w:pPr>" + section + "</w:pPr></w:p>";
+                case PAGE_BREAK -> PAGE_BREAK;
+            });
+            write(rewrite(record.body(), ids), record.pages());
+            section = rewrite(record.section(), ids);
+        }
+
+        private void write(String body, int bodyPages)
+                throws IOException {
+            writer.write(body);
+            bytes += body.length();
+            pages += bodyPages;
+        }
+
+        /// Maps the relationships a record added to the template to the ones of the merged document.
+        private Map<String, String> remap(@Nullable RelationshipsPart relationships) {
+            var ids = new HashMap<String, String>();
+            if (relationships == null) return ids;
+            for (var relationship : relationships.getRelationships()
+                                                 .getRelationship()) {
+                var id = relationship.getId();
+                if (templateIds.contains(id)) continue;
+                if ("External".equals(relationship.getTargetMode())) {
+                    var link = new ObjectFactory().createRelationship();
+                    link.setId(newId());
+                    link.setType(relationship.getType());
+                    link.setTarget(relationship.getTarget());
+                    link.setTargetMode(relationship.getTargetMode());
+                    addedLinks.add(link);
+                    ids.put(id, link.getId());
+                }
+                else if (relationships.getPart(relationship) instanceof BinaryPart image) {
+                    ids.put(id, images.computeIfAbsent(digest(image), digest -> {
+                        var newId = newId();
+                        addedImages.put(newId, image);
+                        return newId;
+                    }));
+                }
+                else throw new OfficeStamperException("Merging a %s relationship is not supported".formatted(
+                        relationship.getType()));
+            }
+            return ids;
+        }
+
+        /// Maps the headers and footers of a record to the ones of the merged document holding the same content, or to
+        /// new ones.
+        private void remapSections(@Nullable RelationshipsPart relationships, Map<String, String> ids)
+                throws IOException {
+            if (relationships == null) return;
+            for (var relationship : relationships.getRelationships()
+                                                 .getRelationship()) {
+                var part = relationships.getPart(relationship);
+                if (!(part instanceof HeaderPart || part instanceof FooterPart)) continue;
+                var sectionPart = (JaxbXmlPart<?>) part;
+                var id = relationship.getId();
+                var signature = signature(sectionPart);
+                if (options.separator() == MergeOptions.Separator.PAGE_BREAK) {
+                    if (!signature.equals(templateSections.get(id)))
+                        throw new OfficeStamperException(("The records have different headers or footers, in %s: "
+                                                          + "separate them with section breaks").formatted(
+                                part.getPartName()));
+                    continue;
+                }
+                var known = sections.get(signature);
+                if (known == null) {
+                    checkSectionRelationships(sectionPart);
+                    known = newId();
+                    sections.put(signature, known);
+                    addedSections.put(known, sectionPart);
+                }
+                ids.put(id, known);
+            }
+        }
+
+        private String newId() {
+            var relationships = base.getMainDocumentPart()
+                                    .getRelationshipsPart();
+            String id;
+            do id = "rIdMerge" + nextId++;
+            while (templateIds.contains(id) || relationships != null && relationships.isRelIdOccupied(id));
+            return id;
+        }
+
+        /// Describes the content of a header or footer, with the targets of its relationships, but not the ids of its
+        /// drawings, which are drawn at random for each stamped image.
+        private static String signature(JaxbXmlPart<?> part)
+                throws IOException {
+            StreamedRepeats.expand(part);
+            var marshalled = new ByteArrayOutputStream();
+            try {
+                part.marshal(marshalled);
+            } catch (JAXBException e) {
+                throw new IOException("Failed to marshal " + part.getPartName(), e);
+            }
+            var xml = marshalled.toString(StandardCharsets.UTF_8);
+            var signature = new StringBuilder(DRAWING_ID.matcher(xml)
+                                                        .replaceAll("$1\""));
+            var relationships = part.getRelationshipsPart();
+            if (relationships != null) for (var relationship : relationships.getRelationships()
+                                                                            .getRelationship()) {
+                signature.append('\n')
+                         .append(relationship.getId())
+                         .append('=');
+                if (!"External".equals(relationship.getTargetMode())
+                    && relationships.getPart(relationship) instanceof BinaryPart image)
+                    signature.append(digest(image));
+                else signature.append(relationship.getTarget());
+            }
+            return signature.toString();
+        }
+
+        private static void checkSectionRelationships(JaxbXmlPart<?> part) {
+            var relationships = part.getRelationshipsPart();
+            if (relationships != null) for (var relationship : relationships.getRelationships()
+                                                                            .getRelationship()) {
+                if (!"External".equals(relationship.getTargetMode())
+                    && !(relationships.getPart(relationship) instanceof BinaryPart))
+                    throw new OfficeStamperException("Merging a %s relationship of %s is not supported".formatted(
+                            relationship.getType(),
+                            part.getPartName()));
+            }
+        }
+
+        private static String rewrite(String xml, Map<String, String> ids) {
+            if (ids.isEmpty()) return xml;
+            return RELATIONSHIP_ATTRIBUTE.matcher(xml)
+                                         .replaceAll(match -> {
+                                             var id = ids.getOrDefault(match.group(2), match.group(2));
+                                             return java.util.regex.Matcher.quoteReplacement(match.group(1) + id + "\"");
+                                         });
+        }
+
+        void finish(OutputStream out)
+                throws IOException, Docx4JException {
+            try (out) {
+                writer.write(section + suffix);
+                writer.close();
+                var mainPart = base.getMainDocumentPart();
+                var relationships = mainPart.getRelationshipsPart(true);
+                for (var added : addedSections.entrySet())
+                    addSection(relationships, added.getKey(), added.getValue());
+                for (var image : addedImages.entrySet()) {
+                    var part = image.getValue();
+                    var name = part.getPartName()
+                                   .getName();
+                    // named like the images docx4j creates, after their relationship
+                    part.setPartName(new PartName("/word/media/document_image_%s%s".formatted(image.getKey(),
+                            name.substring(name.lastIndexOf('.')))));
+                    var relationship = relationships.addPart(part,
+                            RENAME_IF_NAME_EXISTS,
+                            base.getContentTypeManager(),
+                            image.getKey());
+                    if (!image.getKey()
+                              .equals(relationship.getId()))
+                        throw new OfficeStamperException("Failed to keep the relationship " + image.getKey());
+                }
+                for (var link : addedLinks)
+                    relationships.addRelationship(link);
+                var packageWriter = new ZipPackageWriter(outputCompression, outputExecutor).replace(mainPart.getPartName(),
+                        file);
+                new Save(base, packageWriter).save(out);
+            } finally {
+                discard();
+            }
+        }
+
+        /// Adds a copy of the header or footer of a record, with its images and links, under the given relationship.
+        private void addSection(RelationshipsPart relationships, String id, JaxbXmlPart<?> source)
+                throws Docx4JException {
+            JaxbXmlPart<?> part;
+            String kind;
+            if (source instanceof HeaderPart header) {
+                kind = "header";
+                var copy = new HeaderPart(new PartName("/word/%s_%s.xml".formatted(kind, id)));
+                copy.setJaxbElement(header.getJaxbElement());
+                part = copy;
+            }
+            else {
+                kind = "footer";
+                var copy = new FooterPart(new PartName("/word/%s_%s.xml".formatted(kind, id)));
+                copy.setJaxbElement(((FooterPart) source).getJaxbElement());
+                part = copy;
+            }
+            var relationship = relationships.addPart(part, RENAME_IF_NAME_EXISTS, base.getContentTypeManager(), id);
+            if (!id.equals(relationship.getId()))
+                throw new OfficeStamperException("Failed to keep the relationship " + id);
+            var sourceRelationships = source.getRelationshipsPart();
+            if (sourceRelationships == null) return;
+            var partRelationships = part.getRelationshipsPart(true);
+            for (var sourceRelationship : sourceRelationships.getRelationships()
+                                                             .getRelationship()) {
+                if ("External".equals(sourceRelationship.getTargetMode())) {
+                    var link = new ObjectFactory().createRelationship();
+                    link.setId(sourceRelationship.getId());
+                    link.setType(sourceRelationship.getType());
+                    link.setTarget(sourceRelationship.getTarget());
+                    link.setTargetMode(sourceRelationship.getTargetMode());
+                    partRelationships.addRelationship(link);
+                }
+                else {
+                    var sourceImage = (BinaryPart) sourceRelationships.getPart(sourceRelationship);
+                    // stored once per distinct content, since a header and a footer often share their images
+                    var digest = digest(sourceImage);
+                    var image = sectionImages.get(digest);
+                    if (image == null) {
+                        image = sourceImage;
+                        var name = image.getPartName()
+                                        .getName();
+                        image.setPartName(new PartName("/word/media/%s_%s_image_%s%s".formatted(kind,
+                                id,
+                                sourceRelationship.getId(),
+                                name.substring(name.lastIndexOf('.')))));
+                        sectionImages.put(digest, image);
+                    }
+                    partRelationships.addPart(image,
+                            REUSE_EXISTING,
+                            base.getContentTypeManager(),
+                            sourceRelationship.getId());
+                }
+            }
+        }
+
+        void discard() {
+            try {
+                writer.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new OfficeStamperException(e);
+            }
+        }
+    }
+}
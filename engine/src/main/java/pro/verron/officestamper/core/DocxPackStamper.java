@@ -0,0 +1,123 @@
+package pro.verron.officestamper.core;
+
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.OfficeStamperConfiguration;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.api.PackStamper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.SequencedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/// Stamps the Word templates of a document pack concurrently, against the same context.
+///
+/// Each template is stamped by its own [DocxStamper], since a stamper holds the state of its current stamping, but
+/// all of them share one [ExpressionCache]: an expression used by several templates, like an expensive computed
+/// getter of the context, is evaluated once for the whole pack.
+/// The stampers are kept between the templates and the packs, so there are only as many of them as templates
+/// stamped at once, and only the cache they share is swapped for each pack.
+/// The templates are loaded lazily, so their untouched parts are copied without being parsed.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public final class DocxPackStamper
+        implements PackStamper {
+
+    private final OfficeStamperConfiguration configuration;
+    @Nullable private final Executor executor;
+    private final Queue<DocxStamper> stampers = new ConcurrentLinkedQueue<>();
+
+    /// Creates a new DocxPackStamper with the given configuration.
+    ///
+    /// @param configuration the configuration used to stamp each template.
+    /// @param executor      runs the stamping of each template, or null to start a virtual thread per template.
+    public DocxPackStamper(OfficeStamperConfiguration configuration, @Nullable Executor executor) {
+        this.configuration = configuration;
+        this.executor = executor;
+    }
+
+    @Override
+    public List<byte[]> stamp(List<? extends InputStream> templates, Object context) {
+        if (executor != null) return join(submit(templates, context, executor));
+        try (var perTemplate = Executors.newVirtualThreadPerTaskExecutor()) {
+            return join(submit(templates, context, perTemplate));
+        }
+    }
+
+    @Override
+    public void stamp(SequencedMap<String, ? extends InputStream> templates, Object context, OutputStream out) {
+        var names = new ArrayList<>(templates.sequencedKeySet());
+        var documents = stamp(new ArrayList<>(templates.sequencedValues()), context);
+        try {
+            var zip = new ZipOutputStream(out);
+            for (int i = 0; i < names.size(); i++) {
+                // the stamped documents are zip packages already, compressing them again saves little
+                var document = documents.get(i);
+                var crc = new CRC32();
+                crc.update(document);
+                var entry = new ZipEntry(names.get(i));
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(document.length);
+                entry.setCompressedSize(document.length);
+                entry.setCrc(crc.getValue());
+                zip.putNextEntry(entry);
+                zip.write(document);
+                zip.closeEntry();
+            }
+            zip.finish();
+        } catch (IOException e) {
+            throw new OfficeStamperException(e);
+        }
+    }
+
+    private List<CompletableFuture<byte[]>> submit(
+            List<? extends InputStream> templates,
+            Object context,
+            Executor runner
+    ) {
+        var cache = new ExpressionCache(context);
+        return templates.stream()
+                        .map(template -> CompletableFuture.supplyAsync(() -> stamp(template, context, cache), runner))
+                        .toList();
+    }
+
+    private byte[] stamp(InputStream template, Object context, ExpressionCache cache) {
+        var idle = stampers.poll();
+        var stamper = idle != null ? idle : new DocxStamper(configuration);
+        stamper.share(cache);
+        try {
+            var out = new ByteArrayOutputStream();
+            stamper.stamp(ZipEntryPartStore.load(template), context, out);
+            return out.toByteArray();
+        } finally {
+            // no idle stamper keeps the context of a pack alive
+            stamper.share(null);
+            stampers.offer(stamper);
+        }
+    }
+
+    private static List<byte[]> join(List<CompletableFuture<byte[]>> futures) {
+        try {
+            return futures.stream()
+                          .map(CompletableFuture::join)
+                          .toList();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof OfficeStamperException cause) throw cause;
+            throw new OfficeStamperException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package pro.verron.officestamper.core;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.Save;
+import pro.verron.officestamper.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/// Stamps Word templates in two stages, resolving the expressions shared by all the recipients only once.
+///
+/// The first stage resolves the placeholders and comments reading nothing but the shared namespace from the root,
+/// like `${shared.company.name}` or `displayParagraphIf(shared.legal)`, against a [StagedContext], and keeps the
+/// partially stamped template in memory, stored without compression.
+/// Each stamping of the compiled template then loads it lazily, and only evaluates the expressions left.
+/// Expressions reading both the shared namespace and the recipient, like `${shared.greeting + name}`, are rejected
+/// when compiling, since the shared context is no longer reachable in the last stage.
+/// The preprocessors run in both stages, the postprocessors only in the last one.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public final class DocxStagedStamper
+        implements StagedStamper {
+
+    private final String namespace;
+    private final DocxStamper sharedStamper;
+    private final DocxStamper recipientStamper;
+
+    /// Creates a new DocxStagedStamper with the given configuration.
+    ///
+    /// @param configuration the configuration used by both stages.
+    /// @param namespace     the name of the root property reading the shared context in the template.
+    public DocxStagedStamper(OfficeStamperConfiguration configuration, String namespace) {
+        this.namespace = namespace;
+        this.sharedStamper = new DocxStamper(configuration, true);
+        this.recipientStamper = new DocxStamper(configuration);
+    }
+
+    @Override
+    public StagedTemplate compile(InputStream template, Object shared) {
+        var document = ZipEntryPartStore.load(template);
+        sharedStamper.stampDeferring(document, new StagedContext(namespace, shared));
+        var out = new ByteArrayOutputStream();
+        try {
+            new Save(document, new ZipPackageWriter(OutputCompression.STORED, null)).save(out);
+        } catch (Docx4JException e) {
+            throw new OfficeStamperException(e);
+        } finally {
+            sharedStamper.settle();
+        }
+        var compiled = out.toByteArray();
+        return (context, stamped) -> recipientStamper.stamp(ZipEntryPartStore.load(new ByteArrayInputStream(compiled)),
+                context,
+                stamped);
+    }
+}
@@ -1,13 +1,13 @@
 package pro.verron.officestamper.core;
 
 import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.Save;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.docx4j.openpackaging.parts.relationships.Namespaces;
-import org.springframework.expression.spel.SpelParserConfiguration;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
-import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import pro.verron.officestamper.api.*;
+import pro.verron.officestamper.api.EngineSelection.Engine;
+import pro.verron.officestamper.preset.ImageMetadata;
 
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -15,10 +15,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
-import static pro.verron.officestamper.core.Invokers.streamInvokers;
-
 /// The DocxStamper class is an implementation of the [OfficeStamper]
 /// interface that is used to stamp DOCX templates with a context object and
 /// write the result to an output stream.
@@ -32,58 +31,61 @@ public class DocxStamper
 
     private final List<PreProcessor> preprocessors;
     private final List<PostProcessor> postprocessors;
+    private final ExpressionResolver expressionResolver;
     private final PlaceholderReplacer placeholderReplacer;
     private final Function<DocxPart, CommentProcessorRegistry> commentProcessorRegistrySupplier;
+    @Nullable private final Executor imagePreparationExecutor;
+    private final ImageMetadata.Cache imageMetadata;
+    private final OutputCompression outputCompression;
+    @Nullable private final Executor outputExecutor;
+    @Nullable private final EngineSelector engineSelector;
+    private final PropertyPathAnalyzer propertyPathAnalyzer;
 
     /// Creates a new DocxStamper with the given configuration.
     ///
     /// @param configuration the configuration to use for this DocxStamper.
     public DocxStamper(OfficeStamperConfiguration configuration) {
+        this(configuration, false);
+    }
+
+    /// Creates a new DocxStamper with the given configuration, for the first stage of a staged stamping when
+    /// `staging` is set: it then reads the shared namespace of a [StagedContext], and runs no postprocessor, since the
+    /// stamping goes on in a later stage.
+    ///
+    /// @param configuration the configuration to use for this DocxStamper.
+    /// @param staging       whether this DocxStamper stamps the first stage of a staged stamping.
+    DocxStamper(OfficeStamperConfiguration configuration, boolean staging) {
         this(
-                configuration.getLineBreakPlaceholder(),
-                configuration.getEvaluationContextConfigurer(),
-                configuration.getExpressionFunctions(),
-                configuration.customFunctions(),
-                configuration.getResolvers(),
-                configuration.getCommentProcessors(),
+                Expressions.of(configuration,
+                        staging,
+                        replacer -> buildCommentProcessors(configuration.getCommentProcessors(), replacer)),
                 configuration.getPreprocessors(),
-                configuration.getPostprocessors(),
-                configuration.getSpelParserConfiguration(),
-                configuration.getExceptionResolver()
+                staging ? List.of() : configuration.getPostprocessors(),
+                configuration.getExceptionResolver(),
+                configuration.getImagePreparationExecutor(),
+                configuration.getImageMetadataCapacity(),
+                configuration.getOutputCompression(),
+                configuration.getOutputExecutor(),
+                !staging && configuration.isAutomaticEngineSelection() ? new EngineSelector(configuration) : null
         );
     }
 
     private DocxStamper(
-            @NonNull String lineBreakPlaceholder,
-            EvaluationContextConfigurer evaluationContextConfigurer,
-            Map<Class<?>, Object> expressionFunctions,
-            List<CustomFunction> functions,
-            List<ObjectResolver> resolvers,
-            Map<Class<?>, Function<ParagraphPlaceholderReplacer, CommentProcessor>> configurationCommentProcessors,
+            Expressions expressions,
             List<PreProcessor> preprocessors,
             List<PostProcessor> postprocessors,
-            SpelParserConfiguration spelParserConfiguration,
-            ExceptionResolver exceptionResolver
+            ExceptionResolver exceptionResolver,
+            @Nullable Executor imagePreparationExecutor,
+            int imageMetadataCapacity,
+            OutputCompression outputCompression,
+            @Nullable Executor outputExecutor,
+            @Nullable EngineSelector engineSelector
     ) {
-        var expressionParser = new SpelExpressionParser(spelParserConfiguration);
-
-        var evaluationContext = new StandardEvaluationContext();
-        evaluationContextConfigurer.configureEvaluationContext(evaluationContext);
-
-        var expressionResolver = new ExpressionResolver(evaluationContext, expressionParser);
-        var typeResolverRegistry = new ObjectResolverRegistry(resolvers);
-        this.placeholderReplacer = new PlaceholderReplacer(
-                typeResolverRegistry,
-                expressionResolver,
-                Placeholders.raw(lineBreakPlaceholder),
-                exceptionResolver);
-
-        var commentProcessors = buildCommentProcessors(configurationCommentProcessors);
-        evaluationContext.addMethodResolver(new Invokers(streamInvokers(commentProcessors)));
-        evaluationContext.addMethodResolver(new Invokers(streamInvokers(expressionFunctions)));
-        evaluationContext.addMethodResolver(new Invokers(functions.stream()
-                                                                  .map(Invokers::ofCustomFunction)));
-
+        this.propertyPathAnalyzer = new PropertyPathAnalyzer(expressions.parser());
+        var expressionResolver = expressions.resolver();
+        this.expressionResolver = expressionResolver;
+        this.placeholderReplacer = expressions.replacer();
+        var commentProcessors = expressions.processors();
         this.commentProcessorRegistrySupplier = source -> new CommentProcessorRegistry(
                 source,
                 expressionResolver,
@@ -92,10 +94,34 @@ public class DocxStamper
 
         this.preprocessors = new ArrayList<>(preprocessors);
         this.postprocessors = new ArrayList<>(postprocessors);
+        this.imagePreparationExecutor = imagePreparationExecutor;
+        this.imageMetadata = ImageMetadata.Cache.shared(imageMetadataCapacity);
+        this.outputCompression = outputCompression;
+        this.outputExecutor = outputExecutor;
+        this.engineSelector = engineSelector;
     }
 
-    private CommentProcessors buildCommentProcessors(
-            Map<Class<?>, Function<ParagraphPlaceholderReplacer, CommentProcessor>> commentProcessors
+    /// Finds the property paths a template reads from its context, without stamping it, so the context can be built
+    /// with only what the template needs, see [PropertyPathAnalyzer].
+    ///
+    /// @param document the template to analyze.
+    ///
+    /// @return the paths read by each expression of the template.
+    public TemplateRequirements requirements(WordprocessingMLPackage document) {
+        return propertyPathAnalyzer.analyze(document);
+    }
+
+    /// Shares a cache of expression values with other stampers, see [ExpressionResolver#share(ExpressionCache)].
+    ///
+    /// @param cache the shared cache, or null to stop sharing.
+    void share(@Nullable ExpressionCache cache) {
+        expressionResolver.share(cache);
+        if (engineSelector != null) engineSelector.share(cache);
+    }
+
+    private static CommentProcessors buildCommentProcessors(
+            Map<Class<?>, Function<ParagraphPlaceholderReplacer, CommentProcessor>> commentProcessors,
+            PlaceholderReplacer placeholderReplacer
     ) {
         var processors = new HashMap<Class<?>, CommentProcessor>();
         for (var entry : commentProcessors.entrySet()) {
@@ -138,17 +164,92 @@ public class DocxStamper
 
     /// Same as [#stamp(InputStream, Object, OutputStream)] except that you
     /// may pass in a DOCX4J document as a template instead of an InputStream.
+    ///
+    /// When the automatic engine selection is enabled, the templates only holding placeholders are streamed instead.
     @Override
     public void stamp(WordprocessingMLPackage document, Object contextRoot, OutputStream out) {
+        if (engineSelector != null && engineSelector.select(document)
+                                                    .engine() == Engine.STREAMING) {
+            engineSelector.stream(document, contextRoot, out);
+            return;
+        }
         try {
+            process(document, contextRoot);
+            save(document, out);
+        } catch (Docx4JException e) {
+            throw new OfficeStamperException(e);
+        } finally {
+            expressionResolver.forget();
+            placeholderReplacer.summarize();
+        }
+    }
+
+    /// Stamps a document in place with the object model engine, without saving it, for callers assembling the
+    /// stamped content themselves.
+    ///
+    /// The streamed repeats are expanded into the object model, so the document can be saved by any means.
+    ///
+    /// @param document    the template, stamped in place.
+    /// @param contextRoot the context to resolve the expressions against.
+    public void stampInPlace(WordprocessingMLPackage document, Object contextRoot) {
+        try {
+            process(document, contextRoot);
+            StreamedRepeats.expand(document);
+        } finally {
+            expressionResolver.forget();
+            placeholderReplacer.summarize();
+        }
+    }
+
+    /// Stamps a document in place like [#stampInPlace(WordprocessingMLPackage, Object)], but keeps its streamed
+    /// repeats deferred, for callers writing the document with the [ZipPackageWriter] or [StreamedRepeats].
+    ///
+    /// The repeated content is resolved while the document is written, so the caller ends the stamping with
+    /// [#settle()] once it is written, for the summary of the stamping to cover it.
+    ///
+    /// @param document    the template, stamped in place.
+    /// @param contextRoot the context to resolve the expressions against.
+    void stampDeferring(WordprocessingMLPackage document, Object contextRoot) {
+        try {
+            process(document, contextRoot);
+        } catch (RuntimeException | Error e) {
+            settle();
+            throw e;
+        }
+    }
+
+    /// Ends a stamping started by [#stampDeferring(WordprocessingMLPackage, Object)], once its document is written:
+    /// forgets the memoized values, and summarizes the stamping.
+    void settle() {
+        expressionResolver.forget();
+        placeholderReplacer.summarize();
+    }
+
+    /// Saves a stamped document with the [ZipPackageWriter] when it has something to do: copying the parts of a
+    /// template loaded by a [ZipEntryPartStore], applying a compression policy or an output executor, or expanding
+    /// [StreamedRepeats]. Otherwise, docx4j saves it as usual.
+    private void save(WordprocessingMLPackage document, OutputStream out)
+            throws Docx4JException {
+        var writing = document.getSourcePartStore() instanceof ZipEntryPartStore
+                      || outputCompression != OutputCompression.DEFAULT
+                      || outputExecutor != null
+                      || StreamedRepeats.pending(document);
+        if (writing) new Save(document, new ZipPackageWriter(outputCompression, outputExecutor)).save(out);
+        else document.save(out);
+    }
+
+    private void process(WordprocessingMLPackage document, Object contextRoot) {
+        ImageParts.of(document, imageMetadata);
+        try (var images = ImagePreparation.open(document, imagePreparationExecutor)) {
             var source = new TextualDocxPart(document);
             preprocess(document);
             processComments(source, contextRoot);
+            images.assemble();
             replaceExpressions(source, contextRoot);
+            images.assemble();
+            // the postprocessors act on the whole object model, and might save it themselves
+            if (!postprocessors.isEmpty()) StreamedRepeats.expand(document);
             postprocess(document);
-            document.save(out);
-        } catch (Docx4JException e) {
-            throw new OfficeStamperException(e);
         }
     }
 
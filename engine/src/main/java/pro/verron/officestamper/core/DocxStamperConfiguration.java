@@ -3,19 +3,25 @@ package pro.verron.officestamper.core;
 
 import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import pro.verron.officestamper.api.*;
 import pro.verron.officestamper.api.CustomFunction.NeedsBiFunctionImpl;
 import pro.verron.officestamper.api.CustomFunction.NeedsFunctionImpl;
+import pro.verron.officestamper.core.functions.ArityFunction;
 import pro.verron.officestamper.core.functions.BiFunctionBuilder;
 import pro.verron.officestamper.core.functions.FunctionBuilder;
 import pro.verron.officestamper.core.functions.TriFunctionBuilder;
 import pro.verron.officestamper.preset.EvaluationContextConfigurers;
 import pro.verron.officestamper.preset.ExceptionResolvers;
+import pro.verron.officestamper.preset.ExpressionEngines;
+import pro.verron.officestamper.preset.ImageMetadata;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -42,6 +48,15 @@ public class DocxStamperConfiguration
     private String unresolvedExpressionsDefaultValue;
     private SpelParserConfiguration spelParserConfiguration;
     private ExceptionResolver exceptionResolver;
+    private boolean memoizingExpressions;
+    private ExpressionEngine expressionEngine;
+    private boolean lenientPropertyAccess;
+    @Nullable private Executor imagePreparationExecutor;
+    private int imageMetadataCapacity;
+    private OutputCompression outputCompression;
+    @Nullable private Executor outputExecutor;
+    private boolean automaticEngineSelection;
+    private Consumer<EngineSelection> engineSelectionListener;
 
     public DocxStamperConfiguration() {
         commentProcessors = new HashMap<>();
@@ -58,6 +73,15 @@ public class DocxStamperConfiguration
         unresolvedExpressionsDefaultValue = null;
         spelParserConfiguration = new SpelParserConfiguration();
         exceptionResolver = computeExceptionResolver();
+        memoizingExpressions = false;
+        expressionEngine = ExpressionEngines.spel();
+        lenientPropertyAccess = false;
+        imagePreparationExecutor = null;
+        imageMetadataCapacity = ImageMetadata.Cache.DEFAULT_CAPACITY;
+        outputCompression = OutputCompression.DEFAULT;
+        outputExecutor = null;
+        automaticEngineSelection = false;
+        engineSelectionListener = selection -> {};
     }
 
     private ExceptionResolver computeExceptionResolver() {
@@ -262,6 +286,159 @@ public class DocxStamperConfiguration
         return this;
     }
 
+    @Override
+    public boolean isMemoizingExpressions() {
+        return memoizingExpressions;
+    }
+
+    /// Sets whether the values of placeholders are memoized for the current stamping and root object.
+    /// Comment processor calls, and any expression calling a method, a function or a constructor are never memoized.
+    ///
+    /// @param memoizingExpressions true to evaluate repeated placeholders once per root object.
+    ///
+    /// @return the configuration object for chaining.
+    @Override
+    public DocxStamperConfiguration setMemoizingExpressions(boolean memoizingExpressions) {
+        this.memoizingExpressions = memoizingExpressions;
+        return this;
+    }
+
+    @Override
+    public ExpressionEngine getExpressionEngine() {
+        return expressionEngine;
+    }
+
+    /// Sets the engine evaluating the expressions it supports before SpEL.
+    ///
+    /// @param expressionEngine the engine to try before SpEL.
+    ///
+    /// @return the configuration object for chaining.
+    @Override
+    public DocxStamperConfiguration setExpressionEngine(ExpressionEngine expressionEngine) {
+        this.expressionEngine = expressionEngine;
+        return this;
+    }
+
+    @Override
+    public boolean isLenientPropertyAccess() {
+        return lenientPropertyAccess;
+    }
+
+    /// Sets whether missing and null properties are read as a sentinel value instead of throwing, in the placeholders
+    /// made of a single property path.
+    /// Placeholders resolved to the sentinel are reported once per stamping, in a summary.
+    ///
+    /// @param lenientPropertyAccess true to detect missing properties without exceptions.
+    ///
+    /// @return the configuration object for chaining.
+    @Override
+    public DocxStamperConfiguration setLenientPropertyAccess(boolean lenientPropertyAccess) {
+        this.lenientPropertyAccess = lenientPropertyAccess;
+        return this;
+    }
+
+    @Override
+    @Nullable public Executor getImagePreparationExecutor() {
+        return imagePreparationExecutor;
+    }
+
+    /// Sets the executor reading, hashing and probing the images in parallel.
+    /// Their parts are still added to the document on the stamping thread, in resolution order.
+    ///
+    /// @param executor the executor preparing the images, or null to prepare them on the stamping thread.
+    ///
+    /// @return the configuration object for chaining.
+    @Override
+    public DocxStamperConfiguration setImagePreparationExecutor(@Nullable Executor executor) {
+        this.imagePreparationExecutor = executor;
+        return this;
+    }
+
+    @Override
+    public int getImageMetadataCapacity() {
+        return imageMetadataCapacity;
+    }
+
+    /// Sets the number of images whose metadata the stampers created from this configuration keep, in the process-wide
+    /// cache they share.
+    ///
+    /// @param capacity the capacity of the shared image metadata cache, zero disables the cache.
+    ///
+    /// @return the configuration object for chaining.
+    ///
+    /// @throws OfficeStamperException if the capacity is negative.
+    @Override
+    public DocxStamperConfiguration setImageMetadataCapacity(int capacity) {
+        if (capacity < 0) throw new OfficeStamperException("Cache capacity must not be negative, got " + capacity);
+        this.imageMetadataCapacity = capacity;
+        return this;
+    }
+
+    @Override
+    public OutputCompression getOutputCompression() {
+        return outputCompression;
+    }
+
+    /// Sets how the parts of the stamped documents are compressed.
+    ///
+    /// @param compression the compression policy of the output.
+    ///
+    /// @return the configuration object for chaining.
+    @Override
+    public DocxStamperConfiguration setOutputCompression(OutputCompression compression) {
+        this.outputCompression = compression;
+        return this;
+    }
+
+    @Override
+    @Nullable public Executor getOutputExecutor() {
+        return outputExecutor;
+    }
+
+    /// Sets the executor marshalling and compressing the parts in parallel.
+    /// They are still written to the zip stream in the order docx4j saves them.
+    ///
+    /// @param executor the executor writing the parts, or null to write them on the stamping thread.
+    ///
+    /// @return the configuration object for chaining.
+    @Override
+    public DocxStamperConfiguration setOutputExecutor(@Nullable Executor executor) {
+        this.outputExecutor = executor;
+        return this;
+    }
+
+    @Override
+    public boolean isAutomaticEngineSelection() {
+        return automaticEngineSelection;
+    }
+
+    /// Sets whether the templates holding only placeholders are streamed instead of stamped on their object model.
+    ///
+    /// @param automaticEngineSelection true to choose the engine per template.
+    ///
+    /// @return the configuration object for chaining.
+    @Override
+    public DocxStamperConfiguration setAutomaticEngineSelection(boolean automaticEngineSelection) {
+        this.automaticEngineSelection = automaticEngineSelection;
+        return this;
+    }
+
+    @Override
+    public Consumer<EngineSelection> getEngineSelectionListener() {
+        return engineSelectionListener;
+    }
+
+    /// Sets the listener notified of the engine chosen for each stamping.
+    ///
+    /// @param listener the listener of the engine selections.
+    ///
+    /// @return the configuration object for chaining.
+    @Override
+    public DocxStamperConfiguration setEngineSelectionListener(Consumer<EngineSelection> listener) {
+        this.engineSelectionListener = listener;
+        return this;
+    }
+
     @Override
     public Map<Class<?>, Object> getExpressionFunctions() {
         return expressionFunctions;
@@ -329,7 +506,7 @@ public class DocxStamperConfiguration
 
     @Override
     public void addCustomFunction(String name, Supplier<?> implementation) {
-        this.addCustomFunction(new CustomFunction(name, List.of(), args -> implementation.get()));
+        this.addCustomFunction(new CustomFunction(name, List.of(), new ArityFunction.Nullary(implementation)));
     }
 
     public void addCustomFunction(CustomFunction function) {
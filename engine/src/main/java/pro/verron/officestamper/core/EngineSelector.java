@@ -0,0 +1,124 @@
+package pro.verron.officestamper.core;
+
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.EngineSelection;
+import pro.verron.officestamper.api.EngineSelection.Engine;
+import pro.verron.officestamper.api.OfficeStamperConfiguration;
+import pro.verron.officestamper.preset.preprocessors.malformedcomments.RemoveMalformedComments;
+
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/// Chooses the engine stamping a Word template, and streams the templates that only hold placeholders.
+///
+/// A template is analyzed the first time it is stamped, and its selection is kept for the next stampings of a
+/// template with the same main document, headers and footers, bounded to the most recently stamped ones.
+/// The templates are identified by the digest of these parts, see [TemplateIdentity], and the ones without identity
+/// are analyzed each time.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public final class EngineSelector {
+
+    private static final Logger logger = LoggerFactory.getLogger(EngineSelector.class);
+    private static final int CAPACITY = 64;
+
+    private final StreamingDocxStamper streamingStamper;
+    private final Consumer<EngineSelection> listener;
+    @Nullable private final String configurationLimitation;
+    private final Map<String, EngineSelection> selections = Collections.synchronizedMap(new LinkedHashMap<>(16,
+            0.75f,
+            true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, EngineSelection> eldest) {
+            return size() > CAPACITY;
+        }
+    });
+
+    /// Creates a selector for the stampers of the given configuration.
+    ///
+    /// @param configuration the configuration of the stampers.
+    public EngineSelector(OfficeStamperConfiguration configuration) {
+        this.streamingStamper = new StreamingDocxStamper(configuration);
+        this.listener = configuration.getEngineSelectionListener();
+        this.configurationLimitation = limitation(configuration);
+    }
+
+    @Nullable private static String limitation(OfficeStamperConfiguration configuration) {
+        // removing malformed comments has nothing to do on the templates without comments, the only ones streamed
+        if (!configuration.getPreprocessors()
+                          .stream()
+                          .allMatch(RemoveMalformedComments.class::isInstance))
+            return "the configuration has preprocessors";
+        if (!configuration.getPostprocessors()
+                          .isEmpty()) return "the configuration has postprocessors";
+        return null;
+    }
+
+    /// Chooses the engine stamping a template, analyzing it if no template with the same content was analyzed
+    /// before, and notifies the configured listener.
+    ///
+    /// @param document the template to stamp.
+    ///
+    /// @return the selected engine, and the reason for the selection.
+    public EngineSelection select(WordprocessingMLPackage document) {
+        var selection = configurationLimitation != null
+                ? new EngineSelection(Engine.DOM, configurationLimitation, "", false)
+                : lookup(document);
+        logger.debug("Stamping template '{}' with the {} engine, {}{}",
+                selection.template(),
+                selection.engine(),
+                selection.reason(),
+                selection.cached() ? " (cached)" : "");
+        listener.accept(selection);
+        return selection;
+    }
+
+    private EngineSelection lookup(WordprocessingMLPackage document) {
+        if (StreamingDocxStamper.parts(document)
+                                .stream()
+                                .anyMatch(JaxbXmlPart::isUnmarshalled))
+            return analyze(document, "");
+        var identity = TemplateIdentity.of(document, StreamingDocxStamper.parts(document));
+        if (identity.isEmpty()) return analyze(document, "");
+        var template = identity.get();
+        var cached = selections.get(template);
+        if (cached != null) return cached.asCached();
+        var selection = analyze(document, template);
+        selections.put(template, selection);
+        return selection;
+    }
+
+    private EngineSelection analyze(WordprocessingMLPackage document, String template) {
+        return streamingStamper.limitation(document)
+                               .map(reason -> new EngineSelection(Engine.DOM, reason, template, false))
+                               .orElseGet(() -> new EngineSelection(Engine.STREAMING,
+                                       "the template only holds placeholders",
+                                       template,
+                                       false));
+    }
+
+    /// Shares a cache of expression values with other stampers, see [ExpressionResolver#share(ExpressionCache)].
+    ///
+    /// @param cache the shared cache, or null to stop sharing.
+    void share(@Nullable ExpressionCache cache) {
+        streamingStamper.share(cache);
+    }
+
+    /// Stamps a template with the streaming engine.
+    ///
+    /// @param document    the template to stamp.
+    /// @param contextRoot the context root.
+    /// @param out         where the stamped document is written.
+    public void stream(WordprocessingMLPackage document, Object contextRoot, OutputStream out) {
+        streamingStamper.stamp(document, contextRoot, out);
+    }
+}
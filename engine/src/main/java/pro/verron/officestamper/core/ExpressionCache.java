@@ -0,0 +1,72 @@
+package pro.verron.officestamper.core;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/// Keeps the values of the side effect free expressions resolved against one root, for several stampers at once.
+///
+/// The stampers of a document pack share one cache, so an expression used by several templates, like an expensive
+/// computed getter of the context, is evaluated once for the whole pack.
+/// Only the expressions resolved against the root of the cache are kept, not the ones resolved in nested contexts.
+/// A stamper resolving an expression another one is evaluating waits for its value instead of evaluating it again.
+/// Failed evaluations are not kept.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public final class ExpressionCache {
+
+    private final Object root;
+    private final Map<String, CompletableFuture<Object>> values = new ConcurrentHashMap<>();
+
+    /// Creates an empty cache for the expressions resolved against the given root.
+    ///
+    /// @param root the context root shared by the stampers.
+    public ExpressionCache(Object root) {
+        this.root = root;
+    }
+
+    /// Tells whether this cache keeps the values resolved against the given root.
+    ///
+    /// @param contextRoot the current root of a stamper.
+    ///
+    /// @return true if it is the root of this cache.
+    public boolean isFor(@Nullable Object contextRoot) {
+        return contextRoot == root;
+    }
+
+    /// Returns the value kept for an expression, evaluating and keeping it on first use.
+    ///
+    /// @param expression the expression string.
+    /// @param evaluation evaluates the expression against the root of this cache.
+    ///
+    /// @return the value of the expression.
+    @Nullable public Object get(String expression, Supplier<Object> evaluation) {
+        var created = new CompletableFuture<>();
+        var existing = values.putIfAbsent(expression, created);
+        if (existing != null) return await(existing);
+        try {
+            var value = evaluation.get();
+            created.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            values.remove(expression, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Nullable private static Object await(CompletableFuture<Object> value) {
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+}
@@ -1,13 +1,39 @@
 package pro.verron.officestamper.core;
 
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.SpelParseException;
+import org.springframework.expression.spel.ast.*;
+import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.ExpressionEngine;
+import pro.verron.officestamper.api.ExpressionEngine.CompiledExpression;
+import pro.verron.officestamper.api.OfficeStamperException;
 import pro.verron.officestamper.api.Placeholder;
+import pro.verron.officestamper.preset.ExpressionEngines;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Resolves expressions against a given context object. Expressions can be either SpEL expressions or simple property
  * expressions.
+ * <p>
+ * Parsed expressions are kept by expression string, so a placeholder repeated over the document is parsed only once,
+ * and can be compiled when the parser is configured to.
+ * The expressions supported by the configured {@link ExpressionEngine} are evaluated by the engine instead, and only
+ * parsed by SpEL when the engine falls back to it.
+ * <p>
+ * When memoization is on, {@link #resolveMemoized(Placeholder)} also keeps the values of the side effect free
+ * expressions, until the root object changes or {@link #forget()} is called.
+ * The values resolved against the root of a shared {@link ExpressionCache} are kept in that cache instead.
  *
  * @author Joseph Verron
  * @author Tom Hombergs
@@ -18,20 +44,211 @@ public class ExpressionResolver {
 
     private final ExpressionParser parser;
     private final StandardEvaluationContext evaluationContext;
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<>();
+    private final ExpressionEngine engine;
+    private final Map<String, Optional<CompiledExpression>> compiled = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> memoizables = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> roots = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> propertyPaths = new ConcurrentHashMap<>();
+    @Nullable private final EvaluationContext lenientContext;
+    private final boolean memoizing;
+    private final Map<String, Object> memo = new HashMap<>();
+    @Nullable private Object memoRoot;
+    @Nullable private ExpressionCache cache;
 
     /**
      * Creates a new ExpressionResolver with the given SpEL parser configuration.
      *
      * @param standardEvaluationContext a {@link StandardEvaluationContext} object
+     * @param expressionParser          the parser of the expressions
      */
     public ExpressionResolver(
             StandardEvaluationContext standardEvaluationContext,
             ExpressionParser expressionParser
+    ) {
+        this(standardEvaluationContext, expressionParser, false);
+    }
+
+    /**
+     * Creates a new ExpressionResolver with the given SpEL parser configuration.
+     *
+     * @param standardEvaluationContext a {@link StandardEvaluationContext} object
+     * @param expressionParser          the parser of the expressions
+     * @param memoizing                 whether values of side effect free expressions are kept for the current root
+     */
+    public ExpressionResolver(
+            StandardEvaluationContext standardEvaluationContext,
+            ExpressionParser expressionParser,
+            boolean memoizing
+    ) {
+        this(standardEvaluationContext, expressionParser, memoizing, ExpressionEngines.spel());
+    }
+
+    /**
+     * Creates a new ExpressionResolver trying the given engine before SpEL.
+     *
+     * @param standardEvaluationContext a {@link StandardEvaluationContext} object
+     * @param expressionParser          the parser of the expressions the engine does not support
+     * @param memoizing                 whether values of side effect free expressions are kept for the current root
+     * @param engine                    the engine compiling the expressions it supports
+     */
+    public ExpressionResolver(
+            StandardEvaluationContext standardEvaluationContext,
+            ExpressionParser expressionParser,
+            boolean memoizing,
+            ExpressionEngine engine
+    ) {
+        this(standardEvaluationContext, expressionParser, memoizing, engine, false);
+    }
+
+    /**
+     * Creates a new ExpressionResolver trying the given engine before SpEL, and reading missing properties leniently
+     * when asked to.
+     * <p>
+     * With lenient property access, an expression made of a single property path, like {@code customer.name},
+     * evaluates to a {@link pro.verron.officestamper.preset.MissingPropertyAccessor.Missing} sentinel when one of its
+     * properties cannot be read, instead of throwing.
+     * Any other expression throws as usual, so the sentinel never flows into operators, conditions or method
+     * arguments.
+     *
+     * @param standardEvaluationContext a {@link StandardEvaluationContext} object
+     * @param expressionParser          the parser of the expressions the engine does not support
+     * @param memoizing                 whether values of side effect free expressions are kept for the current root
+     * @param engine                    the engine compiling the expressions it supports
+     * @param lenient                   whether property paths read missing properties as a sentinel
+     */
+    public ExpressionResolver(
+            StandardEvaluationContext standardEvaluationContext,
+            ExpressionParser expressionParser,
+            boolean memoizing,
+            ExpressionEngine engine,
+            boolean lenient
     ) {
         this.parser = expressionParser;
         this.evaluationContext = standardEvaluationContext;
+        this.memoizing = memoizing;
+        this.engine = engine;
+        this.lenientContext = lenient ? new LenientEvaluationContext(standardEvaluationContext) : null;
+    }
+
+    private static boolean isSideEffectFree(Expression expression) {
+        return expression instanceof SpelExpression spelExpression && isSideEffectFree(spelExpression.getAST());
+    }
+
+    private static boolean isSideEffectFree(SpelNode node) {
+        if (node instanceof MethodReference
+            || node instanceof FunctionReference
+            || node instanceof ConstructorReference
+            || node instanceof BeanReference
+            || node instanceof Assign
+            || node instanceof OpInc
+            || node instanceof OpDec) return false;
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (!isSideEffectFree(node.getChild(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether an expression only reads a chain of properties, like {@code customer.address.city}.
+     */
+    private static boolean isPropertyPath(Expression expression) {
+        if (!(expression instanceof SpelExpression spelExpression)) return false;
+        var node = spelExpression.getAST();
+        if (node instanceof PropertyOrFieldReference) return true;
+        if (!(node instanceof CompoundExpression)) return false;
+        for (int i = 0; i < node.getChildCount(); i++)
+            if (!(node.getChild(i) instanceof PropertyOrFieldReference)) return false;
+        return true;
+    }
+
+    /**
+     * Lists what an expression reads from its root: the names of the root properties it reads, and "#" when it reads
+     * variables, functions or the root itself.
+     * The methods called on the root, like the comment processors, are not listed, but their arguments are.
+     */
+    private static Set<String> rootReferences(Expression expression) {
+        var references = new HashSet<String>();
+        if (expression instanceof SpelExpression spelExpression) collectRoots(spelExpression.getAST(), references);
+        else references.add("#");
+        return references;
+    }
+
+    private static void collectRoots(SpelNode node, Set<String> references) {
+        if (node instanceof PropertyOrFieldReference reference) references.add(reference.getName());
+        else if (node instanceof CompoundExpression) {
+            collectRoots(node.getChild(0), references);
+            for (int i = 1; i < node.getChildCount(); i++)
+                collectArguments(node.getChild(i), references);
+        }
+        else if (node instanceof VariableReference
+                 || node instanceof FunctionReference
+                 || node instanceof Indexer
+                 || node instanceof Selection
+                 || node instanceof Projection) references.add("#");
+        else collectArguments(node, references);
+    }
+
+    /**
+     * The children of a node read from the root, except for selections and projections reading their elements.
+     */
+    private static void collectArguments(SpelNode node, Set<String> references) {
+        if (node instanceof Selection || node instanceof Projection) return;
+        for (int i = 0; i < node.getChildCount(); i++)
+            collectRoots(node.getChild(i), references);
     }
 
+    /**
+     * Tells whether a placeholder must be left for a later stage, when resolved against the root of the first stage
+     * of a staged stamping: only the expressions reading nothing but the shared namespace from the root are resolved.
+     * <p>
+     * Expressions that cannot be parsed are left for the later stage too, to be reported there.
+     * Expressions mixing the namespace with other reads from the root are rejected, since the later stage has no
+     * access to the shared context.
+     *
+     * @param context     the context root the placeholder would be resolved against.
+     * @param placeholder the placeholder to resolve.
+     *
+     * @return true if the context is a {@link StagedContext} and the placeholder reads more than its namespace.
+     *
+     * @throws OfficeStamperException if the placeholder reads both the namespace and other properties of the root.
+     */
+    public boolean isDeferred(Object context, Placeholder placeholder) {
+        if (!(context instanceof StagedContext staged)) return false;
+        Set<String> references;
+        try {
+            references = roots.computeIfAbsent(placeholder.content(), key -> rootReferences(parse(key)));
+        } catch (SpelParseException e) {
+            return true;
+        }
+        var namespace = staged.namespace();
+        if (references.equals(Set.of(namespace))) return false;
+        if (references.contains(namespace)) {
+            var message = "Expression %s reads both the shared namespace '%s' and the recipient context, "
+                          + "which staged stamping cannot resolve";
+            throw new OfficeStamperException(message.formatted(placeholder.expression(), namespace));
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether a placeholder calls one of the given methods on the root, like the comment processors.
+     * <p>
+     * Expressions that cannot be parsed call nothing, they are reported when resolved.
+     *
+     * @param placeholder the placeholder to check.
+     * @param methods     the names of the methods.
+     *
+     * @return true if the whole expression is a call to one of the methods.
+     */
+    public boolean isCallTo(Placeholder placeholder, Set<String> methods) {
+        try {
+            return parse(placeholder.content()) instanceof SpelExpression spel
+                   && spel.getAST() instanceof MethodReference method && methods.contains(method.getName());
+        } catch (SpelParseException e) {
+            return false;
+        }
+    }
 
     /**
      * Resolves the content of a placeholder by evaluating the expression against the evaluation context.
@@ -41,17 +258,107 @@ public class ExpressionResolver {
      * @return the resolved value of the placeholder
      */
     @Nullable public Object resolve(Placeholder placeholder) {
+        return evaluate(placeholder.content());
+    }
+
+    /**
+     * Evaluates an expression with the engine when it supports it, and with SpEL otherwise.
+     */
+    @Nullable private Object evaluate(String expressionString) {
+        var context = contextFor(expressionString);
+        var expression = compiled.computeIfAbsent(expressionString, engine::compile);
+        if (expression.isEmpty()) return parse(expressionString).getValue(context);
+        return expression.get()
+                         .evaluate(context, () -> parse(expressionString).getValue(context));
+    }
+
+    /**
+     * Selects the lenient context for the property paths when lenient property access is on, and the evaluation
+     * context otherwise.
+     * Expressions that cannot be parsed are evaluated against the evaluation context, to be reported as usual.
+     */
+    private EvaluationContext contextFor(String expressionString) {
+        var lenient = lenientContext;
+        if (lenient == null) return evaluationContext;
+        try {
+            var path = propertyPaths.computeIfAbsent(expressionString, key -> isPropertyPath(parse(key)));
+            return path ? lenient : evaluationContext;
+        } catch (SpelParseException e) {
+            return evaluationContext;
+        }
+    }
+
+    /**
+     * Resolves the content of a placeholder, reusing the value of an earlier resolution of the same expression against
+     * the same root, when memoization is on.
+     * <p>
+     * Expressions calling methods, functions or constructors, or assigning values, are always evaluated, since they
+     * might have side effects.
+     * Failed evaluations are not kept.
+     *
+     * @param placeholder the placeholder to resolve
+     *
+     * @return the resolved value of the placeholder
+     */
+    @Nullable public Object resolveMemoized(Placeholder placeholder) {
         var expressionString = placeholder.content();
-        var expression = parser.parseExpression(expressionString);
-        return expression.getValue(evaluationContext);
+        var sharedCache = cache;
+        if (sharedCache != null && sharedCache.isFor(memoRoot)) {
+            if (!isMemoizable(expressionString)) return evaluate(expressionString);
+            return sharedCache.get(expressionString, () -> evaluate(expressionString));
+        }
+        if (!memoizing) return resolve(placeholder);
+        if (memo.containsKey(expressionString)) return memo.get(expressionString);
+        var value = evaluate(expressionString);
+        if (isMemoizable(expressionString)) memo.put(expressionString, value);
+        return value;
+    }
+
+    /**
+     * Tells whether an expression is free of side effects, from its compiled form when the engine supports it, and
+     * from its SpEL syntax tree otherwise.
+     */
+    private boolean isMemoizable(String expressionString) {
+        return memoizables.computeIfAbsent(expressionString,
+                key -> compiled.computeIfAbsent(key, engine::compile)
+                               .map(CompiledExpression::isSideEffectFree)
+                               .filter(Boolean::booleanValue)
+                               .orElseGet(() -> isSideEffectFree(parse(key))));
+    }
+
+    /**
+     * Shares a cache with other resolvers: the side effect free expressions resolved against its root are then read
+     * from it, whether memoization is on or not.
+     *
+     * @param cache the shared cache, or null to stop sharing.
+     */
+    public void share(@Nullable ExpressionCache cache) {
+        this.cache = cache;
+    }
+
+    private Expression parse(String expressionString) {
+        return expressions.computeIfAbsent(expressionString, parser::parseExpression);
     }
 
     /**
      * Sets the context object against which expressions will be resolved.
+     * Memoized values are forgotten when the root changes.
      *
      * @param contextRoot the context object to set as the root.
      */
     public void setContext(Object contextRoot) {
+        if (contextRoot != memoRoot) {
+            memo.clear();
+            memoRoot = contextRoot;
+        }
         evaluationContext.setRootObject(contextRoot);
     }
+
+    /**
+     * Forgets all memoized values, for example, at the end of a stamping.
+     */
+    public void forget() {
+        memo.clear();
+        memoRoot = null;
+    }
 }
@@ -0,0 +1,84 @@
+package pro.verron.officestamper.core;
+
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import pro.verron.officestamper.api.OfficeStamperConfiguration;
+import pro.verron.officestamper.preset.LazyContextAccessor;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.function.Function;
+
+import static pro.verron.officestamper.core.Invokers.streamInvokers;
+
+/// The evaluation of the expressions of a configuration, built the same way for the object model stamper and for
+/// the streaming one, so both resolve an expression alike.
+///
+/// The evaluation context reads the [pro.verron.officestamper.preset.LazyContext] values before the configured
+/// accessors, and calls the comment processors, then the expression functions, then the custom functions.
+///
+/// @param parser     the parser of the expressions.
+/// @param resolver   the resolver of the expressions.
+/// @param replacer   the replacer of the placeholders.
+/// @param processors the comment processors, whose methods the expressions can call.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+record Expressions(
+        SpelExpressionParser parser,
+        ExpressionResolver resolver,
+        PlaceholderReplacer replacer,
+        CommentProcessors processors
+) {
+
+    /// Builds the evaluation of the expressions of a configuration, without comment processors.
+    ///
+    /// @param configuration the configuration of the stamper.
+    ///
+    /// @return the evaluation of the expressions.
+    static Expressions of(OfficeStamperConfiguration configuration) {
+        return of(configuration, false, replacer -> new CommentProcessors(Map.of()));
+    }
+
+    /// Builds the evaluation of the expressions of a configuration.
+    ///
+    /// @param configuration the configuration of the stamper.
+    /// @param staging       whether the expressions read the shared namespace of a [StagedContext].
+    /// @param processors    creates the comment processors, from the replacer of the placeholders.
+    ///
+    /// @return the evaluation of the expressions.
+    static Expressions of(
+            OfficeStamperConfiguration configuration,
+            boolean staging,
+            Function<PlaceholderReplacer, CommentProcessors> processors
+    ) {
+        var parser = new SpelExpressionParser(configuration.getSpelParserConfiguration());
+
+        var context = new StandardEvaluationContext();
+        configuration.getEvaluationContextConfigurer()
+                     .configureEvaluationContext(context);
+        var accessors = new ArrayList<>(context.getPropertyAccessors());
+        accessors.addFirst(new LazyContextAccessor());
+        if (staging) accessors.addFirst(new StagedContext.Accessor());
+        context.setPropertyAccessors(accessors);
+
+        var resolver = new ExpressionResolver(context,
+                parser,
+                configuration.isMemoizingExpressions(),
+                configuration.getExpressionEngine(),
+                configuration.isLenientPropertyAccess());
+        var replacer = new PlaceholderReplacer(new ObjectResolverRegistry(configuration.getResolvers()),
+                resolver,
+                Placeholders.raw(configuration.getLineBreakPlaceholder()),
+                configuration.getExceptionResolver());
+
+        var commentProcessors = processors.apply(replacer);
+        context.addMethodResolver(new Invokers(streamInvokers(commentProcessors)));
+        context.addMethodResolver(new Invokers(streamInvokers(configuration.getExpressionFunctions())));
+        context.addMethodResolver(new Invokers(configuration.customFunctions()
+                                                            .stream()
+                                                            .map(Invokers::ofCustomFunction)));
+        return new Expressions(parser, resolver, replacer, commentProcessors);
+    }
+}
@@ -0,0 +1,247 @@
+package pro.verron.officestamper.core;
+
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.docx4j.openpackaging.exceptions.InvalidFormatException;
+import org.docx4j.openpackaging.exceptions.PartUnrecognisedException;
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.docx4j.openpackaging.parts.relationships.RelationshipsPart.AddPartBehaviour;
+import org.docx4j.relationships.Relationship;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.preset.ImageMetadata;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/// Keeps track of the image parts added to a document, by content, so that an image inserted many times is stored
+/// once.
+///
+/// The registry of a document is kept in the document user data, and lives as long as the document.
+/// When the same image is inserted from another source part, a new relationship is added from that part to the
+/// existing image part, and returned with it, so the drawings of each part reference their own relationship.
+///
+/// New image parts are created from the shared [ImageMetadata.Cache] when the content was already probed, so docx4j
+/// skips the detection of its format and size.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public final class ImageParts {
+
+    private static final String USER_DATA_KEY = ImageParts.class.getName();
+
+    private final OpcPackage document;
+    private final ImageMetadata.Cache metadata;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private ImageParts(OpcPackage document, ImageMetadata.Cache metadata) {
+        this.document = document;
+        this.metadata = metadata;
+    }
+
+    /// Retrieves the registry of image parts of the given document, creating it when needed, with the shared cache of
+    /// image metadata of the default capacity.
+    ///
+    /// @param document the document holding the image parts.
+    ///
+    /// @return the registry of image parts of the document.
+    public static ImageParts of(OpcPackage document) {
+        synchronized (document) {
+            if (document.getUserData(USER_DATA_KEY) instanceof ImageParts imageParts) return imageParts;
+            return of(document, ImageMetadata.Cache.shared(ImageMetadata.Cache.DEFAULT_CAPACITY));
+        }
+    }
+
+    /// Retrieves the registry of image parts of the given document, creating it when needed with the given cache of
+    /// image metadata, for example, the shared one of the capacity configured for the stamper.
+    ///
+    /// @param document the document holding the image parts.
+    /// @param metadata the cache of image metadata, used when the registry is created.
+    ///
+    /// @return the registry of image parts of the document.
+    public static ImageParts of(OpcPackage document, ImageMetadata.Cache metadata) {
+        synchronized (document) {
+            if (document.getUserData(USER_DATA_KEY) instanceof ImageParts imageParts) return imageParts;
+            var imageParts = new ImageParts(document, metadata);
+            document.setUserData(USER_DATA_KEY, imageParts);
+            return imageParts;
+        }
+    }
+
+    /// Returns the cache of image metadata the parts of this registry are created from.
+    ///
+    /// @return the cache of image metadata.
+    public ImageMetadata.Cache metadata() {
+        return metadata;
+    }
+
+    /// Finds or creates the image part holding the given content, related to the given source part.
+    ///
+    /// @param source the part in which the image is displayed.
+    /// @param digest the hash of the image content.
+    /// @param bytes  the image content.
+    ///
+    /// @return the image part holding the content, with its relationship from the source part.
+    ///
+    /// @throws OfficeStamperException if the image part or its relationship cannot be created.
+    public Related imagePart(Part source, String digest, byte[] bytes) {
+        return imagePart(source, digest, ByteBuffer.wrap(bytes));
+    }
+
+    /// Finds or creates the image part holding the remaining content of the given buffer, related to the given
+    /// source part.
+    ///
+    /// The buffer is kept as the data of the image part, so a memory-mapped file is written to the output without
+    /// being copied on the heap first, unless docx4j needs to probe it.
+    ///
+    /// @param source  the part in which the image is displayed.
+    /// @param digest  the hash of the image content.
+    /// @param content the image content.
+    ///
+    /// @return the image part holding the content, with its relationship from the source part.
+    ///
+    /// @throws OfficeStamperException if the image part or its relationship cannot be created.
+    public synchronized Related imagePart(Part source, String digest, ByteBuffer content) {
+        try {
+            var entry = entries.get(digest);
+            if (entry == null) {
+                var image = createImagePart(source, digest, content);
+                return register(source, digest, image);
+            }
+            var image = entry.image();
+            // a part transferred from another document is not probed until an inline drawing is computed from it
+            if (imageInfo(image) == null) setImageInfo(image, metadata.probe(digest, content)
+                                                                      .toImageInfo());
+            return relate(source, entry);
+        } catch (Exception e) {
+            throw new OfficeStamperException("Failed to create an ImagePart", e);
+        }
+    }
+
+    /// Finds or creates the image part holding the remaining content of the given buffer, transferred from another
+    /// document.
+    ///
+    /// The content type of the original part is kept, and the content is not probed, since the drawings
+    /// referencing a transferred part keep their own extents.
+    ///
+    /// @param source      the part in which the image is displayed.
+    /// @param digest      the hash of the image content.
+    /// @param content     the image content.
+    /// @param contentType the content type of the original image part.
+    ///
+    /// @return the image part holding the content, with its relationship from the source part.
+    ///
+    /// @throws OfficeStamperException if the image part or its relationship cannot be created.
+    public synchronized Related imagePart(
+            Part source,
+            String digest,
+            ByteBuffer content,
+            String contentType
+    ) {
+        try {
+            var entry = entries.get(digest);
+            if (entry != null) return relate(source, entry);
+            var extension = contentType.substring(contentType.indexOf('/') + 1);
+            var image = newImagePart(source, content, contentType, extension);
+            var cached = metadata.get(digest);
+            if (cached != null) setImageInfo(image, cached.toImageInfo());
+            return register(source, digest, image);
+        } catch (Exception e) {
+            throw new OfficeStamperException("Failed to create an ImagePart", e);
+        }
+    }
+
+    private Related register(Part source, String digest, BinaryPartAbstractImage image) {
+        var entry = new Entry(image, new IdentityHashMap<>());
+        var relationship = image.getRelLast();
+        entry.relationships()
+             .put(source, relationship);
+        entries.put(digest, entry);
+        return new Related(image, relationship);
+    }
+
+    private Related relate(Part source, Entry entry)
+            throws InvalidFormatException {
+        var image = entry.image();
+        var relationship = entry.relationships()
+                                .get(source);
+        if (relationship == null) {
+            relationship = source.addTargetPart(image, AddPartBehaviour.REUSE_EXISTING);
+            entry.relationships()
+                 .put(source, relationship);
+        }
+        return new Related(image, relationship);
+    }
+
+    private BinaryPartAbstractImage createImagePart(Part source, String digest, ByteBuffer content)
+            throws Exception {
+        var cached = metadata.get(digest);
+        if (cached != null) {
+            var image = newImagePart(source, content, cached.contentType(), cached.extension());
+            setImageInfo(image, cached.toImageInfo());
+            return image;
+        }
+        var image = BinaryPartAbstractImage.createImagePart(document, source, toBytes(content));
+        // docx4j converts the formats Word cannot display, the probed metadata do not describe these bytes then
+        if (content.equals(image.getBuffer()
+                                .duplicate()
+                                .rewind())) {
+            metadata.put(digest, ImageMetadata.of(imageInfo(image)));
+            if (!content.hasArray()) image.setBinaryData(content.slice());
+        }
+        return image;
+    }
+
+    /// Creates an image part of the given content type holding the remaining content of the given buffer, related
+    /// from the given source part, as docx4j does, without probing the content.
+    private BinaryPartAbstractImage newImagePart(Part source, ByteBuffer content, String contentType, String extension)
+            throws InvalidFormatException, PartUnrecognisedException {
+        var relationshipId = source.getRelationshipsPart(true)
+                                   .getNextId();
+        var name = BinaryPartAbstractImage.createImageName(document, source, relationshipId, extension);
+        var part = document.getContentTypeManager()
+                           .newPartForContentType(contentType, name, null);
+        if (!(part instanceof BinaryPartAbstractImage image))
+            throw new OfficeStamperException("Unsupported image content type " + contentType);
+        image.setBinaryData(content.slice());
+        image.getRels()
+             .add(source.addTargetPart(image, relationshipId));
+        return image;
+    }
+
+    /// Reads the image info docx4j computes the inline drawings from.
+    ///
+    /// docx4j deprecates its accessors without replacing them, while the drawings still need the info.
+    @SuppressWarnings("deprecation")
+    @Nullable private static ImageInfo imageInfo(BinaryPartAbstractImage image) {
+        return image.getImageInfo();
+    }
+
+    /// Sets the image info docx4j computes the inline drawings from, see [#imageInfo(BinaryPartAbstractImage)].
+    @SuppressWarnings("deprecation")
+    private static void setImageInfo(BinaryPartAbstractImage image, ImageInfo info) {
+        image.setImageInfo(info);
+    }
+
+    private static byte[] toBytes(ByteBuffer content) {
+        if (content.hasArray() && content.arrayOffset() == 0 && content.position() == 0
+            && content.remaining() == content.array().length) return content.array();
+        var bytes = new byte[content.remaining()];
+        content.duplicate()
+               .get(bytes);
+        return bytes;
+    }
+
+    /// An image part, with its relationship from the part displaying it.
+    ///
+    /// @param image        the image part.
+    /// @param relationship the relationship from the displaying part to the image part, to reference from the
+    ///                     drawings of that part.
+    public record Related(BinaryPartAbstractImage image, Relationship relationship) {}
+
+    private record Entry(BinaryPartAbstractImage image, Map<Part, Relationship> relationships) {}
+}
@@ -0,0 +1,123 @@
+package pro.verron.officestamper.core;
+
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.wml.R;
+import org.jvnet.jaxb2_commons.ppp.Child;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.DocxPart;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.preset.Image;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/// Prepares the images of a document in parallel, before adding their parts to the document.
+///
+/// While a preparation is open on a document, the images resolved in it are read, hashed and probed on the
+/// configured executor, and an empty run is inserted in their place.
+/// Each call to [#assemble()] waits for the pending images, creates their parts and fills their runs, on the
+/// calling thread and in resolution order, so the document gets the same parts and relationships as when the
+/// images are inserted one after another.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public final class ImagePreparation
+        implements AutoCloseable {
+
+    private static final String USER_DATA_KEY = ImagePreparation.class.getName();
+
+    private final OpcPackage document;
+    @Nullable private final Executor executor;
+    private final List<Pending> pendings = new ArrayList<>();
+
+    private ImagePreparation(OpcPackage document, @Nullable Executor executor) {
+        this.document = document;
+        this.executor = executor;
+    }
+
+    /// Opens a preparation of the images of the given document.
+    ///
+    /// @param document the document in which the images are inserted.
+    /// @param executor the executor preparing the images, or null to insert each image as soon as it is resolved.
+    ///
+    /// @return the preparation, to assemble and close once the document is stamped.
+    public static ImagePreparation open(OpcPackage document, @Nullable Executor executor) {
+        var preparation = new ImagePreparation(document, executor);
+        if (executor != null) document.setUserData(USER_DATA_KEY, preparation);
+        return preparation;
+    }
+
+    /// Creates the run displaying an image, deferring its preparation when a preparation is open on the document.
+    ///
+    /// @param part         the document part where the image will be inserted.
+    /// @param image        the image to insert.
+    /// @param filenameHint a hint for the filename to be used.
+    /// @param altText      alternative text for the image.
+    ///
+    /// @return the run containing the image, or an empty run filled at the next assembly.
+    public static R newRun(DocxPart part, Image image, String filenameHint, String altText) {
+        if (part.document()
+                .getUserData(USER_DATA_KEY) instanceof ImagePreparation preparation && preparation.executor != null)
+            return preparation.defer(part, image, filenameHint, altText);
+        return image.newRun(part, filenameHint, altText);
+    }
+
+    private synchronized R defer(DocxPart part, Image image, String filenameHint, String altText) {
+        var run = new R();
+        var metadata = ImageParts.of(document)
+                                 .metadata();
+        var future = CompletableFuture.runAsync(() -> image.prepare(metadata), executor);
+        pendings.add(new Pending(part, image, filenameHint, altText, run, future));
+        return run;
+    }
+
+    /// Waits for the pending images, then adds their parts to the document and fills their runs.
+    ///
+    /// @throws OfficeStamperException if an image could not be prepared or inserted.
+    public synchronized void assemble() {
+        try {
+            for (var pending : pendings) pending.assemble();
+        } finally {
+            pendings.clear();
+        }
+    }
+
+    /// Closes the preparation, the images resolved afterward are inserted as soon as they are resolved.
+    ///
+    /// The images still pending are dropped, [#assemble()] is expected to be called before.
+    @Override
+    public void close() {
+        document.setUserData(USER_DATA_KEY, null);
+        pendings.forEach(pending -> pending.future()
+                                           .cancel(false));
+        pendings.clear();
+    }
+
+    private record Pending(
+            DocxPart part,
+            Image image,
+            String filenameHint,
+            String altText,
+            R run,
+            CompletableFuture<Void> future
+    ) {
+        private void assemble() {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                throw new OfficeStamperException("Failed to prepare an image", e.getCause());
+            }
+            // the run properties were already set by the placeholder replacement, only the drawing is added
+            var prepared = image.newRun(part, filenameHint, altText);
+            for (var content : prepared.getContent()) {
+                run.getContent()
+                   .add(content);
+                if (content instanceof Child child) child.setParent(run);
+            }
+        }
+    }
+}
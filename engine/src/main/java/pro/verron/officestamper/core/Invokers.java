@@ -8,34 +8,44 @@ import org.springframework.expression.TypedValue;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import pro.verron.officestamper.api.CustomFunction;
+import pro.verron.officestamper.core.functions.ArityFunction;
 
-import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
-import static java.util.Collections.emptyMap;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toMap;
 
 /// Resolves methods used as expression functions or comment processors.
 ///
+/// Resolutions are cached per method name and argument classes, since the same few signatures are resolved again for
+/// every expression of every stamped document.
+///
 /// @author Joseph Verron
 /// @version ${version}
 /// @since 1.6.2
 public class Invokers
         implements MethodResolver {
     private final Map<String, Map<Args, MethodExecutor>> map;
+    private final Map<Signature, Optional<MethodExecutor>> resolutions = new ConcurrentHashMap<>();
 
     public Invokers(Stream<Invoker> invokerStream) {
         map = invokerStream.collect(groupingBy(Invoker::name, toMap(Invoker::args, Invoker::executor)));
     }
 
-    static Stream<Invoker> streamInvokers(Map<Class<?>, ?> interfaces2implementations) {
+    /// Lists the methods of the given interfaces, invoked on their implementations.
+    ///
+    /// @param interfaces2implementations the implementations of each interface.
+    ///
+    /// @return the invokers of all the methods declared by the interfaces.
+    public static Stream<Invoker> streamInvokers(Map<Class<?>, ?> interfaces2implementations) {
         return interfaces2implementations.entrySet()
                                          .stream()
                                          .flatMap(Invokers::streamInvokers);
@@ -49,10 +59,17 @@ public class Invokers
         return stream(key.getDeclaredMethods()).map(method -> new Invoker(obj, method));
     }
 
-    static Invoker ofCustomFunction(CustomFunction cf) {
+    /// Creates the invoker of a custom function.
+    ///
+    /// @param cf the custom function.
+    ///
+    /// @return the invoker calling the function.
+    public static Invoker ofCustomFunction(CustomFunction cf) {
         var cfName = cf.name();
         var cfArgs = new Args(cf.parameterTypes());
-        var cfExecutor = new CustomFunctionExecutor(cf.function());
+        var cfExecutor = cf.function() instanceof ArityFunction arityFunction
+                ? new ArityFunctionExecutor(arityFunction)
+                : new CustomFunctionExecutor(cf.function());
         return new Invoker(cfName, cfArgs, cfExecutor);
     }
 
@@ -63,40 +80,46 @@ public class Invokers
             @NonNull String name,
             @NonNull List<TypeDescriptor> argumentTypes
     ) {
-        var argumentClasses = argumentTypes.stream()
-                                           .map(this::typeDescriptor2Class)
-                                           .toList();
-        return map.getOrDefault(name, emptyMap())
-                  .entrySet()
-                  .stream()
-                  .filter(entry -> entry.getKey()
-                                        .validate(argumentClasses))
-                  .map(Entry::getValue)
-                  .findFirst()
-                  .orElse(null);
+        var candidates = map.get(name);
+        if (candidates == null) return null;
+
+        var argumentClasses = new Class<?>[argumentTypes.size()];
+        for (int i = 0; i < argumentClasses.length; i++)
+            argumentClasses[i] = typeDescriptor2Class(argumentTypes.get(i));
+        var signature = new Signature(name, List.of(argumentClasses));
+        return resolutions.computeIfAbsent(signature, s -> find(candidates, s.argumentClasses()))
+                          .orElse(null);
+    }
+
+    private static Optional<MethodExecutor> find(Map<Args, MethodExecutor> candidates, List<Class<?>> classes) {
+        return candidates.entrySet()
+                         .stream()
+                         .filter(entry -> entry.getKey()
+                                               .validate(classes))
+                         .map(Entry::getValue)
+                         .findFirst();
     }
 
     /// When null, consider it as compatible with any type argument, so return Any.class placeholder
-    private Class typeDescriptor2Class(@Nullable TypeDescriptor typeDescriptor) {
+    private Class<?> typeDescriptor2Class(@Nullable TypeDescriptor typeDescriptor) {
         return typeDescriptor == null ? Any.class : typeDescriptor.getType();
     }
 
     public record Args(List<Class<?>> sourceTypes) {
-        public boolean validate(List<Class> searchedTypes) {
+        public boolean validate(List<? extends Class> searchedTypes) {
             if (searchedTypes.size() != sourceTypes.size()) return false;
-
-            var sourceTypesQ = new ArrayDeque<>(sourceTypes);
-            var searchedTypesQ = new ArrayDeque<>(searchedTypes);
-            var valid = true;
-            while (!sourceTypesQ.isEmpty() && valid) {
-                Class<?> parameterType = sourceTypesQ.remove();
-                Class<?> searchedType = searchedTypesQ.remove();
-                valid = searchedType == Any.class || parameterType.isAssignableFrom(searchedType);
+            for (int i = 0; i < sourceTypes.size(); i++) {
+                Class<?> parameterType = sourceTypes.get(i);
+                Class<?> searchedType = searchedTypes.get(i);
+                if (searchedType != Any.class && !parameterType.isAssignableFrom(searchedType)) return false;
             }
-            return valid;
+            return true;
         }
     }
 
+    /// Key of the resolution cache: the method name and the runtime classes of its arguments.
+    private record Signature(String name, List<Class<?>> argumentClasses) {}
+
     /// Represent a placeholder validating all other classes as possible candidate for validation
     private class Any {}
 
@@ -108,4 +131,13 @@ public class Invokers
             return new TypedValue(function.apply(asList(arguments)));
         }
     }
+
+    private record ArityFunctionExecutor(ArityFunction function)
+            implements MethodExecutor {
+
+        @Override
+        public TypedValue execute(EvaluationContext context, Object target, Object... arguments) {
+            return new TypedValue(function.call(arguments));
+        }
+    }
 }
@@ -0,0 +1,111 @@
+package pro.verron.officestamper.core;
+
+import org.springframework.expression.*;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.preset.MissingPropertyAccessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/// A view of an evaluation context, reading a [MissingPropertyAccessor.Missing] sentinel for the properties none of
+/// its accessors can read.
+///
+/// The [ExpressionResolver] only evaluates the expressions made of a single property path against this view, so the
+/// sentinel is always the value of the whole expression, and never flows into an operator, a condition or the
+/// arguments of a method.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+final class LenientEvaluationContext
+        implements EvaluationContext {
+
+    private final EvaluationContext delegate;
+    private final PropertyAccessor missingAccessor = new MissingPropertyAccessor();
+    @Nullable private List<PropertyAccessor> delegateAccessors;
+    private List<PropertyAccessor> accessors = List.of();
+
+    LenientEvaluationContext(EvaluationContext delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public TypedValue getRootObject() {
+        return delegate.getRootObject();
+    }
+
+    /// Lists the accessors of the delegate, followed by the missing property accessor, kept as long as the accessors
+    /// of the delegate stay the same.
+    @Override
+    public List<PropertyAccessor> getPropertyAccessors() {
+        var current = delegate.getPropertyAccessors();
+        if (current != delegateAccessors) {
+            var list = new ArrayList<>(current);
+            list.add(missingAccessor);
+            accessors = List.copyOf(list);
+            delegateAccessors = current;
+        }
+        return accessors;
+    }
+
+    @Override
+    public List<IndexAccessor> getIndexAccessors() {
+        return delegate.getIndexAccessors();
+    }
+
+    @Override
+    public List<ConstructorResolver> getConstructorResolvers() {
+        return delegate.getConstructorResolvers();
+    }
+
+    @Override
+    public List<MethodResolver> getMethodResolvers() {
+        return delegate.getMethodResolvers();
+    }
+
+    @Override
+    @Nullable public BeanResolver getBeanResolver() {
+        return delegate.getBeanResolver();
+    }
+
+    @Override
+    public TypeLocator getTypeLocator() {
+        return delegate.getTypeLocator();
+    }
+
+    @Override
+    public TypeConverter getTypeConverter() {
+        return delegate.getTypeConverter();
+    }
+
+    @Override
+    public TypeComparator getTypeComparator() {
+        return delegate.getTypeComparator();
+    }
+
+    @Override
+    public OperatorOverloader getOperatorOverloader() {
+        return delegate.getOperatorOverloader();
+    }
+
+    @Override
+    public TypedValue assignVariable(String name, Supplier<TypedValue> valueSupplier) {
+        return delegate.assignVariable(name, valueSupplier);
+    }
+
+    @Override
+    public void setVariable(String name, @Nullable Object value) {
+        delegate.setVariable(name, value);
+    }
+
+    @Override
+    @Nullable public Object lookupVariable(String name) {
+        return delegate.lookupVariable(name);
+    }
+
+    @Override
+    public boolean isAssignmentEnabled() {
+        return delegate.isAssignmentEnabled();
+    }
+}
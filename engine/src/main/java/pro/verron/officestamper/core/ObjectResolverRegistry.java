@@ -2,16 +2,19 @@ package pro.verron.officestamper.core;
 
 import org.docx4j.wml.R;
 import org.springframework.lang.Nullable;
-import pro.verron.officestamper.api.DocxPart;
-import pro.verron.officestamper.api.ObjectResolver;
-import pro.verron.officestamper.api.OfficeStamperException;
-import pro.verron.officestamper.api.Placeholder;
+import pro.verron.officestamper.api.*;
+import pro.verron.officestamper.preset.resolvers.objects.ToStringResolver;
+import pro.verron.officestamper.utils.WmlFactory;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * A registry for object resolvers. It allows registering and resolving object resolvers based on certain criteria.
+ * <p>
+ * For each runtime class, the registry remembers the resolvers that still need to be asked: every
+ * {@link TypeBasedResolver} rejecting the class is skipped, and the search stops at the first one accepting it.
+ * Other resolvers depend on the value itself and are always asked, in order.
  *
  * @author Joseph Verron
  * @version ${version}
@@ -19,6 +22,11 @@ import java.util.List;
  */
 public final class ObjectResolverRegistry {
     private final List<ObjectResolver> resolvers = new ArrayList<>();
+    private final ClassValue<Dispatch> dispatches = new ClassValue<>() {
+        @Override protected Dispatch computeValue(Class<?> type) {
+            return dispatch(type);
+        }
+    };
 
     /**
      * A registry for object resolvers. It allows registering and resolving object resolvers based on certain criteria.
@@ -30,6 +38,10 @@ public final class ObjectResolverRegistry {
         this.resolvers.addAll(resolvers);
     }
 
+    private static boolean isPlain(Class<?> type) {
+        return type == String.class || type == Boolean.class || Number.class.isAssignableFrom(type);
+    }
+
     /**
      * Resolves the expression in the given document with the provided object.
      *
@@ -44,9 +56,34 @@ public final class ObjectResolverRegistry {
             Placeholder placeholder,
             @Nullable Object object
     ) {
-        for (ObjectResolver resolver : resolvers)
+        var candidates = resolvers;
+        if (object != null) {
+            var dispatch = dispatches.get(object.getClass());
+            if (dispatch.plain()) return WmlFactory.newRun(String.valueOf(object));
+            candidates = dispatch.candidates();
+        }
+        for (ObjectResolver resolver : candidates)
             if (resolver.canResolve(object))
                 return resolver.resolve(document, placeholder, object);
         throw new OfficeStamperException("No resolver for %s".formatted(object));
     }
+
+    private Dispatch dispatch(Class<?> type) {
+        var candidates = new ArrayList<ObjectResolver>();
+        for (ObjectResolver resolver : resolvers) {
+            if (!(resolver instanceof TypeBasedResolver typeBasedResolver)) candidates.add(resolver);
+            else if (typeBasedResolver.canResolve(type)) {
+                candidates.add(resolver);
+                break;
+            }
+        }
+        // plain values falling straight to the fallback get written without going through the resolver
+        var plain = isPlain(type)
+                    && candidates.size() == 1
+                    && candidates.getFirst()
+                                  .getClass() == ToStringResolver.class;
+        return new Dispatch(List.copyOf(candidates), plain);
+    }
+
+    private record Dispatch(List<ObjectResolver> candidates, boolean plain) {}
 }
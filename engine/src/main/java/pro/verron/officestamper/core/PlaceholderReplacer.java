@@ -3,11 +3,18 @@ package pro.verron.officestamper.core;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.docx4j.wml.*;
 import org.jvnet.jaxb2_commons.ppp.Child;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelParseException;
 import pro.verron.officestamper.api.*;
+import pro.verron.officestamper.preset.MissingPropertyAccessor.Missing;
 import pro.verron.officestamper.utils.WmlFactory;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 /**
  * Replaces expressions in a document with the values provided by the {@link ExpressionResolver}.
  *
@@ -19,10 +26,13 @@ import pro.verron.officestamper.utils.WmlFactory;
 public class PlaceholderReplacer
         implements ParagraphPlaceholderReplacer {
 
+    private static final Logger logger = LoggerFactory.getLogger(PlaceholderReplacer.class);
+
     private final ExpressionResolver resolver;
     private final ObjectResolverRegistry registry;
     private final Placeholder lineBreakPlaceholder;
     private final ExceptionResolver exceptionResolver;
+    private final Map<String, Integer> missings = new LinkedHashMap<>();
 
     /**
      * <p>Constructor for PlaceholderReplacer.</p>
@@ -70,27 +80,80 @@ public class PlaceholderReplacer
     ) {
         var expressions = Placeholders.findVariables(paragraph);
         for (var expression : expressions) {
+            if (resolver.isDeferred(context, expression)) continue;
             var replacement = resolve(docxPart, context, expression);
             paragraph.replace(expression, replacement);
         }
         paragraph.replace(lineBreakPlaceholder, getBr());
     }
 
-    private R resolve(DocxPart docxPart, Object context, Placeholder placeholder) {
+    /**
+     * Resolves a placeholder against the context, and creates the run replacing it with the configured resolvers.
+     * <p>
+     * Resolution failures and missing properties are handled by the configured {@link ExceptionResolver}.
+     *
+     * @param docxPart    the part in which the placeholder is replaced.
+     * @param context     the context root.
+     * @param placeholder the placeholder to resolve.
+     *
+     * @return the run replacing the placeholder.
+     */
+    public R resolve(DocxPart docxPart, Object context, Placeholder placeholder) {
+        Object resolution;
         try {
             resolver.setContext(context);
-            var resolution = resolver.resolve(placeholder);
+            resolution = resolver.resolveMemoized(placeholder);
+        } catch (SpelEvaluationException
+                 | SpelParseException
+                 | OfficeStamperException e) {
+            return resolveFailure(context, placeholder, e);
+        }
+        // the exception resolver may throw on missing properties, its exception is not resolved again
+        if (resolution instanceof Missing missing) return resolveMissing(placeholder, missing);
+        try {
             return registry.resolve(docxPart, placeholder, resolution);
         } catch (SpelEvaluationException
                  | SpelParseException
                  | OfficeStamperException e) {
-            var message = "Expression %s could not be resolved against context of type %s"
-                    .formatted(placeholder.expression(), context.getClass().getSimpleName());
-            var resolution = exceptionResolver.resolve(placeholder, message, e);
-            return WmlFactory.newRun(resolution);
+            return resolveFailure(context, placeholder, e);
         }
     }
 
+    private R resolveFailure(Object context, Placeholder placeholder, Exception e) {
+        var message = "Expression %s could not be resolved against context of type %s"
+                .formatted(placeholder.expression(), context.getClass().getSimpleName());
+        var resolution = exceptionResolver.resolve(placeholder, message, e);
+        return WmlFactory.newRun(resolution);
+    }
+
+    private R resolveMissing(Placeholder placeholder, Missing missing) {
+        var message = "Expression %s could not be resolved: %s".formatted(placeholder.expression(),
+                missing.message());
+        var replacement = exceptionResolver.resolveMissing(placeholder, message);
+        missings.merge(message, 1, Integer::sum);
+        return WmlFactory.newRun(replacement);
+    }
+
+    /**
+     * Logs, in a single warning, the placeholders left unresolved because of missing properties since the last
+     * summary, then forgets them.
+     */
+    public void summarize() {
+        if (missings.isEmpty()) return;
+        var total = missings.values()
+                            .stream()
+                            .mapToInt(Integer::intValue)
+                            .sum();
+        var details = missings.entrySet()
+                              .stream()
+                              .map(entry -> "%s (x%d)".formatted(entry.getKey(), entry.getValue()))
+                              .collect(Collectors.joining(System.lineSeparator() + "\t",
+                                      System.lineSeparator() + "\t",
+                                      ""));
+        logger.warn("{} placeholder(s) could not be resolved:{}", total, details);
+        missings.clear();
+    }
+
     private static Child getBr() {
         var br = new Br();
         br.setType(STBrType.TEXT_WRAPPING);
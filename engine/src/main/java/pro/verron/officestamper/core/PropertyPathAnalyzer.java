@@ -0,0 +1,299 @@
+package pro.verron.officestamper.core;
+
+import jakarta.xml.bind.JAXBElement;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.docx4j.wml.*;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.ast.*;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.DocxPart;
+import pro.verron.officestamper.api.TemplateRequirements;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.joining;
+
+/// Finds the property paths the expressions of a Word template read from their context, without stamping it.
+///
+/// The placeholders, inline processors and comments of the headers, main document and footers are parsed, and the
+/// property chains of their syntax trees are read as paths, see [TemplateRequirements].
+/// The content repeated by `repeatTableRow`, `repeatParagraph` and `repeatDocPart` is resolved against the elements
+/// of their argument, so its paths are prefixed with the path of that argument, followed by `[]`.
+///
+/// The requirements are kept by [TemplateIdentity], bounded to the most recently analyzed templates; the templates
+/// without identity are analyzed each time.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public final class PropertyPathAnalyzer {
+
+    private static final int CAPACITY = 64;
+    private static final Set<String> REPEATS = Set.of("repeatTableRow", "repeatParagraph", "repeatDocPart");
+
+    private final ExpressionParser parser;
+    private final Map<String, TemplateRequirements> requirements = Collections.synchronizedMap(new LinkedHashMap<>(16,
+            0.75f,
+            true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TemplateRequirements> eldest) {
+            return size() > CAPACITY;
+        }
+    });
+
+    /// Creates an analyzer parsing the expressions with the given parser.
+    ///
+    /// @param parser the parser of the stamper, so the expressions are read like the stamper reads them.
+    public PropertyPathAnalyzer(ExpressionParser parser) {
+        this.parser = parser;
+    }
+
+    /// Finds the property paths a template reads, analyzing it if no template with the same content was analyzed
+    /// before.
+    ///
+    /// @param document the template to analyze.
+    ///
+    /// @return the paths read by each expression of the template.
+    public TemplateRequirements analyze(WordprocessingMLPackage document) {
+        var parts = parts(document);
+        var identified = new ArrayList<Part>();
+        for (var part : parts)
+            identified.add(part.part());
+        // the comments hold the expressions of the comment processors
+        CommentUtil.getCommentsPart(document.getParts())
+                   .ifPresent(identified::add);
+        var identity = TemplateIdentity.of(document, identified);
+        var cached = identity.map(requirements::get)
+                             .orElse(null);
+        if (cached != null) return cached;
+        var analysis = new Analysis(comments(document));
+        for (var part : parts)
+            analysis.walk(part, part.content());
+        var analyzed = analysis.requirements();
+        identity.ifPresent(key -> requirements.put(key, analyzed));
+        return analyzed;
+    }
+
+    private static List<DocxPart> parts(WordprocessingMLPackage document) {
+        var main = new TextualDocxPart(document);
+        return Stream.of(main.streamParts(Namespaces.HEADER), Stream.<DocxPart>of(main),
+                             main.streamParts(Namespaces.FOOTER))
+                     .flatMap(part -> part)
+                     .toList();
+    }
+
+    private static Map<BigInteger, String> comments(WordprocessingMLPackage document) {
+        var source = new TextualDocxPart(document);
+        var comments = new HashMap<BigInteger, String>();
+        CommentUtil.getCommentsPart(document.getParts())
+                   .map(CommentUtil::extractContent)
+                   .map(Comments::getComment)
+                   .orElse(List.of())
+                   .forEach(comment -> comments.put(comment.getId(),
+                           comment.getContent()
+                                  .stream()
+                                  .filter(P.class::isInstance)
+                                  .map(p -> StandardParagraph.from(source, (P) p)
+                                                             .asString())
+                                  .collect(joining())));
+        return comments;
+    }
+
+    private static String join(String prefix, String name) {
+        return prefix.isEmpty() ? name : prefix + "." + name;
+    }
+
+    /// Collects the paths read by an expression node, evaluated against the element at the given prefix.
+    private static void collect(SpelNode node, String prefix, Set<String> paths) {
+        if (node instanceof PropertyOrFieldReference reference) paths.add(join(prefix, reference.getName()));
+        else if (node instanceof CompoundExpression) collectChain(node, prefix, paths);
+        else if (node instanceof Selection || node instanceof Projection) collectChildren(node, prefix + "[]", paths);
+        else if (node instanceof Indexer) {
+            paths.add(prefix + "[]");
+            collectChildren(node, prefix, paths);
+        }
+        else collectChildren(node, prefix, paths);
+    }
+
+    private static void collectChildren(SpelNode node, String prefix, Set<String> paths) {
+        for (int i = 0; i < node.getChildCount(); i++)
+            collect(node.getChild(i), prefix, paths);
+    }
+
+    /// Follows a chain like `a.b[0].c.m(x)`, reading `a.b[].c` and the paths of the arguments `x`.
+    private static void collectChain(SpelNode chain, String prefix, Set<String> paths) {
+        String current = prefix;
+        for (int i = 0; i < chain.getChildCount(); i++) {
+            var child = chain.getChild(i);
+            if (current != null && child instanceof PropertyOrFieldReference reference)
+                current = join(current, reference.getName());
+            else if (current != null && child instanceof Indexer) {
+                current = current + "[]";
+                collectChildren(child, prefix, paths);
+            }
+            else if (current != null && (child instanceof Selection || child instanceof Projection)) {
+                collectChildren(child, current + "[]", paths);
+                if (!current.equals(prefix)) paths.add(current);
+                current = null;
+            }
+            else {
+                // methods, functions, variables and literals: the chain cannot be followed further
+                if (current != null && !current.equals(prefix)) paths.add(current);
+                current = null;
+                collectChildren(child, prefix, paths);
+            }
+        }
+        if (current != null && !current.equals(prefix)) paths.add(current);
+    }
+
+    private record Scope(BigInteger comment, String prefix) {}
+
+    /// The state of the analysis of one template.
+    private final class Analysis {
+        private final Map<BigInteger, String> comments;
+        private final Map<String, SortedSet<String>> expressions = new LinkedHashMap<>();
+        private final List<Scope> scopes = new ArrayList<>();
+        private final Set<BigInteger> seen = new HashSet<>();
+        private final Set<BigInteger> rowScoped = new HashSet<>();
+
+        Analysis(Map<BigInteger, String> comments) {
+            this.comments = comments;
+        }
+
+        TemplateRequirements requirements() {
+            var immutable = new LinkedHashMap<String, SortedSet<String>>();
+            expressions.forEach((expression, paths) -> immutable.put(expression,
+                    Collections.unmodifiableSortedSet(paths)));
+            return new TemplateRequirements(immutable);
+        }
+
+        private String prefix() {
+            return scopes.isEmpty() ? "" : scopes.getLast()
+                                                 .prefix();
+        }
+
+        void walk(DocxPart part, List<Object> content) {
+            for (var item : content) {
+                var element = item instanceof JAXBElement<?> wrapped ? wrapped.getValue() : item;
+                if (element instanceof P paragraph) paragraph(part, paragraph);
+                else if (element instanceof Tr row) row(part, row);
+                else if (element instanceof CommentRangeStart start) open(start.getId(), false);
+                else if (element instanceof CommentRangeEnd end) close(end.getId());
+                else if (element instanceof ContentAccessor accessor) walk(part, accessor.getContent());
+                else if (element instanceof SdtBlock sdt && sdt.getSdtContent() != null)
+                    walk(part, sdt.getSdtContent()
+                                  .getContent());
+            }
+        }
+
+        private void row(DocxPart part, Tr row) {
+            var opened = new ArrayList<BigInteger>();
+            for (var id : commentIds(row.getContent(), new ArrayList<>())) {
+                if (isRepeat(id, "repeatTableRow") && open(id, true)) opened.add(id);
+            }
+            // the whole row is repeated, wherever its comment range ends
+            rowScoped.addAll(opened);
+            walk(part, row.getContent());
+            rowScoped.removeAll(opened);
+            opened.forEach(this::close);
+        }
+
+        private void paragraph(DocxPart part, P paragraph) {
+            var ends = new ArrayList<BigInteger>();
+            for (var item : flatten(paragraph.getContent(), new ArrayList<>())) {
+                if (item instanceof CommentRangeStart start) open(start.getId(), false);
+                else if (item instanceof R.CommentReference reference) open(reference.getId(), false);
+                else if (item instanceof CommentRangeEnd end) ends.add(end.getId());
+            }
+            var text = StandardParagraph.from(part, paragraph)
+                                        .asString();
+            Placeholders.findVariables(text)
+                        .forEach(placeholder -> record(placeholder.content(), prefix()));
+            Placeholders.findProcessors(text)
+                        .forEach(processor -> record(processor.content(), prefix()));
+            ends.forEach(this::close);
+            // a comment without range only applies to its paragraph
+            for (var item : flatten(paragraph.getContent(), new ArrayList<>()))
+                if (item instanceof R.CommentReference reference) close(reference.getId());
+        }
+
+        /// Records a comment, and opens the scope of its elements when it repeats its content.
+        ///
+        /// @return whether a scope was opened.
+        private boolean open(BigInteger id, boolean rows) {
+            var expression = comments.get(id);
+            if (expression == null || !seen.add(id)) return false;
+            var prefix = prefix();
+            record(expression, prefix);
+            var repeated = repeated(expression, rows);
+            if (repeated == null) return false;
+            var argument = new TreeSet<String>();
+            collect(repeated, prefix, argument);
+            var element = argument.size() == 1 ? argument.first() : join(prefix, "?");
+            scopes.add(new Scope(id, element + "[]"));
+            return true;
+        }
+
+        private void close(BigInteger id) {
+            if (rowScoped.contains(id)) return;
+            scopes.removeIf(scope -> scope.comment()
+                                          .equals(id));
+        }
+
+        /// Finds the argument of a repeating comment: the table rows only repeat when walking their row.
+        @Nullable private SpelNode repeated(String expression, boolean rows) {
+            var ast = ast(expression);
+            if (!(ast instanceof MethodReference method) || method.getChildCount() == 0) return null;
+            var name = method.getName();
+            if (!REPEATS.contains(name) || name.equals("repeatTableRow") != rows) return null;
+            return method.getChild(0);
+        }
+
+        private boolean isRepeat(BigInteger id, String name) {
+            var expression = comments.get(id);
+            return expression != null && ast(expression) instanceof MethodReference method && method.getName()
+                                                                                                       .equals(name);
+        }
+
+        private void record(String expression, String prefix) {
+            var ast = ast(expression);
+            var paths = expressions.computeIfAbsent(expression, key -> new TreeSet<>());
+            if (ast != null) collect(ast, prefix, paths);
+        }
+
+        @Nullable private SpelNode ast(String expression) {
+            try {
+                return parser.parseExpression(expression) instanceof SpelExpression spel ? spel.getAST() : null;
+            } catch (ParseException e) {
+                return null;
+            }
+        }
+
+        private List<BigInteger> commentIds(List<Object> content, List<BigInteger> ids) {
+            for (var item : flatten(content, new ArrayList<>())) {
+                if (item instanceof CommentRangeStart start) ids.add(start.getId());
+                else if (item instanceof R.CommentReference reference) ids.add(reference.getId());
+            }
+            return ids;
+        }
+
+        private List<Object> flatten(List<Object> content, List<Object> flat) {
+            for (var item : content) {
+                var element = item instanceof JAXBElement<?> wrapped ? wrapped.getValue() : item;
+                flat.add(element);
+                if (element instanceof ContentAccessor accessor) flatten(accessor.getContent(), flat);
+                else if (element instanceof SdtBlock sdt && sdt.getSdtContent() != null)
+                    flatten(sdt.getSdtContent()
+                               .getContent(), flat);
+            }
+            return flat;
+        }
+    }
+}
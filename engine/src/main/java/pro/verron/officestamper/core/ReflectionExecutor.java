@@ -5,14 +5,58 @@ import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.MethodExecutor;
 import org.springframework.expression.TypedValue;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 
-public record ReflectionExecutor(Object object, Method method)
+/// Executes a method on a given object.
+///
+/// The method is bound once to its object as a [MethodHandle] taking an argument array, so each execution skips the
+/// access checks and argument copies of [Method#invoke].
+/// When the method cannot be unreflected, the executor falls back to plain reflection.
+///
+/// Exceptions thrown by the method are reported wrapped in an [InvocationTargetException], as reflection does, while
+/// errors are rethrown as they are, and arguments not fitting the parameters are reported as a plain
+/// [AccessException].
+///
+/// @param object the object on which the method is invoked.
+/// @param method the invoked method.
+/// @param handle the pre-bound handle of the method, or null when reflection should be used instead.
+public record ReflectionExecutor(Object object, Method method, @Nullable MethodHandle handle)
         implements MethodExecutor {
 
+    private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    /// Creates an executor invoking the given method on the given object.
+    ///
+    /// @param object the object on which the method is invoked.
+    /// @param method the invoked method.
+    public ReflectionExecutor(Object object, Method method) {
+        this(object, method, bind(object, method));
+    }
+
+    @Nullable private static MethodHandle bind(Object object, Method method) {
+        try {
+            var module = ReflectionExecutor.class.getModule();
+            module.addReads(method.getDeclaringClass()
+                                  .getModule());
+            return MethodHandles.lookup()
+                                .unreflect(method)
+                                .bindTo(object)
+                                .asSpreader(Object[].class, method.getParameterCount())
+                                .asType(SPREAD_TYPE);
+        } catch (IllegalAccessException | IllegalArgumentException | ClassCastException e) {
+            return null;
+        }
+    }
+
     @Override @NonNull
     public TypedValue execute(
             @NonNull EvaluationContext context,
@@ -21,12 +65,40 @@ public record ReflectionExecutor(Object object, Method method)
     )
             throws AccessException {
         try {
-            var value = method.invoke(object, arguments);
+            var value = handle == null ? method.invoke(object, arguments) : (Object) handle.invokeExact(arguments);
             return new TypedValue(value);
-        } catch (InvocationTargetException | IllegalAccessException e) {
-            var message = "Failed to invoke method %s with arguments [%s] from object %s"
-                    .formatted(method, Arrays.toString(arguments), object);
-            throw new AccessException(message, e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Error error) throw error;
+            throw new AccessException(message(arguments), e);
+        } catch (IllegalAccessException e) {
+            throw new AccessException(message(arguments), e);
+        } catch (Error e) {
+            throw e;
+        } catch (ClassCastException | WrongMethodTypeException | IllegalArgumentException | NullPointerException e) {
+            // the same exceptions report the arguments not fitting the parameters, and failures of the method itself
+            if (!fits(arguments)) throw new AccessException("Cannot bind arguments: " + message(arguments), e);
+            throw new AccessException(message(arguments), new InvocationTargetException(e));
+        } catch (Throwable e) {
+            // wrapped the same way reflection does, so SpEL keeps on unwrapping runtime exceptions from processors
+            throw new AccessException(message(arguments), new InvocationTargetException(e));
+        }
+    }
+
+    /// Checks the arguments can be passed to the method parameters, without conversion.
+    private boolean fits(Object[] arguments) {
+        var parameterTypes = method.getParameterTypes();
+        if (arguments.length != parameterTypes.length) return false;
+        for (int i = 0; i < arguments.length; i++) {
+            var parameterType = parameterTypes[i];
+            var argument = arguments[i];
+            if (argument == null ? parameterType.isPrimitive() : !ClassUtils.resolvePrimitiveIfNecessary(parameterType)
+                                                                             .isInstance(argument)) return false;
         }
+        return true;
+    }
+
+    private String message(Object[] arguments) {
+        return "Failed to invoke method %s with arguments [%s] from object %s"
+                .formatted(method, Arrays.toString(arguments), object);
     }
 }
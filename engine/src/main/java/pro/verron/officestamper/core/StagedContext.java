@@ -0,0 +1,58 @@
+package pro.verron.officestamper.core;
+
+import org.springframework.expression.AccessException;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypedValue;
+import org.springframework.lang.Nullable;
+
+/// The root of the first stage of a staged stamping, exposing the shared context under its namespace.
+///
+/// Against this root, only the expressions rooted in the namespace, like `${shared.company.name}`, are resolved, the
+/// other ones are left in the template for the per-recipient stage, see
+/// [ExpressionResolver#isDeferred(Object, pro.verron.officestamper.api.Placeholder)].
+/// The expressions resolved in nested contexts, like the rows repeated over a shared list, are all resolved.
+///
+/// @param namespace the name of the root property holding the shared context.
+/// @param shared    the shared context.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public record StagedContext(String namespace, Object shared) {
+
+    /// Reads the namespace property of a [StagedContext].
+    public static final class Accessor
+            implements PropertyAccessor {
+
+        @Override
+        public Class<?>[] getSpecificTargetClasses() {
+            return new Class<?>[]{StagedContext.class};
+        }
+
+        @Override
+        public boolean canRead(EvaluationContext context, @Nullable Object target, String name) {
+            return target instanceof StagedContext staged && staged.namespace()
+                                                                   .equals(name);
+        }
+
+        @Override
+        public TypedValue read(EvaluationContext context, @Nullable Object target, String name)
+                throws AccessException {
+            if (target instanceof StagedContext staged && staged.namespace()
+                                                                .equals(name)) return new TypedValue(staged.shared());
+            throw new AccessException("Cannot read '%s' outside of the shared namespace".formatted(name));
+        }
+
+        @Override
+        public boolean canWrite(EvaluationContext context, @Nullable Object target, String name) {
+            return false;
+        }
+
+        @Override
+        public void write(EvaluationContext context, @Nullable Object target, String name, @Nullable Object newValue)
+                throws AccessException {
+            throw new AccessException("Cannot write the shared namespace '%s'".formatted(name));
+        }
+    }
+}
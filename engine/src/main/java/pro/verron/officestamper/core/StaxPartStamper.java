@@ -0,0 +1,412 @@
+package pro.verron.officestamper.core;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.docx4j.wml.R;
+import pro.verron.officestamper.api.Placeholder;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/// Replaces the `${...}` placeholders of a WordprocessingML part while streaming it with StAX.
+///
+/// Only one paragraph is held in memory at a time, the events outside paragraphs are copied as they are read.
+/// The text of the consecutive runs is joined, so a placeholder split across runs is still found.
+/// The runs holding tabs, breaks or other elements next to their text are split around them first, each piece keeping
+/// the properties of the run.
+/// The runs overlapping a placeholder are split around it, and the run resolved for the placeholder is inserted with
+/// the properties of the run where the placeholder starts, as the DOM engine does.
+/// Any other element holding text, like a hyperlink or a field, ends the runs a placeholder can span.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+final class StaxPartStamper {
+
+    private static final String W = Namespaces.NS_WORD12;
+    private static final QName P = new QName(W, "p");
+    private static final QName R_NAME = new QName(W, "r");
+    private static final QName R_PR = new QName(W, "rPr");
+    private static final QName T = new QName(W, "t");
+    private static final QName SDT = new QName(W, "sdt");
+    private static final QName COMMENT_RANGE_START = new QName(W, "commentRangeStart");
+    private static final QName COMMENT_RANGE_END = new QName(W, "commentRangeEnd");
+    private static final QName COMMENT_REFERENCE = new QName(W, "commentReference");
+    private static final QName XML_SPACE = new QName(XMLConstants.XML_NS_URI, "space", "xml");
+
+    private final XMLInputFactory inputs;
+    private final XMLOutputFactory outputs = XMLOutputFactory.newFactory();
+    private final XMLEventFactory events = XMLEventFactory.newFactory();
+    private final Function<Placeholder, R> resolver;
+
+    /// Creates a stamper resolving the placeholders with the given function.
+    ///
+    /// @param resolver creates the run replacing a placeholder.
+    StaxPartStamper(Function<Placeholder, R> resolver) {
+        this.resolver = resolver;
+        this.inputs = inputFactory();
+    }
+
+    static XMLInputFactory inputFactory() {
+        var inputs = XMLInputFactory.newFactory();
+        inputs.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputs.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return inputs;
+    }
+
+    private static boolean is(XMLEvent event, QName name) {
+        return event.isStartElement() && event.asStartElement()
+                                              .getName()
+                                              .equals(name);
+    }
+
+    private static boolean ends(XMLEvent event, QName name) {
+        return event.isEndElement() && event.asEndElement()
+                                            .getName()
+                                            .equals(name);
+    }
+
+    /// Finds the index of the end of the element starting at the given index.
+    private static int end(List<XMLEvent> events, int start) {
+        var depth = 0;
+        for (int i = start; i < events.size(); i++) {
+            var event = events.get(i);
+            if (event.isStartElement()) depth++;
+            else if (event.isEndElement() && --depth == 0) return i;
+        }
+        throw new IllegalStateException("Unbalanced element at " + start);
+    }
+
+    private static boolean holdsText(List<XMLEvent> events) {
+        return events.stream()
+                     .anyMatch(event -> is(event, T));
+    }
+
+    /// Streams a part, replacing its placeholders.
+    ///
+    /// @param in  the content of the part.
+    /// @param out where the stamped content is written, in UTF-8.
+    ///
+    /// @throws XMLStreamException if the part cannot be read or written.
+    void stamp(InputStream in, OutputStream out)
+            throws XMLStreamException {
+        var reader = inputs.createXMLEventReader(in);
+        var writer = outputs.createXMLEventWriter(out, StandardCharsets.UTF_8.name());
+        try {
+            var paragraphs = new ArrayDeque<List<XMLEvent>>();
+            while (reader.hasNext()) {
+                var event = reader.nextEvent();
+                if (is(event, P)) {
+                    paragraphs.push(new ArrayList<>(List.of(event)));
+                    continue;
+                }
+                var paragraph = paragraphs.peek();
+                if (paragraph != null) paragraph.add(event);
+                if (ends(event, P)) {
+                    var stamped = stampParagraph(paragraphs.pop());
+                    var parent = paragraphs.peek();
+                    if (parent != null) parent.addAll(stamped);
+                    else for (var stampedEvent : stamped) writer.add(stampedEvent);
+                }
+                else if (paragraph == null) writer.add(event);
+            }
+            writer.flush();
+        } finally {
+            writer.close();
+            reader.close();
+        }
+    }
+
+    /// Finds the first construct of a part that this stamper cannot stamp like the object model engine does.
+    ///
+    /// @param in                   the content of the part.
+    /// @param lineBreakPlaceholder the text replaced with line breaks by the object model engine.
+    ///
+    /// @return why the part cannot be streamed, or empty if it only holds placeholders this stamper replaces.
+    ///
+    /// @throws XMLStreamException if the part cannot be read.
+    static Optional<String> limitation(InputStream in, String lineBreakPlaceholder)
+            throws XMLStreamException {
+        var reader = inputFactory().createXMLEventReader(in);
+        try {
+            var paragraphs = new ArrayDeque<List<XMLEvent>>();
+            while (reader.hasNext()) {
+                var event = reader.nextEvent();
+                if (is(event, SDT)) return Optional.of("the template holds content controls");
+                if (is(event, COMMENT_RANGE_START) || is(event, COMMENT_RANGE_END) || is(event, COMMENT_REFERENCE))
+                    return Optional.of("the template holds comments");
+                if (is(event, P)) {
+                    paragraphs.push(new ArrayList<>(List.of(event)));
+                    continue;
+                }
+                var paragraph = paragraphs.peek();
+                if (paragraph != null) paragraph.add(event);
+                if (!ends(event, P)) continue;
+                // the nested paragraphs are checked on their own, and left out of their parent
+                var events = paragraphs.pop();
+                // the text of a paragraph is split across runs, and across events, wherever Word pleases
+                var text = text(events);
+                if (text.contains("#{")) return Optional.of("the template holds inline processors");
+                if (!lineBreakPlaceholder.isEmpty() && text.contains(lineBreakPlaceholder))
+                    return Optional.of("the template holds line break placeholders");
+                if (items(events).stream()
+                                 .filter(Item::barrier)
+                                 .anyMatch(item -> text(item.events()).contains("${")))
+                    return Optional.of("the template holds placeholders in hyperlinks, fields or complex runs");
+            }
+            return Optional.empty();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static List<Item> items(List<XMLEvent> paragraph) {
+        var items = new ArrayList<Item>();
+        var last = paragraph.size() - 1;
+        for (int i = 1; i < last; i++) {
+            var event = paragraph.get(i);
+            if (!event.isStartElement()) {
+                items.add(new Other(List.of(event), false));
+                continue;
+            }
+            var end = end(paragraph, i);
+            var element = paragraph.subList(i, end + 1);
+            if (is(event, R_NAME)) items.addAll(Run.parse(element));
+            else items.add(new Other(element, holdsText(element)));
+            i = end;
+        }
+        return items;
+    }
+
+    private static String text(List<XMLEvent> events) {
+        var text = new StringBuilder();
+        var inText = false;
+        for (var event : events) {
+            if (is(event, T)) inText = true;
+            else if (ends(event, T)) inText = false;
+            else if (inText && event.isCharacters()) text.append(event.asCharacters()
+                                                                       .getData());
+        }
+        return text.toString();
+    }
+
+    private List<XMLEvent> stampParagraph(List<XMLEvent> paragraph)
+            throws XMLStreamException {
+        var items = items(paragraph);
+        if (items.stream()
+                 .noneMatch(item -> item instanceof Run run && run.text()
+                                                                 .contains("$"))) return paragraph;
+
+        var stamped = new ArrayList<XMLEvent>(paragraph.size());
+        stamped.add(paragraph.getFirst());
+        var group = new ArrayList<Item>();
+        for (var item : items) {
+            if (item.barrier()) {
+                stampGroup(group, stamped);
+                group.clear();
+                stamped.addAll(item.events());
+            }
+            else group.add(item);
+        }
+        stampGroup(group, stamped);
+        stamped.add(paragraph.getLast());
+        return stamped;
+    }
+
+    private void stampGroup(List<Item> group, List<XMLEvent> stamped)
+            throws XMLStreamException {
+        var text = new StringBuilder();
+        for (var item : group)
+            if (item instanceof Run run) text.append(run.text());
+        var spans = spans(text.toString());
+        var offset = 0;
+        for (var item : group) {
+            if (!(item instanceof Run run)) {
+                stamped.addAll(item.events());
+                continue;
+            }
+            var start = offset;
+            var end = offset + run.text()
+                                  .length();
+            offset = end;
+            if (spans.stream()
+                     .noneMatch(span -> span.start() < end && start < span.end())) {
+                stamped.addAll(run.events());
+                continue;
+            }
+            var cursor = start;
+            while (cursor < end) {
+                var span = spanAt(spans, cursor);
+                if (span != null) {
+                    if (span.start() == cursor) stamped.addAll(replacement(span.placeholder(), run));
+                    cursor = Math.min(end, span.end());
+                }
+                else {
+                    var next = Math.min(end, nextStart(spans, cursor));
+                    stamped.addAll(run.piece(events, cursor - start, next - start));
+                    cursor = next;
+                }
+            }
+        }
+    }
+
+    private static List<Span> spans(String text) {
+        var spans = new ArrayList<Span>();
+        var from = 0;
+        for (var placeholder : Placeholders.findVariables(text)) {
+            var start = text.indexOf(placeholder.expression(), from);
+            if (start < 0) continue;
+            from = start + placeholder.expression()
+                                      .length();
+            spans.add(new Span(start, from, placeholder));
+        }
+        return spans;
+    }
+
+    private static Span spanAt(List<Span> spans, int position) {
+        for (var span : spans)
+            if (span.start() <= position && position < span.end()) return span;
+        return null;
+    }
+
+    private static int nextStart(List<Span> spans, int position) {
+        for (var span : spans)
+            if (span.start() > position) return span.start();
+        return Integer.MAX_VALUE;
+    }
+
+    /// Marshals the run resolved for a placeholder, with the properties of the run holding the placeholder start.
+    private List<XMLEvent> replacement(Placeholder placeholder, Run run)
+            throws XMLStreamException {
+        var resolved = resolver.apply(placeholder);
+        var xml = XmlUtils.marshaltoString(resolved, true, false);
+        var reader = inputs.createXMLEventReader(new StringReader(xml));
+        var marshalled = new ArrayList<XMLEvent>();
+        try {
+            while (reader.hasNext()) {
+                var event = reader.nextEvent();
+                if (!event.isStartDocument() && !event.isEndDocument()) marshalled.add(event);
+            }
+        } finally {
+            reader.close();
+        }
+        var replacement = new ArrayList<XMLEvent>(marshalled.size() + run.properties()
+                                                                           .size());
+        replacement.add(marshalled.getFirst());
+        replacement.addAll(run.properties());
+        for (int i = 1; i < marshalled.size(); i++) {
+            var event = marshalled.get(i);
+            if (is(event, R_PR)) i = end(marshalled, i);
+            else replacement.add(event);
+        }
+        return replacement;
+    }
+
+    private sealed interface Item
+            permits Run, Other {
+        List<XMLEvent> events();
+
+        boolean barrier();
+    }
+
+    /// An element of a paragraph other than a run with only properties and text.
+    ///
+    /// @param events  the events of the element.
+    /// @param barrier whether the element holds text, so no placeholder can span over it.
+    private record Other(List<XMLEvent> events, boolean barrier)
+            implements Item {}
+
+    /// A run with only properties and text, or a piece of a run holding its properties and one of its texts.
+    ///
+    /// @param events     the events of the run.
+    /// @param properties the events of the run properties, empty if the run has none.
+    /// @param text       the text of the run.
+    private record Run(List<XMLEvent> events, List<XMLEvent> properties, String text)
+            implements Item {
+
+        /// Parses a run, splitting it in pieces holding its properties and one of its other elements each, when it
+        /// holds more than one, like a text next to a tab or a break.
+        /// The texts become [Run] pieces, the other elements opaque [Other] pieces, and a run holding anything else
+        /// than elements, or a text holding anything else than characters, stays a single opaque [Other] item.
+        private static List<Item> parse(List<XMLEvent> events) {
+            var properties = List.<XMLEvent>of();
+            var pieces = new ArrayList<Item>();
+            var last = events.size() - 1;
+            for (int i = 1; i < last; i++) {
+                var event = events.get(i);
+                if (event.isCharacters() && event.asCharacters()
+                                                 .isWhiteSpace()) continue;
+                if (!event.isStartElement()) return List.of(new Other(events, holdsText(events)));
+                var end = end(events, i);
+                var child = events.subList(i, end + 1);
+                if (is(event, R_PR)) properties = child;
+                else if (is(event, T)) {
+                    var text = new StringBuilder();
+                    for (int j = i + 1; j < end; j++) {
+                        var content = events.get(j);
+                        if (!content.isCharacters()) return List.of(new Other(events, true));
+                        text.append(content.asCharacters()
+                                           .getData());
+                    }
+                    pieces.add(new Run(copy(events, properties, child), properties, text.toString()));
+                }
+                else pieces.add(new Other(copy(events, properties, child), holdsText(child)));
+                i = end;
+            }
+            if (pieces.isEmpty()) return List.of(new Run(events, properties, ""));
+            if (pieces.size() > 1) return pieces;
+            // a run holding a single element is kept as it was read
+            var only = pieces.getFirst();
+            return List.of(only instanceof Run run ? new Run(events, properties, run.text()) : new Other(events,
+                    only.barrier()));
+        }
+
+        /// Copies a run with only its properties and one of its elements.
+        private static List<XMLEvent> copy(List<XMLEvent> run, List<XMLEvent> properties, List<XMLEvent> child) {
+            var piece = new ArrayList<XMLEvent>(properties.size() + child.size() + 2);
+            piece.add(run.getFirst());
+            piece.addAll(properties);
+            piece.addAll(child);
+            piece.add(run.getLast());
+            return piece;
+        }
+
+        @Override
+        public boolean barrier() {
+            return false;
+        }
+
+        /// Creates a copy of this run holding only a part of its text.
+        private List<XMLEvent> piece(XMLEventFactory factory, int from, int to) {
+            var start = (StartElement) events.getFirst();
+            var piece = new ArrayList<XMLEvent>(properties.size() + 5);
+            piece.add(start);
+            piece.addAll(properties);
+            var prefix = start.getName()
+                              .getPrefix();
+            piece.add(factory.createStartElement(prefix, W, "t", List.of(factory.createAttribute(XML_SPACE,
+                    "preserve")).iterator(), null));
+            piece.add(factory.createCharacters(text.substring(from, to)));
+            piece.add(factory.createEndElement(prefix, W, "t"));
+            piece.add(events.getLast());
+            return piece;
+        }
+    }
+
+    private record Span(int start, int end, Placeholder placeholder) {}
+}
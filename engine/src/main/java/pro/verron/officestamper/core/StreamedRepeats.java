@@ -0,0 +1,379 @@
+package pro.verron.officestamper.core;
+
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import org.docx4j.TraversalUtil;
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.jaxb.NamespacePrefixMapperUtils;
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.docx4j.wml.P;
+import org.docx4j.wml.Tr;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.utils.WmlFactory;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.XMLEvent;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/// Defers the expansion of repeated content until the document is saved.
+///
+/// A repeated region is replaced by a marker element during the stamping, and its copies are created, stamped,
+/// marshalled and written in place of the marker one item at a time, while the part holding it is saved.
+/// The items are read from their [Iterator] only then, so the memory needed does not grow with their number.
+///
+/// The copies are not in the object model of the document, and they must not add parts to the document, like images,
+/// since the parts of the package are listed before the content is written: the writing fails when they do.
+/// The markers are plain text, so a document holding deferred repeats must be saved by the [ZipPackageWriter], or
+/// have its repeats expanded into its object model first, see [#expand(OpcPackage)].
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public final class StreamedRepeats {
+
+    private static final String USER_DATA_KEY = StreamedRepeats.class.getName();
+    private static final String TOKEN_PREFIX = "officestamper-streamed-";
+    private static final XMLInputFactory INPUTS = StaxPartStamper.inputFactory();
+    private static final XMLOutputFactory OUTPUTS = XMLOutputFactory.newFactory();
+    private static final XMLEventFactory EVENTS = XMLEventFactory.newFactory();
+
+    private final Map<Part, List<Marker>> markers = new IdentityHashMap<>();
+
+    private StreamedRepeats() {
+    }
+
+    /// Finds the repeats deferred in a document, creating them on first use.
+    ///
+    /// @param document the stamped document.
+    ///
+    /// @return the repeats deferred in the document.
+    public static StreamedRepeats of(OpcPackage document) {
+        if (document.getUserData(USER_DATA_KEY) instanceof StreamedRepeats repeats) return repeats;
+        var repeats = new StreamedRepeats();
+        document.setUserData(USER_DATA_KEY, repeats);
+        return repeats;
+    }
+
+    /// Finds the repeats deferred in a part, if any.
+    ///
+    /// @param part the saved part.
+    ///
+    /// @return the repeats deferred in the document of the part, or null if the part holds no deferred repeat.
+    @Nullable public static StreamedRepeats in(Part part) {
+        var document = part.getPackage();
+        if (document == null || !(document.getUserData(USER_DATA_KEY) instanceof StreamedRepeats repeats))
+            return null;
+        return repeats.markers.containsKey(part) ? repeats : null;
+    }
+
+    /// Tells whether a document holds repeats not written yet.
+    ///
+    /// @param document the stamped document.
+    ///
+    /// @return true if some parts of the document hold deferred repeats.
+    public static boolean pending(OpcPackage document) {
+        return document.getUserData(USER_DATA_KEY) instanceof StreamedRepeats repeats && repeats.hasMarkers();
+    }
+
+    private synchronized boolean hasMarkers() {
+        return !markers.isEmpty();
+    }
+
+    /// Defers the table rows repeated in a part.
+    ///
+    /// @param part    the part holding the rows.
+    /// @param batches the rows created for each item, computed while the part is saved.
+    ///
+    /// @return the marker row to insert in place of the repeated rows.
+    public Tr deferRows(Part part, Iterator<? extends List<?>> batches) {
+        var token = token();
+        var cell = WmlFactory.newCell();
+        cell.getContent()
+            .add(WmlFactory.newParagraph(token));
+        var row = WmlFactory.newRow();
+        row.getContent()
+           .add(cell);
+        register(part, new Marker(token, "tr", row, batches));
+        return row;
+    }
+
+    /// Defers the paragraphs repeated in a part.
+    ///
+    /// @param part    the part holding the paragraphs.
+    /// @param batches the paragraphs created for each item, computed while the part is saved.
+    ///
+    /// @return the marker paragraph to insert in place of the repeated paragraphs.
+    public P deferParagraphs(Part part, Iterator<? extends List<?>> batches) {
+        var token = token();
+        var paragraph = WmlFactory.newParagraph(token);
+        register(part, new Marker(token, "p", paragraph, batches));
+        return paragraph;
+    }
+
+    private static String token() {
+        return TOKEN_PREFIX + UUID.randomUUID();
+    }
+
+    private synchronized void register(Part part, Marker marker) {
+        markers.computeIfAbsent(part, key -> new ArrayList<>())
+               .add(marker);
+    }
+
+    /// Expands the deferred repeats of a document into its object model, in place of their markers, so the document
+    /// can be read, postprocessed or saved like any other.
+    /// The repeated content is then created in memory at once.
+    ///
+    /// @param document the stamped document.
+    public static void expand(OpcPackage document) {
+        if (!(document.getUserData(USER_DATA_KEY) instanceof StreamedRepeats repeats)) return;
+        for (var entry : repeats.takeAllMarkers()
+                                .entrySet())
+            expand(entry.getKey(), entry.getValue());
+    }
+
+    /// Expands the deferred repeats of a single part into its object model, see [#expand(OpcPackage)].
+    ///
+    /// @param part the stamped part.
+    public static void expand(Part part) {
+        var repeats = in(part);
+        if (repeats != null) expand(part, repeats.takeMarkers(part));
+    }
+
+    private static void expand(Part part, List<Marker> partMarkers) {
+        for (var marker : partMarkers) {
+            var content = new ArrayList<>();
+            marker.batches()
+                  .forEachRemaining(content::addAll);
+            if (!replace(part, marker.element(), content))
+                throw new OfficeStamperException("Repeat marker not found in " + part.getPartName());
+        }
+    }
+
+    private synchronized Map<Part, List<Marker>> takeAllMarkers() {
+        var taken = new IdentityHashMap<>(markers);
+        markers.clear();
+        return taken;
+    }
+
+    /// Replaces an element of a tree with the given content, looking for it by identity.
+    private static boolean replace(Object parent, Object element, List<Object> replacement) {
+        var children = TraversalUtil.getChildrenImpl(XmlUtils.unwrap(parent));
+        if (children == null) return false;
+        for (int i = 0; i < children.size(); i++) {
+            var child = children.get(i);
+            if (XmlUtils.unwrap(child) == element) {
+                children.remove(i);
+                children.addAll(i, replacement);
+                return true;
+            }
+            if (replace(child, element, replacement)) return true;
+        }
+        return false;
+    }
+
+    /// Writes a part, expanding its deferred repeats in place of their markers.
+    ///
+    /// The part is marshalled without the repeated content first, then read back as a stream of events, in which each
+    /// marker element is replaced by the content created for each of its items, marshalled without the namespaces
+    /// already declared by the part.
+    /// The markers are told apart from the other paragraphs and rows by their text alone, whatever the prefixes of the
+    /// part, and wherever they are nested.
+    /// The markers removed from the part after their creation, with the content holding them, are not expanded.
+    ///
+    /// @param part the saved part.
+    /// @param out  where the part is written.
+    ///
+    /// @throws IOException             if the part cannot be written.
+    /// @throws OfficeStamperException if the repeated content adds parts, like images, to the document.
+    public void write(JaxbXmlPart<?> part, OutputStream out)
+            throws IOException {
+        var pending = new HashMap<String, Marker>();
+        for (var marker : takeMarkers(part))
+            pending.put(marker.token(), marker);
+        var marshalled = new ByteArrayOutputStream();
+        try {
+            part.marshal(marshalled);
+        } catch (Exception e) {
+            throw new IOException("Failed to marshal " + part.getPartName(), e);
+        }
+        var document = part.getPackage();
+        var parts = document.getParts()
+                            .getParts()
+                            .size();
+        var relationships = relationships(part);
+        try {
+            var reader = INPUTS.createXMLEventReader(new ByteArrayInputStream(marshalled.toByteArray()));
+            var writer = OUTPUTS.createXMLEventWriter(out, StandardCharsets.UTF_8.name());
+            new Expansion(pending, writer).copy(reader);
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to expand the repeats of " + part.getPartName(), e);
+        }
+        if (document.getParts()
+                    .getParts()
+                    .size() != parts || relationships(part) != relationships)
+            throw new OfficeStamperException(("The repeated content of %s added parts to the document, like images, "
+                                              + "which streamed repeats cannot write").formatted(part.getPartName()));
+    }
+
+    private static int relationships(Part part) {
+        var relationships = part.getRelationshipsPart();
+        return relationships == null ? 0 : relationships.getRelationships()
+                                                        .getRelationship()
+                                                        .size();
+    }
+
+    private synchronized List<Marker> takeMarkers(Part part) {
+        var partMarkers = markers.remove(part);
+        return partMarkers == null ? List.of() : partMarkers;
+    }
+
+    /// Copies the events of a part, expanding the markers it meets.
+    private static final class Expansion {
+        private final Map<String, Marker> pending;
+        private final XMLEventWriter writer;
+        private final Map<String, String> declarations = new HashMap<>();
+
+        private Expansion(Map<String, Marker> pending, XMLEventWriter writer) {
+            this.pending = pending;
+            this.writer = writer;
+        }
+
+        void copy(Iterator<?> events)
+                throws XMLStreamException, IOException {
+            while (events.hasNext()) {
+                var event = (XMLEvent) events.next();
+                if (declarations.isEmpty() && event.isStartElement())
+                    event.asStartElement()
+                         .getNamespaces()
+                         .forEachRemaining(namespace -> declarations.put(namespace.getPrefix(),
+                                 namespace.getNamespaceURI()));
+                if (pending.isEmpty() || !isMarkerCandidate(event)) {
+                    writer.add(event);
+                    continue;
+                }
+                var element = element(event, events);
+                var marker = pending.get(text(element));
+                if (marker != null && marker.tag()
+                                            .equals(event.asStartElement()
+                                                         .getName()
+                                                         .getLocalPart())) {
+                    pending.remove(marker.token());
+                    expand(marker);
+                    continue;
+                }
+                writer.add(element.getFirst());
+                copy(element.subList(1, element.size() - 1)
+                            .iterator());
+                writer.add(element.getLast());
+            }
+        }
+
+        private static boolean isMarkerCandidate(XMLEvent event) {
+            if (!event.isStartElement()) return false;
+            var name = event.asStartElement()
+                            .getName();
+            var tag = name.getLocalPart();
+            return Namespaces.NS_WORD12.equals(name.getNamespaceURI()) && (tag.equals("p") || tag.equals("tr"));
+        }
+
+        /// Reads the events of an element, from its start to its end.
+        private static List<XMLEvent> element(XMLEvent start, Iterator<?> events) {
+            var element = new ArrayList<XMLEvent>();
+            element.add(start);
+            var depth = 1;
+            while (depth > 0) {
+                if (!events.hasNext())
+                    throw new OfficeStamperException("Unterminated element " + start.asStartElement()
+                                                                                   .getName());
+                var event = (XMLEvent) events.next();
+                if (event.isStartElement()) depth++;
+                else if (event.isEndElement()) depth--;
+                element.add(event);
+            }
+            return element;
+        }
+
+        private static String text(List<XMLEvent> element) {
+            var text = new StringBuilder();
+            var inText = false;
+            for (var event : element) {
+                if (event.isStartElement()) inText = isText(event.asStartElement()
+                                                                 .getName());
+                else if (event.isEndElement()) inText = false;
+                else if (inText && event.isCharacters()) text.append(event.asCharacters()
+                                                                          .getData());
+            }
+            return text.toString();
+        }
+
+        private static boolean isText(QName name) {
+            return Namespaces.NS_WORD12.equals(name.getNamespaceURI()) && name.getLocalPart()
+                                                                              .equals("t");
+        }
+
+        private void expand(Marker marker)
+                throws IOException, XMLStreamException {
+            try {
+                var marshaller = Context.jc.createMarshaller();
+                NamespacePrefixMapperUtils.setProperty(marshaller, NamespacePrefixMapperUtils.getPrefixMapper());
+                marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+                var batches = marker.batches();
+                var fragment = new StringWriter();
+                while (batches.hasNext()) {
+                    for (var element : batches.next()) {
+                        fragment.getBuffer()
+                                .setLength(0);
+                        marshaller.marshal(element, fragment);
+                        writeFragment(fragment.toString());
+                    }
+                }
+            } catch (JAXBException e) {
+                throw new IOException("Failed to marshal the repeated content", e);
+            }
+        }
+
+        /// Writes a marshalled element, without the namespace declarations the part already holds.
+        private void writeFragment(String fragment)
+                throws XMLStreamException {
+            var reader = INPUTS.createXMLEventReader(new StringReader(fragment));
+            while (reader.hasNext()) {
+                var event = reader.nextEvent();
+                if (event.isStartDocument() || event.isEndDocument()) continue;
+                if (event.isStartElement()) {
+                    var start = event.asStartElement();
+                    var namespaces = new ArrayList<Namespace>();
+                    start.getNamespaces()
+                         .forEachRemaining(namespace -> {
+                             if (!namespace.getNamespaceURI()
+                                           .equals(declarations.get(namespace.getPrefix())))
+                                 namespaces.add(namespace);
+                         });
+                    event = EVENTS.createStartElement(start.getName(), start.getAttributes(), namespaces.iterator());
+                }
+                writer.add(event);
+            }
+        }
+    }
+
+    private record Marker(String token, String tag, Object element, Iterator<? extends List<?>> batches) {}
+
+}
@@ -0,0 +1,165 @@
+package pro.verron.officestamper.core;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.Save;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.docx4j.wml.ContentAccessor;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.OfficeStamper;
+import pro.verron.officestamper.api.OfficeStamperConfiguration;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.api.OutputCompression;
+import pro.verron.officestamper.preset.ImageMetadata;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/// The StreamingDocxStamper class stamps the placeholders of a Word template without building the object model of its
+/// main document, headers and footers.
+///
+/// Each of these parts is read from the source package with StAX, one paragraph at a time, and its placeholders are
+/// replaced while the part is written to a temporary file, which is copied into the stamped package when it is saved.
+/// The memory needed does not grow with the size of the document, only with the size of its largest paragraph.
+///
+/// Only the placeholders and the expressions of the configuration are supported: the comment processors, the
+/// preprocessors, the postprocessors and the line break placeholder are ignored.
+/// Placeholders inside hyperlinks, fields or structured document tags are left as they are.
+/// A part already unmarshalled, for example by an image resolver reading the page size of the document, is stamped
+/// through its object model.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public class StreamingDocxStamper
+        implements OfficeStamper<WordprocessingMLPackage> {
+
+    private final ExpressionResolver expressionResolver;
+    private final PlaceholderReplacer placeholderReplacer;
+    private final OutputCompression outputCompression;
+    @Nullable private final Executor outputExecutor;
+    private final String lineBreakPlaceholder;
+    private final ImageMetadata.Cache imageMetadata;
+
+    /// Creates a new StreamingDocxStamper with the given configuration.
+    ///
+    /// @param configuration the configuration to use for this StreamingDocxStamper.
+    public StreamingDocxStamper(OfficeStamperConfiguration configuration) {
+        var expressions = Expressions.of(configuration);
+        this.expressionResolver = expressions.resolver();
+        this.placeholderReplacer = expressions.replacer();
+        this.outputCompression = configuration.getOutputCompression();
+        this.outputExecutor = configuration.getOutputExecutor();
+        this.lineBreakPlaceholder = configuration.getLineBreakPlaceholder();
+        this.imageMetadata = ImageMetadata.Cache.shared(configuration.getImageMetadataCapacity());
+    }
+
+    /// Shares a cache of expression values with other stampers, see [ExpressionResolver#share(ExpressionCache)].
+    ///
+    /// @param cache the shared cache, or null to stop sharing.
+    void share(@Nullable ExpressionCache cache) {
+        expressionResolver.share(cache);
+    }
+
+    /// Finds why a template cannot be stamped by this stamper like the object model engine does, reading its main
+    /// document, headers and footers once with StAX.
+    ///
+    /// @param document the template to analyze.
+    ///
+    /// @return why the template cannot be streamed, or empty if it only holds placeholders this stamper replaces.
+    public Optional<String> limitation(WordprocessingMLPackage document) {
+        var source = document.getSourcePartStore();
+        if (source == null) return Optional.of("the template has no source to stream from");
+        try {
+            for (var part : parts(document)) {
+                var name = part.getPartName()
+                               .getName();
+                if (part.isUnmarshalled()) return Optional.of("the object model of %s is loaded".formatted(name));
+                try (var in = source.loadPart(name.substring(1))) {
+                    var limitation = StaxPartStamper.limitation(in, lineBreakPlaceholder);
+                    if (limitation.isPresent()) return limitation;
+                }
+            }
+            return Optional.empty();
+        } catch (Docx4JException | IOException | XMLStreamException e) {
+            throw new OfficeStamperException(e);
+        }
+    }
+
+    @Override
+    public void stamp(WordprocessingMLPackage document, Object contextRoot, OutputStream out) {
+        var files = new ArrayList<Path>();
+        ImageParts.of(document, imageMetadata);
+        try {
+            var writer = new ZipPackageWriter(outputCompression, outputExecutor);
+            for (var part : parts(document)) {
+                var docxPart = new TextualDocxPart(document, part, (ContentAccessor) part);
+                var source = document.getSourcePartStore();
+                if (part.isUnmarshalled() || source == null) {
+                    placeholderReplacer.resolveExpressions(docxPart, contextRoot);
+                    continue;
+                }
+                var file = Files.createTempFile("officestamper", ".xml");
+                files.add(file);
+                var stamper = new StaxPartStamper(placeholder -> placeholderReplacer.resolve(docxPart,
+                        contextRoot,
+                        placeholder));
+                var name = part.getPartName();
+                try (var in = source.loadPart(name.getName()
+                                                  .substring(1)); var fileOut = Files.newOutputStream(file)) {
+                    stamper.stamp(in, fileOut);
+                }
+                // a resolver may have unmarshalled the part meanwhile, the streamed content still prevails
+                writer.replace(name, file);
+            }
+            new Save(document, writer).save(out);
+        } catch (Docx4JException | IOException | XMLStreamException e) {
+            throw new OfficeStamperException(e);
+        } finally {
+            expressionResolver.forget();
+            placeholderReplacer.summarize();
+            files.forEach(StreamingDocxStamper::delete);
+        }
+    }
+
+    /// Lists the parts stamped by this stamper: the headers, the main document and the footers.
+    ///
+    /// @param document the stamped document.
+    ///
+    /// @return the stamped parts, in stamping order.
+    static List<JaxbXmlPart<?>> parts(WordprocessingMLPackage document) {
+        var mainPart = document.getMainDocumentPart();
+        return Stream.of(related(mainPart, Namespaces.HEADER), Stream.<Part>of(mainPart), related(mainPart,
+                             Namespaces.FOOTER))
+                     .flatMap(Function.identity())
+                     .<JaxbXmlPart<?>>map(JaxbXmlPart.class::cast)
+                     .toList();
+    }
+
+    private static Stream<Part> related(Part part, String type) {
+        var relationships = part.getRelationshipsPart();
+        if (relationships == null) return Stream.empty();
+        return relationships.getRelationshipsByType(type)
+                            .stream()
+                            .map(relationships::getPart);
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new OfficeStamperException(e);
+        }
+    }
+}
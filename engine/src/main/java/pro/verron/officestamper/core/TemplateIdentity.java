@@ -0,0 +1,69 @@
+package pro.verron.officestamper.core;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.Part;
+import pro.verron.officestamper.api.OfficeStamperException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/// Identifies the content of a template, to keep what was learned about it for the next templates with the same
+/// content.
+///
+/// A template is identified by the SHA-256 digest of the content of some of its parts in its source package, the same
+/// whether the template was loaded lazily or not.
+/// The changes made to the object model of a part after loading are not taken into account, and the templates
+/// without source package, like the ones created in memory, cannot be identified.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public final class TemplateIdentity {
+
+    private TemplateIdentity() {
+        throw new OfficeStamperException("TemplateIdentity cannot be instantiated");
+    }
+
+    /// Identifies a template by the source content of the given parts.
+    ///
+    /// @param document the template.
+    /// @param parts    the parts identifying the template.
+    ///
+    /// @return an identifier, equal for the templates with the same content in these parts, or empty if the template
+    ///         has no source package to read them from.
+    public static Optional<String> of(WordprocessingMLPackage document, List<? extends Part> parts) {
+        var source = document.getSourcePartStore();
+        if (source == null) return Optional.empty();
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new OfficeStamperException(e);
+        }
+        try {
+            for (var part : parts) {
+                var name = part.getPartName()
+                               .getName()
+                               .substring(1);
+                digest.update((name + ';').getBytes(StandardCharsets.UTF_8));
+                try (var in = source.loadPart(name)) {
+                    if (in == null) return Optional.empty();
+                    new DigestInputStream(in, digest).transferTo(OutputStream.nullOutputStream());
+                }
+                digest.update((byte) 0);
+            }
+        } catch (Docx4JException | IOException e) {
+            throw new OfficeStamperException(e);
+        }
+        return Optional.of(HexFormat.of()
+                                    .formatHex(digest.digest()));
+    }
+}
@@ -0,0 +1,208 @@
+package pro.verron.officestamper.core;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.docx4j.openpackaging.contenttype.ContentTypeManager;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.Load3;
+import org.docx4j.openpackaging.io3.stores.PartStore;
+import org.docx4j.openpackaging.io3.stores.ZipPartStore;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.CustomXmlDataStoragePart;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.XmlPart;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.OfficeStamperException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/// A part store reading the parts of a package from its zip entries, only when docx4j asks for them.
+///
+/// The docx4j [ZipPartStore] inflates every entry of the package when it is
+/// opened, and keeps all of them on the heap until the package is saved.
+/// This store keeps the compressed package instead, reads its central directory, and inflates an entry each time a
+/// part is unmarshalled or loaded.
+/// docx4j already defers the unmarshalling of the XML parts and the loading of the binary parts until they are
+/// accessed, so the parts the stamping does not touch, like styles, themes, fonts and images, are never inflated
+/// in memory, and are copied unchanged from this store when the package is saved.
+///
+/// docx4j saves a package into the store it was loaded from, this store delegates the writing to a
+/// [ZipPackageWriter] copying the unchanged parts from the zip entries, without inflating them.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public final class ZipEntryPartStore
+        implements PartStore {
+
+    private static final byte[] ZIP_SIGNATURE = {'P', 'K', 3, 4};
+
+    private final ZipFile zip;
+    private final Map<String, ZipArchiveEntry> entries = new HashMap<>();
+    private final ZipPackageWriter writer = new ZipPackageWriter();
+
+    private ZipEntryPartStore(ZipFile zip) {
+        this.zip = zip;
+        this.writer.setSourcePartStore(this);
+        zip.getEntries()
+           .asIterator()
+           .forEachRemaining(entry -> entries.put(entry.getName(), entry));
+    }
+
+    /// Loads a Word document, keeping its parts as zip entries until they are accessed.
+    ///
+    /// The templates that are not plain zip packages, like encrypted or Flat OPC documents, are loaded by docx4j as
+    /// usual.
+    ///
+    /// @param inputStream the template to load.
+    ///
+    /// @return the loaded document.
+    ///
+    /// @throws OfficeStamperException if the template cannot be read or is not a Word document.
+    public static WordprocessingMLPackage load(InputStream inputStream) {
+        try {
+            var bytes = inputStream.readAllBytes();
+            if (!isZip(bytes)) return WordprocessingMLPackage.load(new ByteArrayInputStream(bytes));
+            var zip = ZipFile.builder()
+                             .setSeekableByteChannel(new SeekableInMemoryByteChannel(bytes))
+                             .get();
+            var opcPackage = new Load3(new ZipEntryPartStore(zip)).get();
+            if (!(opcPackage instanceof WordprocessingMLPackage document))
+                throw new OfficeStamperException("Template is not a Word document, got " + opcPackage.getClass()
+                                                                                                      .getSimpleName());
+            document.setNew(false);
+            return document;
+        } catch (IOException | Docx4JException e) {
+            throw new OfficeStamperException(e);
+        }
+    }
+
+    private static boolean isZip(byte[] bytes) {
+        if (bytes.length < ZIP_SIGNATURE.length) return false;
+        for (int i = 0; i < ZIP_SIGNATURE.length; i++)
+            if (bytes[i] != ZIP_SIGNATURE[i]) return false;
+        return true;
+    }
+
+    /// Inflates the zip entry of a part.
+    ///
+    /// @param partName the name of the part, without its leading slash.
+    ///
+    /// @return the content of the part, or null if the package has no such part.
+    @Override
+    @Nullable public InputStream loadPart(String partName)
+            throws Docx4JException {
+        var entry = entries.get(partName);
+        if (entry == null) return null;
+        try {
+            return zip.getInputStream(entry);
+        } catch (IOException e) {
+            throw new Docx4JException("Failed to read the part " + partName, e);
+        }
+    }
+
+    /// Finds the zip entry of a part.
+    ///
+    /// @param partName the name of the part, without its leading slash.
+    ///
+    /// @return the zip entry holding the part, or null if the package has no such part.
+    @Nullable ZipArchiveEntry entry(String partName) {
+        return entries.get(partName);
+    }
+
+    /// Reads the compressed content of a zip entry, as it is stored in the package.
+    ///
+    /// @param entry the zip entry to read.
+    ///
+    /// @return the raw content of the entry.
+    ///
+    /// @throws IOException if the entry cannot be read.
+    InputStream rawContent(ZipArchiveEntry entry)
+            throws IOException {
+        return zip.getRawInputStream(entry);
+    }
+
+    @Override
+    public void rename(PartName oldName, PartName newName) {
+        var entry = entries.remove(oldName.getName()
+                                          .substring(1));
+        if (entry == null) throw new OfficeStamperException("Part not found: " + oldName.getName());
+        entries.put(newName.getName()
+                           .substring(1), entry);
+    }
+
+    @Override
+    public long getPartSize(String partName)
+            throws Docx4JException {
+        var entry = entries.get(partName);
+        if (entry == null) throw new Docx4JException("Part not found: " + partName);
+        return entry.getSize();
+    }
+
+    @Override
+    public void setOutputStream(OutputStream outputStream)
+            throws Docx4JException {
+        writer.setOutputStream(outputStream);
+    }
+
+    @Override
+    public void saveContentTypes(ContentTypeManager contentTypeManager)
+            throws Docx4JException {
+        writer.saveContentTypes(contentTypeManager);
+    }
+
+    // the raw type is forced by the PartStore signature of docx4j
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void saveJaxbXmlPart(JaxbXmlPart part)
+            throws Docx4JException {
+        writer.saveJaxbXmlPart(part);
+    }
+
+    @Override
+    public void saveCustomXmlDataStoragePart(CustomXmlDataStoragePart part)
+            throws Docx4JException {
+        writer.saveCustomXmlDataStoragePart(part);
+    }
+
+    @Override
+    public void saveXmlPart(XmlPart part)
+            throws Docx4JException {
+        writer.saveXmlPart(part);
+    }
+
+    @Override
+    public void saveBinaryPart(Part part)
+            throws Docx4JException {
+        writer.saveBinaryPart(part);
+    }
+
+    @Override
+    public void finishSave()
+            throws Docx4JException {
+        writer.finishSave();
+    }
+
+    /// Ignored, docx4j declares the store of a package as its own source before saving the package into it.
+    @Override
+    public void setSourcePartStore(PartStore partStore) {
+        // the writer already reads the unchanged parts from this store
+    }
+
+    @Override
+    public void dispose() {
+        try {
+            zip.close();
+        } catch (IOException e) {
+            throw new OfficeStamperException(e);
+        }
+    }
+}
@@ -0,0 +1,445 @@
+package pro.verron.officestamper.core;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.contenttype.ContentTypeManager;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.stores.PartStore;
+import org.docx4j.openpackaging.parts.CustomXmlDataStoragePart;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.WordprocessingML.AltChunkType;
+import org.docx4j.openpackaging.parts.WordprocessingML.AlternativeFormatInputPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.EmbeddedPackagePart;
+import org.docx4j.openpackaging.parts.WordprocessingML.ImageGifPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.ImageJpegPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.ImagePngPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.OleObjectBinaryPart;
+import org.docx4j.openpackaging.parts.XmlPart;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.api.OutputCompression;
+
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/// Writes a package to a zip stream, copying the parts that did not change from the zip they were loaded from.
+///
+/// When the package was loaded by a [ZipEntryPartStore], the XML parts that were never unmarshalled, and the binary
+/// parts that were never loaded or whose content did not change, are copied as they are compressed in the
+/// template, with their CRC and sizes, without being inflated and deflated again.
+/// Only the changed parts are marshalled and compressed, the way the docx4j
+/// [org.docx4j.openpackaging.io3.stores.ZipPartStore] does, which also writes the whole package when it was loaded
+/// otherwise.
+///
+/// The parts holding [StreamedRepeats] are written while their repeated content is created, one item at a time,
+/// always streamed on the calling thread: the repeated content is stamped as it is written, with the evaluation context
+/// of the stamper, which is not safe to share with the executor threads.
+///
+/// The changed parts are compressed at the level of the [OutputCompression] policy.
+/// With an executor, the parts held in memory, marshalled from their object model or binary parts under
+/// [#LARGE_PART] bytes, are compressed concurrently into memory, and written to the zip stream in the order docx4j
+/// saves them, as soon as the parts before them are written.
+/// The parts replaced by a file or read from the source package, and the larger binary parts, are streamed to the zip
+/// stream on the calling thread, once the parts before them are written, so they are never held in memory.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public final class ZipPackageWriter
+        implements PartStore {
+
+    private static final String PACKAGE_RELATIONSHIPS = "_rels/.rels";
+    private static final String CONTENT_TYPES = "[Content_Types].xml";
+    /// The size of the binary parts above which they are compressed on the calling thread.
+    private static final int LARGE_PART = 4 << 20;
+    private static final Set<AltChunkType> WORD_ALT_CHUNKS = EnumSet.of(AltChunkType.WordprocessingML,
+            AltChunkType.OfficeWordTemplate,
+            AltChunkType.OfficeWordMacroEnabled,
+            AltChunkType.OfficeWordMacroEnabledTemplate);
+
+    private final OutputCompression compression;
+    @Nullable private final Executor executor;
+    private final List<CompletableFuture<Chunk>> pendings = new ArrayList<>();
+    private final Map<String, Path> replacements = new HashMap<>();
+    @Nullable private PartStore source;
+    @Nullable private ZipArchiveOutputStream zip;
+
+    /// Creates a writer compressing the parts with the default level, on the calling thread.
+    public ZipPackageWriter() {
+        this(OutputCompression.DEFAULT, null);
+    }
+
+    /// Creates a writer compressing the parts with the given policy.
+    ///
+    /// @param compression how the changed parts are compressed.
+    /// @param executor    the executor marshalling and compressing the parts, or null to write them on the calling
+    ///                    thread.
+    public ZipPackageWriter(OutputCompression compression, @Nullable Executor executor) {
+        this.compression = compression;
+        this.executor = executor;
+    }
+
+    /// Replaces the content of an XML part with the content of a file, the file is read when the part is saved.
+    ///
+    /// @param partName the name of the replaced part.
+    /// @param content  the file holding the new content of the part.
+    ///
+    /// @return this writer, for chaining.
+    public ZipPackageWriter replace(PartName partName, Path content) {
+        replacements.put(entryName(partName), content);
+        return this;
+    }
+
+    private static String entryName(PartName partName) {
+        var name = partName.getName();
+        return PACKAGE_RELATIONSHIPS.equals(name) ? name : name.substring(1);
+    }
+
+    /// Images and embedded packages are already compressed, docx4j stores them as they are.
+    private static boolean shouldCompress(Part part) {
+        if (part instanceof OleObjectBinaryPart || part instanceof EmbeddedPackagePart || part instanceof ImagePngPart
+            || part instanceof ImageJpegPart || part instanceof ImageGifPart) return false;
+        if (part instanceof AlternativeFormatInputPart altChunk)
+            return !WORD_ALT_CHUNKS.contains(altChunk.getAltChunkType());
+        return true;
+    }
+
+    private static long crc(byte[] bytes) {
+        var crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private static long crc(Buffer buffer) {
+        var crc = new CRC32();
+        crc.update(buffer.bytes(), 0, buffer.size());
+        return crc.getValue();
+    }
+
+    /// Compresses a part into memory, deflating it as it is written, so only its compressed content is held.
+    private static Chunk compress(String name, int level, Content content) {
+        try {
+            if (level == Deflater.NO_COMPRESSION) {
+                var buffer = new Buffer();
+                content.writeTo(buffer);
+                return new Compressed(name, ZipArchiveEntry.STORED, buffer, buffer.size(), crc(buffer));
+            }
+            var deflater = new Deflater(level, true);
+            try {
+                var compressed = new Buffer();
+                var crc = new CRC32();
+                try (var out = new CheckedOutputStream(new DeflaterOutputStream(compressed, deflater), crc)) {
+                    content.writeTo(out);
+                }
+                return new Compressed(name, ZipArchiveEntry.DEFLATED, compressed, deflater.getBytesRead(),
+                        crc.getValue());
+            } finally {
+                deflater.end();
+            }
+        } catch (Exception e) {
+            throw new OfficeStamperException("Failed to write the part " + name, e);
+        }
+    }
+
+    @Override
+    public void setSourcePartStore(PartStore partStore) {
+        this.source = partStore;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream outputStream) {
+        this.zip = new ZipArchiveOutputStream(outputStream);
+    }
+
+    @Override
+    public void saveContentTypes(ContentTypeManager contentTypeManager)
+            throws Docx4JException {
+        try {
+            save(CONTENT_TYPES, true, contentTypeManager::marshal);
+        } catch (Exception e) {
+            throw new Docx4JException("Error marshalling Content_Types", e);
+        }
+    }
+
+    // the raw type is forced by the PartStore signature of docx4j
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void saveJaxbXmlPart(JaxbXmlPart part)
+            throws Docx4JException {
+        var name = entryName(part.getPartName());
+        try {
+            var replacement = replacements.get(name);
+            var repeats = StreamedRepeats.in(part);
+            if (replacement != null) stream(name, true, out -> Files.copy(replacement, out));
+            else if (repeats != null) stream(name, true, out -> repeats.write(part, out));
+            else if (part.isUnmarshalled()) save(name, true, part::marshal);
+            else if (!copyRaw(name)) stream(name, true, out -> {
+                try (var content = loadSource(name)) {
+                    content.transferTo(out);
+                }
+            });
+        } catch (Exception e) {
+            throw new Docx4JException("Failed to put " + part.getPartName() + " in zip file", e);
+        }
+    }
+
+    @Override
+    public void saveCustomXmlDataStoragePart(CustomXmlDataStoragePart part)
+            throws Docx4JException {
+        try {
+            save(entryName(part.getPartName()), true, out -> part.getData()
+                                                             .writeDocument(out));
+        } catch (Exception e) {
+            throw new Docx4JException("Error marshalling CustomXmlDataStoragePart " + part.getPartName(), e);
+        }
+    }
+
+    @Override
+    public void saveXmlPart(XmlPart part)
+            throws Docx4JException {
+        try {
+            save(entryName(part.getPartName()), true, out -> XmlUtils.getTransformerFactory()
+                                                                     .newTransformer()
+                                                                     .transform(new DOMSource(part.getDocument()),
+                                                                             new StreamResult(out)));
+        } catch (Exception e) {
+            throw new Docx4JException("Error marshalling XmlPart " + part.getPartName(), e);
+        }
+    }
+
+    @Override
+    public void saveBinaryPart(Part part)
+            throws Docx4JException {
+        var name = entryName(part.getPartName());
+        try {
+            var loaded = part instanceof BinaryPart binaryPart && binaryPart.isLoaded();
+            if (!loaded && copyRaw(name)) return;
+            byte[] bytes;
+            if (loaded) bytes = ((BinaryPart) part).getBytes();
+            else try (var content = loadSource(name)) {
+                bytes = content.readAllBytes();
+            }
+            if (loaded && copyRawIfUnchanged(name, bytes)) return;
+            saveBytes(name, shouldCompress(part), bytes);
+        } catch (Exception e) {
+            throw new Docx4JException("Failed to put binary part " + part.getPartName() + " in zip file", e);
+        }
+    }
+
+    @Override
+    public void finishSave()
+            throws Docx4JException {
+        try {
+            drain();
+            zip().close();
+        } catch (CompletionException e) {
+            throw new Docx4JException("Error writing zip file", e.getCause() instanceof Exception cause ? cause : e);
+        } catch (IOException e) {
+            throw new Docx4JException("Error closing zip file", e);
+        }
+    }
+
+    /// Not supported, this store only writes packages.
+    @Override
+    public InputStream loadPart(String partName) {
+        throw new OfficeStamperException("The zip package writer cannot load parts");
+    }
+
+    /// Not supported, this store only writes packages.
+    @Override
+    public long getPartSize(String partName) {
+        throw new OfficeStamperException("The zip package writer cannot load parts");
+    }
+
+    @Override
+    public void rename(PartName oldName, PartName newName) {
+        // the parts are written under their current name
+    }
+
+    @Override
+    public void dispose() {
+        pendings.forEach(pending -> pending.cancel(false));
+        pendings.clear();
+    }
+
+    private ZipArchiveOutputStream zip() {
+        if (zip == null) throw new OfficeStamperException("The output stream of the zip package writer is not set");
+        return zip;
+    }
+
+    private InputStream loadSource(String name)
+            throws Docx4JException {
+        if (source == null) throw new Docx4JException("part store has changed, and sourcePartStore not set");
+        var content = source.loadPart(name);
+        if (content == null) throw new Docx4JException("part '" + name + "' not found in the source part store");
+        return content;
+    }
+
+    private int level(boolean compressible) {
+        return compressible ? compression.level() : Deflater.NO_COMPRESSION;
+    }
+
+    /// Saves a part the writer holds in memory, compressed by the executor if any.
+    private void save(String name, boolean compressible, Content content)
+            throws Exception {
+        var level = level(compressible);
+        if (executor != null) enqueue(CompletableFuture.supplyAsync(() -> compress(name, level, content), executor));
+        else if (level == Deflater.NO_COMPRESSION) compress(name, level, content).writeTo(zip());
+        else stream(name, compressible, content);
+    }
+
+    /// Saves a binary part, stored from its own content when it is not compressed, and compressed on the calling
+    /// thread when it is large.
+    private void saveBytes(String name, boolean compressible, byte[] bytes)
+            throws Exception {
+        var level = level(compressible);
+        if (level == Deflater.NO_COMPRESSION) {
+            var buffer = new Buffer(bytes);
+            put(new Compressed(name, ZipArchiveEntry.STORED, buffer, bytes.length, crc(buffer)));
+        }
+        else if (bytes.length > LARGE_PART) stream(name, compressible, out -> out.write(bytes));
+        else save(name, compressible, out -> out.write(bytes));
+    }
+
+    /// Writes a part straight to the zip stream, on the calling thread, after the parts queued before it, so it is
+    /// never held in memory.
+    /// A part that is not compressed is deflated at level 0 instead of stored, since a stored entry needs its size
+    /// and CRC before its content.
+    private void stream(String name, boolean compressible, Content content)
+            throws Exception {
+        drain();
+        var out = zip();
+        out.setLevel(level(compressible));
+        var entry = new ZipArchiveEntry(name);
+        entry.setMethod(ZipArchiveEntry.DEFLATED);
+        out.putArchiveEntry(entry);
+        content.writeTo(out);
+        out.closeArchiveEntry();
+    }
+
+    /// Writes a chunk after the parts queued before it.
+    private void put(Chunk chunk)
+            throws IOException {
+        if (executor != null) enqueue(CompletableFuture.completedFuture(chunk));
+        else chunk.writeTo(zip());
+    }
+
+    /// Waits for the queued parts, and writes them in order.
+    private void drain()
+            throws IOException {
+        for (var pending : pendings)
+            pending.join()
+                   .writeTo(zip());
+        pendings.clear();
+    }
+
+    /// Queues a part after the parts being compressed, and writes the parts already compressed at the head of the
+    /// queue, so their content can be released.
+    private void enqueue(CompletableFuture<Chunk> chunk)
+            throws IOException {
+        pendings.add(chunk);
+        var iterator = pendings.iterator();
+        while (iterator.hasNext()) {
+            var pending = iterator.next();
+            if (!pending.isDone() || pending.isCompletedExceptionally()) return;
+            pending.join()
+                   .writeTo(zip());
+            iterator.remove();
+        }
+    }
+
+    private boolean copyRaw(String name)
+            throws IOException {
+        if (!(source instanceof ZipEntryPartStore entries)) return false;
+        var entry = entries.entry(name);
+        if (entry == null) return false;
+        Chunk chunk = out -> {
+            try (var raw = entries.rawContent(entry)) {
+                out.addRawArchiveEntry(new ZipArchiveEntry(entry), raw);
+            }
+        };
+        put(chunk);
+        return true;
+    }
+
+    /// A loaded binary part was read, by an image extraction for example, but its content may be unchanged, the CRC
+    /// is cheaper to compute than the compressed content.
+    private boolean copyRawIfUnchanged(String name, byte[] bytes)
+            throws IOException {
+        if (!(source instanceof ZipEntryPartStore entries)) return false;
+        var entry = entries.entry(name);
+        if (entry == null || entry.getSize() != bytes.length || entry.getCrc() != crc(bytes)) return false;
+        return copyRaw(name);
+    }
+
+    @FunctionalInterface
+    private interface Content {
+        void writeTo(OutputStream out)
+                throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Chunk {
+        void writeTo(ZipArchiveOutputStream out)
+                throws IOException;
+    }
+
+    /// A byte array output stream giving access to its content without copying it.
+    private static final class Buffer
+            extends ByteArrayOutputStream {
+        Buffer() {
+        }
+
+        Buffer(byte[] content) {
+            super(0);
+            buf = content;
+            count = content.length;
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+
+        InputStream stream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+
+    private record Compressed(String name, int method, Buffer data, long size, long crc)
+            implements Chunk {
+        @Override
+        public void writeTo(ZipArchiveOutputStream out)
+                throws IOException {
+            var entry = new ZipArchiveEntry(name);
+            entry.setMethod(method);
+            entry.setSize(size);
+            entry.setCompressedSize(data.size());
+            entry.setCrc(crc);
+            out.addRawArchiveEntry(entry, data.stream());
+        }
+    }
+}
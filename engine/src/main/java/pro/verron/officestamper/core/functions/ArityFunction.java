@@ -0,0 +1,88 @@
+package pro.verron.officestamper.core.functions;
+
+import pro.verron.officestamper.api.CustomFunction;
+import pro.verron.officestamper.utils.TriFunction;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/// A [CustomFunction] implementation specialized on its number of arguments.
+///
+/// The expression engine hands the arguments over as an array, each specialization reads its arguments directly from
+/// it, so no [List] view needs to be allocated on every call.
+/// The [List] based contract of [CustomFunction#function()] is kept for compatibility.
+///
+/// @author Joseph Verron
+/// @version ${version}
+/// @since 2.7.0
+public sealed interface ArityFunction
+        extends Function<List<Object>, Object> {
+
+    /// Applies the function to the arguments as received from the expression engine.
+    ///
+    /// @param arguments the arguments, in the order of the declared parameter types.
+    ///
+    /// @return the result of the function
+    Object call(Object[] arguments);
+
+    @Override default Object apply(List<Object> arguments) {
+        return call(arguments.toArray());
+    }
+
+    /// A function taking no arguments.
+    ///
+    /// @param implementation the supplier of the result.
+    record Nullary(Supplier<?> implementation)
+            implements ArityFunction {
+        @Override public Object call(Object[] arguments) {
+            return implementation.get();
+        }
+    }
+
+    /// A function taking one argument.
+    ///
+    /// @param class0         the type of the first argument.
+    /// @param implementation the implementation to apply.
+    /// @param <T>            the type of the first argument.
+    record Unary<T>(Class<T> class0, Function<T, ?> implementation)
+            implements ArityFunction {
+        @Override public Object call(Object[] arguments) {
+            return implementation.apply(class0.cast(arguments[0]));
+        }
+    }
+
+    /// A function taking two arguments.
+    ///
+    /// @param class0         the type of the first argument.
+    /// @param class1         the type of the second argument.
+    /// @param implementation the implementation to apply.
+    /// @param <T>            the type of the first argument.
+    /// @param <U>            the type of the second argument.
+    record Binary<T, U>(Class<T> class0, Class<U> class1, BiFunction<T, U, ?> implementation)
+            implements ArityFunction {
+        @Override public Object call(Object[] arguments) {
+            return implementation.apply(class0.cast(arguments[0]), class1.cast(arguments[1]));
+        }
+    }
+
+    /// A function taking three arguments.
+    ///
+    /// @param class0         the type of the first argument.
+    /// @param class1         the type of the second argument.
+    /// @param class2         the type of the third argument.
+    /// @param implementation the implementation to apply.
+    /// @param <T>            the type of the first argument.
+    /// @param <U>            the type of the second argument.
+    /// @param <V>            the type of the third argument.
+    record Ternary<T, U, V>(Class<T> class0, Class<U> class1, Class<V> class2, TriFunction<T, U, V, ?> implementation)
+            implements ArityFunction {
+        @Override public Object call(Object[] arguments) {
+            var arg0 = class0.cast(arguments[0]);
+            var arg1 = class1.cast(arguments[1]);
+            var arg2 = class2.cast(arguments[2]);
+            return implementation.apply(arg0, arg1, arg2);
+        }
+    }
+}
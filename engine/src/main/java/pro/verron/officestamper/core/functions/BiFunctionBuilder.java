@@ -5,7 +5,6 @@ import pro.verron.officestamper.core.DocxStamperConfiguration;
 
 import java.util.List;
 import java.util.function.BiFunction;
-import java.util.function.Function;
 
 public class BiFunctionBuilder<T, U>
         implements CustomFunction.NeedsBiFunctionImpl<T, U> {
@@ -22,11 +21,7 @@ public class BiFunctionBuilder<T, U>
     }
 
     @Override public void withImplementation(BiFunction<T, U, ?> implementation) {
-        Function<List<Object>, Object> function = args -> {
-            var arg0 = class0.cast(args.getFirst());
-            var arg1 = class1.cast(args.get(1));
-            return implementation.apply(arg0, arg1);
-        };
+        var function = new ArityFunction.Binary<>(class0, class1, implementation);
         var customFunction = new CustomFunction(name, List.of(class0, class1), function);
         source.addCustomFunction(customFunction);
     }
@@ -19,11 +19,8 @@ public class FunctionBuilder<T>
     }
 
     @Override public void withImplementation(Function<T, ?> implementation) {
-        Function<List<Object>, Object> objectFunction = args -> {
-            var arg0 = class0.cast(args.getFirst());
-            return implementation.apply(arg0);
-        };
-        var customFunction = new CustomFunction(name, List.of(class0), objectFunction);
+        var function = new ArityFunction.Unary<>(class0, implementation);
+        var customFunction = new CustomFunction(name, List.of(class0), function);
         source.addCustomFunction(customFunction);
     }
 
@@ -5,7 +5,6 @@ import pro.verron.officestamper.core.DocxStamperConfiguration;
 import pro.verron.officestamper.utils.TriFunction;
 
 import java.util.List;
-import java.util.function.Function;
 
 public class TriFunctionBuilder<T, U, V>
         implements CustomFunction.NeedsTriFunctionImpl<T, U, V> {
@@ -26,12 +25,7 @@ public class TriFunctionBuilder<T, U, V>
     }
 
     @Override public void withImplementation(TriFunction<T, U, V, ?> implementation) {
-        Function<List<Object>, Object> function = args -> {
-            var arg0 = class0.cast(args.getFirst());
-            var arg1 = class1.cast(args.get(1));
-            var arg2 = class2.cast(args.get(2));
-            return implementation.apply(arg0, arg1, arg2);
-        };
+        var function = new ArityFunction.Ternary<>(class0, class1, class2, implementation);
         var customFunction = new CustomFunction(name, List.of(class0, class1, class2), function);
         source.addCustomFunction(customFunction);
     }
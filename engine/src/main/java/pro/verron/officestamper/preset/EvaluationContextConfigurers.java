@@ -54,6 +54,22 @@ public class EvaluationContextConfigurers {
         return new DefaultEvaluationContextConfigurer();
     }
 
+    /**
+     * Returns an {@link EvaluationContextConfigurer} with the default security settings, reading properties through
+     * generated accessors.
+     * <p>
+     * Bean, record and map properties are read through the {@link LambdaPropertyAccessor} and the
+     * {@link MapAccessor}, both supporting the SpEL compiler.
+     * Pair it with a compiling parser configuration, for example,
+     * {@code new SpelParserConfiguration(SpelCompilerMode.MIXED, null)}, to get expressions evaluated many times
+     * compiled to bytecode.
+     *
+     * @return a {@link EvaluationContextConfigurer} instance with compilable property accessors
+     */
+    public static EvaluationContextConfigurer compilableConfigurer() {
+        return new CompilableEvaluationContextConfigurer();
+    }
+
     /**
      * {@link EvaluationContextConfigurer} that does no customization.
      * <p>
@@ -117,4 +133,23 @@ public class EvaluationContextConfigurers {
             context.setOperatorOverloader(new StandardOperatorOverloader());
         }
     }
+
+    /**
+     * {@link EvaluationContextConfigurer} with the default security settings, and compilable property accessors.
+     *
+     * @author Joseph Verron
+     * @version ${version}
+     * @since 2.7.0
+     */
+    private static class CompilableEvaluationContextConfigurer
+            extends DefaultEvaluationContextConfigurer {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void configureEvaluationContext(StandardEvaluationContext context) {
+            super.configureEvaluationContext(context);
+            context.setPropertyAccessors(List.of(new LambdaPropertyAccessor(), new MapAccessor()));
+        }
+    }
 }
@@ -82,6 +82,10 @@ public class ExceptionResolvers {
             else logger.warn(message);
             return value;
         }
+
+        @Override public String resolveMissing(Placeholder placeholder, String message) {
+            return value;
+        }
     }
 
     private record PassingResolver(boolean tracing)
@@ -92,6 +96,10 @@ public class ExceptionResolvers {
             else logger.warn(message);
             return placeholder.expression();
         }
+
+        @Override public String resolveMissing(Placeholder placeholder, String message) {
+            return placeholder.expression();
+        }
     }
 
     private record ThrowingResolver(boolean tracing)
@@ -101,5 +109,9 @@ public class ExceptionResolvers {
             if (tracing) throw new OfficeStamperException(message, cause);
             else throw new OfficeStamperException(message);
         }
+
+        @Override public String resolveMissing(Placeholder placeholder, String message) {
+            throw new OfficeStamperException(message);
+        }
     }
 }
@@ -2,8 +2,13 @@ package pro.verron.officestamper.preset;
 
 import org.docx4j.openpackaging.packages.PresentationMLPackage;
 import org.docx4j.openpackaging.packages.SpreadsheetMLPackage;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import pro.verron.officestamper.api.OfficeStamper;
+import pro.verron.officestamper.api.OfficeStamperConfiguration;
 import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.api.StreamStamper;
+import pro.verron.officestamper.core.StreamingDocxStamper;
+import pro.verron.officestamper.core.ZipEntryPartStore;
 import pro.verron.officestamper.experimental.ExcelStamper;
 import pro.verron.officestamper.experimental.PowerpointStamper;
 
@@ -44,4 +49,22 @@ public class ExperimentalStampers {
     public static OfficeStamper<SpreadsheetMLPackage> xlsxStamper() {
         return new ExcelStamper();
     }
+
+    /**
+     * Returns a new instance of the OfficeStamper implementation for stamping the placeholders of large Word
+     * templates, streaming their main document, headers and footers instead of building their object model.
+     * <p>
+     * Only the placeholders are resolved, the comment processors, preprocessors and postprocessors of the
+     * configuration are ignored.
+     * The template is loaded lazily, as with {@link PackageLoading#LAZY}.
+     *
+     * @param configuration the configuration to use for the stamper
+     *
+     * @return a new StreamStamper instance for Word templates
+     *
+     * @since 2.7.0
+     */
+    public static StreamStamper<WordprocessingMLPackage> docxStreamingStamper(OfficeStamperConfiguration configuration) {
+        return new StreamStamper<>(ZipEntryPartStore::load, new StreamingDocxStamper(configuration));
+    }
 }
@@ -0,0 +1,40 @@
+package pro.verron.officestamper.preset;
+
+import pro.verron.officestamper.api.ExpressionEngine;
+import pro.verron.officestamper.api.OfficeStamperException;
+
+import java.util.Optional;
+
+/**
+ * This class provides static methods to create the {@link ExpressionEngine} tried before SpEL.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public class ExpressionEngines {
+
+    private ExpressionEngines() {
+        throw new OfficeStamperException("ExpressionEngines cannot be instantiated");
+    }
+
+    /**
+     * Returns an engine compiling no expression, so that all the expressions are parsed and evaluated by SpEL.
+     *
+     * @return an {@link ExpressionEngine} leaving every expression to SpEL
+     */
+    public static ExpressionEngine spel() {
+        return expression -> Optional.empty();
+    }
+
+    /**
+     * Returns an engine evaluating the plain property paths, like {@code customer.address.city} or
+     * {@code items[0].name}, directly through the cached property accessors, and leaving the other expressions to
+     * SpEL, see {@link PathExpressionEngine}.
+     *
+     * @return an {@link ExpressionEngine} for property paths
+     */
+    public static ExpressionEngine paths() {
+        return new PathExpressionEngine();
+    }
+}
@@ -1,17 +1,25 @@
 package pro.verron.officestamper.preset;
 
 import org.apache.commons.io.IOUtils;
-import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
-import org.docx4j.openpackaging.parts.Part;
-import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.docx4j.model.structure.PageDimensions;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage.CxCy;
 import org.docx4j.wml.R;
+import org.springframework.lang.Nullable;
 import pro.verron.officestamper.api.DocxPart;
 import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.core.ImageParts;
+import pro.verron.officestamper.utils.ByteUtils;
 import pro.verron.officestamper.utils.WmlFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
 
 /**
  * This class describes an image which will be inserted into a document.
@@ -23,8 +31,13 @@ import java.io.InputStream;
  */
 public final class Image {
 
-    private final byte[] imageBytes;
-    private Integer maxWidth;
+    private static final double EMU_PER_INCH = 914_400;
+
+    private final Loader loader;
+    private final Integer maxWidth;
+    @Nullable private final Extent extent;
+    private ByteBuffer content;
+    private String digest;
 
     /**
      * <p>Constructor for Image.</p>
@@ -35,9 +48,7 @@ public final class Image {
      */
     public Image(InputStream in)
             throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        IOUtils.copy(in, out);
-        this.imageBytes = out.toByteArray();
+        this(in, null);
     }
 
     /**
@@ -50,10 +61,7 @@ public final class Image {
      */
     public Image(InputStream in, Integer maxWidth)
             throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        IOUtils.copy(in, out);
-        this.imageBytes = out.toByteArray();
-        this.maxWidth = maxWidth;
+        this(readAllBytes(in), maxWidth);
     }
 
     /**
@@ -62,7 +70,7 @@ public final class Image {
      * @param imageBytes - content of the image as an array of the bytes
      */
     public Image(byte[] imageBytes) {
-        this.imageBytes = imageBytes;
+        this(imageBytes, null);
     }
 
     /**
@@ -72,15 +80,129 @@ public final class Image {
      * @param maxWidth   - max width of the image in twip
      */
     public Image(byte[] imageBytes, Integer maxWidth) {
-        this.imageBytes = imageBytes;
+        this(() -> ByteBuffer.wrap(imageBytes), maxWidth);
+    }
+
+    private Image(Loader loader, Integer maxWidth) {
+        this(loader, maxWidth, null);
+    }
+
+    private Image(Loader loader, Integer maxWidth, @Nullable Extent extent) {
+        this.loader = loader;
         this.maxWidth = maxWidth;
+        this.extent = extent;
+    }
+
+    /**
+     * Creates an image read from a file, when it is first inserted into a document.
+     * <p>
+     * The file is mapped in memory instead of being copied on the heap, and is never read if the image is not
+     * rendered.
+     *
+     * @param path the file holding the image.
+     *
+     * @return an image backed by the file.
+     */
+    public static Image of(Path path) {
+        return of(path, null);
+    }
+
+    /**
+     * Creates an image read from a file, when it is first inserted into a document.
+     *
+     * @param path     the file holding the image.
+     * @param maxWidth max width of the image in twip, or null to keep its natural size.
+     *
+     * @return an image backed by the file.
+     *
+     * @see #of(Path)
+     */
+    public static Image of(Path path, @Nullable Integer maxWidth) {
+        return new Image(() -> map(path), maxWidth);
+    }
+
+    /**
+     * Creates an image read from a stream, when it is first inserted into a document.
+     * <p>
+     * The stream is opened and closed once, and is never opened if the image is not rendered.
+     *
+     * @param supplier opens the stream holding the image.
+     *
+     * @return an image backed by the stream.
+     */
+    public static Image of(Supplier<? extends InputStream> supplier) {
+        return of(supplier, null);
+    }
+
+    /**
+     * Creates an image read from a stream, when it is first inserted into a document.
+     *
+     * @param supplier opens the stream holding the image.
+     * @param maxWidth max width of the image in twip, or null to keep its natural size.
+     *
+     * @return an image backed by the stream.
+     *
+     * @see #of(Supplier)
+     */
+    public static Image of(Supplier<? extends InputStream> supplier, @Nullable Integer maxWidth) {
+        return new Image(() -> read(supplier), maxWidth);
+    }
+
+    /**
+     * Creates an image from the remaining content of a memory-mapped buffer.
+     * <p>
+     * The buffer is shared with the image parts, so its content is written to the documents without being copied on
+     * the heap; it must not be modified while the image is in use.
+     *
+     * @param buffer the buffer holding the image.
+     *
+     * @return an image backed by the buffer.
+     */
+    public static Image of(MappedByteBuffer buffer) {
+        return of(buffer, null);
+    }
+
+    /**
+     * Creates an image from the remaining content of a memory-mapped buffer.
+     *
+     * @param buffer   the buffer holding the image.
+     * @param maxWidth max width of the image in twip, or null to keep its natural size.
+     *
+     * @return an image backed by the buffer.
+     *
+     * @see #of(MappedByteBuffer)
+     */
+    public static Image of(MappedByteBuffer buffer, @Nullable Integer maxWidth) {
+        var content = buffer.slice();
+        return new Image(() -> content, maxWidth);
+    }
+
+    private static byte[] readAllBytes(InputStream in)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copy(in, out);
+        return out.toByteArray();
+    }
+
+    private static ByteBuffer map(Path path)
+            throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static ByteBuffer read(Supplier<? extends InputStream> supplier)
+            throws IOException {
+        try (var in = supplier.get()) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
     }
 
     /**
      * Creates a new run with the provided image and associated metadata.
      * <p>
-     * TODO: adding the same image twice will put the image twice into the docx-zip file.
-     *  We should make the second addition of the same image a reference instead.
+     * Images with the same content share a single image part in a document, the second addition of an image only
+     * references the part of the first one.
      *
      * @param document     The document part where the image will be inserted.
      * @param filenameHint A hint for the filename to be used.
@@ -88,17 +210,87 @@ public final class Image {
      *
      * @return The created run containing the image.
      *
-     * @throws OfficeStamperException If there is an error creating the image part
+     * @throws OfficeStamperException If there is an error reading the image or creating the image part
      */
     public R newRun(DocxPart document, String filenameHint, String altText) {
-        WordprocessingMLPackage wordprocessingMLPackage = document.document();
-        Part part = document.part();
-        try {
-            var image = BinaryPartAbstractImage.createImagePart(wordprocessingMLPackage, part, imageBytes);
-            return WmlFactory.newRun(maxWidth, image, filenameHint, altText);
-        } catch (Exception e) {
-            throw new OfficeStamperException("Failed to create an ImagePart", e);
+        var imageParts = ImageParts.of(document.document());
+        var related = imageParts.imagePart(document.part(), digest(), content());
+        var image = related.image();
+        var relationshipId = related.relationship()
+                                    .getId();
+        if (extent == null) return WmlFactory.newRun(maxWidth, image, relationshipId, filenameHint, altText);
+        return WmlFactory.newRun(image, relationshipId, filenameHint, altText, extent.cx(), extent.cy());
+    }
+
+    /**
+     * Creates a copy of this image resampled to the size it is displayed at in the given document part.
+     * <p>
+     * The displayed size is computed as for {@link #newRun(DocxPart, String, String)}, from the page width and the
+     * max width of the image, and the image is resampled to the pixel size matching this size at the given
+     * resolution, then re-encoded.
+     * The copy is displayed at the same size as this image, with a lighter content.
+     * The resampled contents are cached by source content and target size, so the same image is resampled once.
+     *
+     * @param document the document part where the image will be inserted.
+     * @param dpi      the resolution of the resampled image, in dots per inch.
+     *
+     * @return the resampled copy, or this image if it is already small enough or cannot be resampled.
+     *
+     * @throws OfficeStamperException If the resolution is not positive, or if there is an error reading the image
+     */
+    public Image resampled(DocxPart document, int dpi) {
+        if (dpi <= 0) throw new OfficeStamperException("Resampling resolution must be positive, got " + dpi);
+        var metadata = ImageParts.of(document.document())
+                                 .metadata()
+                                 .probe(digest(), content());
+        var page = pageDimensions(document);
+        var info = metadata.toImageInfo();
+        var extents = maxWidth == null ? CxCy.scale(info, page) : CxCy.scale(info, page, maxWidth);
+        var widthPx = (int) Math.round(extents.getCx() * dpi / EMU_PER_INCH);
+        var heightPx = (int) Math.round(extents.getCy() * dpi / EMU_PER_INCH);
+        return ImageResampler.resample(digest(), content(), metadata, widthPx, heightPx)
+                             .map(bytes -> new Image(() -> ByteBuffer.wrap(bytes),
+                                     maxWidth,
+                                     new Extent(extents.getCx(), extents.getCy())))
+                             .orElse(this);
+    }
+
+    private static PageDimensions pageDimensions(DocxPart document) {
+        var sections = document.document()
+                               .getDocumentModel()
+                               .getSections();
+        return sections.getLast()
+                       .getPageDimensions();
+    }
+
+    /**
+     * Prepares the image for its insertion into documents: reads its content, computes its hash and probes its
+     * metadata.
+     * <p>
+     * This is done once per image, and can run on any thread; inserting a prepared image then only creates its part.
+     *
+     * @param metadata the cache the probed metadata are kept in, the one of the document the image is inserted in.
+     *
+     * @throws OfficeStamperException If there is an error reading or probing the image
+     */
+    public void prepare(ImageMetadata.Cache metadata) {
+        metadata.probe(digest(), content());
+    }
+
+    private synchronized ByteBuffer content() {
+        if (content == null) {
+            try {
+                content = loader.load();
+            } catch (IOException e) {
+                throw new OfficeStamperException("Failed to read the image", e);
+            }
         }
+        return content.duplicate();
+    }
+
+    private synchronized String digest() {
+        if (digest == null) digest = ByteUtils.sha1b64(content());
+        return digest;
     }
 
     /**
@@ -122,6 +314,19 @@ public final class Image {
      * Drawing
      */
     @Deprecated(since = "2.6", forRemoval = true) public byte[] getImageBytes() {
-        return imageBytes;
+        var buffer = content();
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.remaining() == buffer.array().length)
+            return buffer.array();
+        var bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private record Extent(long cx, long cy) {}
+
+    @FunctionalInterface
+    private interface Loader {
+        ByteBuffer load()
+                throws IOException;
     }
 }
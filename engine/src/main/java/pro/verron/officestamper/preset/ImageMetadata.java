@@ -0,0 +1,229 @@
+package pro.verron.officestamper.preset;
+
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.apache.xmlgraphics.image.loader.ImageSize;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.OfficeStamperException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The metadata detected when probing an image: its content type, pixel size, resolution and natural extents.
+ * <p>
+ * The metadata are kept in a process-wide {@link Cache}, bounded to the most recently used images and keyed by the
+ * hash of the image content.
+ * An image stamped into many documents is then probed once, the next image parts are created from the cached
+ * metadata.
+ *
+ * @param contentType   the detected content type, for example, {@code image/png}.
+ * @param widthPx       the width of the image, in pixels.
+ * @param heightPx      the height of the image, in pixels.
+ * @param dpiHorizontal the horizontal resolution of the image, in dots per inch.
+ * @param dpiVertical   the vertical resolution of the image, in dots per inch.
+ * @param widthEmu      the natural width of the image, in English Metric Units.
+ * @param heightEmu     the natural height of the image, in English Metric Units.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public record ImageMetadata(
+        String contentType,
+        int widthPx,
+        int heightPx,
+        double dpiHorizontal,
+        double dpiVertical,
+        long widthEmu,
+        long heightEmu
+) {
+
+    private static final double EMU_PER_MILLIPOINT = 12.7;
+    private static final Set<String> NATIVE_CONTENT_TYPES = Set.of("image/png",
+            "image/jpeg",
+            "image/gif",
+            "image/bmp",
+            "image/tiff",
+            "image/emf",
+            "image/x-wmf");
+
+    /**
+     * Creates the metadata from an image info, as probed by docx4j.
+     *
+     * @param info the probed image info.
+     *
+     * @return the metadata of the image.
+     */
+    public static ImageMetadata of(ImageInfo info) {
+        var size = info.getSize();
+        return new ImageMetadata(info.getMimeType(),
+                size.getWidthPx(),
+                size.getHeightPx(),
+                size.getDpiHorizontal(),
+                size.getDpiVertical(),
+                Math.round(size.getWidthMpt() * EMU_PER_MILLIPOINT),
+                Math.round(size.getHeightMpt() * EMU_PER_MILLIPOINT));
+    }
+
+    /**
+     * Probes an image, without looking for its metadata in a cache.
+     *
+     * @param content the image content.
+     *
+     * @return the metadata of the image.
+     *
+     * @throws OfficeStamperException if the image cannot be probed.
+     */
+    public static ImageMetadata probe(ByteBuffer content) {
+        try {
+            var file = Files.createTempFile("officestamper", ".image");
+            try {
+                try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.write(content.duplicate());
+                }
+                return of(BinaryPartAbstractImage.getImageInfo(file.toUri()
+                                                                   .toURL()));
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (Exception e) {
+            throw new OfficeStamperException("Failed to probe the image", e);
+        }
+    }
+
+    /**
+     * Returns the file extension matching the content type, the way docx4j names the image parts it probes.
+     *
+     * @return the extension of the image part names.
+     */
+    public String extension() {
+        return contentType.substring(contentType.indexOf('/') + 1);
+    }
+
+    /**
+     * Rebuilds the image info docx4j needs to compute the inline drawing of an image part.
+     *
+     * @return a new image info with the cached content type and size.
+     */
+    public ImageInfo toImageInfo() {
+        var size = new ImageSize();
+        size.setSizeInPixels(widthPx, heightPx);
+        size.setResolution(dpiHorizontal, dpiVertical);
+        size.setSizeInMillipoints((int) Math.round(widthEmu / EMU_PER_MILLIPOINT),
+                (int) Math.round(heightEmu / EMU_PER_MILLIPOINT));
+        var info = new ImageInfo(null, contentType);
+        info.setSize(size);
+        return info;
+    }
+
+    /**
+     * A bounded cache of image metadata, keyed by the hash of the image content, evicting the least recently used
+     * images first.
+     * <p>
+     * The stampers share a process-wide cache, like the resampled images are, one per capacity set with
+     * {@link pro.verron.officestamper.api.OfficeStamperConfiguration#setImageMetadataCapacity(int)}, see
+     * {@link #shared(int)}.
+     */
+    public static final class Cache {
+        /**
+         * The capacity of the shared cache, unless configured otherwise.
+         */
+        public static final int DEFAULT_CAPACITY = 256;
+
+        private static final Map<Integer, Cache> SHARED = new ConcurrentHashMap<>();
+
+        private final Map<String, ImageMetadata> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int capacity;
+
+        /**
+         * Creates a cache keeping the metadata of the given number of images.
+         *
+         * @param capacity the maximum number of images whose metadata are kept, zero disables the cache.
+         *
+         * @throws OfficeStamperException if the capacity is negative.
+         */
+        public Cache(int capacity) {
+            if (capacity < 0) throw new OfficeStamperException("Cache capacity must not be negative, got " + capacity);
+            this.capacity = capacity;
+        }
+
+        /**
+         * Returns the process-wide cache of the given capacity, shared by all the stampers configured with it.
+         *
+         * @param capacity the maximum number of images whose metadata are kept, zero disables the cache.
+         *
+         * @return the shared cache.
+         *
+         * @throws OfficeStamperException if the capacity is negative.
+         */
+        public static Cache shared(int capacity) {
+            if (capacity < 0) throw new OfficeStamperException("Cache capacity must not be negative, got " + capacity);
+            return SHARED.computeIfAbsent(capacity, Cache::new);
+        }
+
+        /**
+         * Finds the metadata of an image in this cache, or probes the image.
+         * <p>
+         * The probed metadata are cached only for the formats Word displays natively, docx4j converts the other
+         * formats when their part is created.
+         *
+         * @param digest  the hash of the image content.
+         * @param content the image content.
+         *
+         * @return the metadata of the image.
+         *
+         * @throws OfficeStamperException if the image cannot be probed.
+         */
+        public ImageMetadata probe(String digest, ByteBuffer content) {
+            var cached = get(digest);
+            if (cached != null) return cached;
+            var metadata = ImageMetadata.probe(content);
+            if (NATIVE_CONTENT_TYPES.contains(metadata.contentType())) put(digest, metadata);
+            return metadata;
+        }
+
+        /**
+         * Finds the cached metadata of an image.
+         *
+         * @param digest the hash of the image content.
+         *
+         * @return the cached metadata, or null if the image was not probed yet, or was evicted.
+         */
+        @Nullable public synchronized ImageMetadata get(String digest) {
+            return entries.get(digest);
+        }
+
+        /**
+         * Caches the metadata of an image, evicting the least recently used ones beyond the capacity.
+         *
+         * @param digest   the hash of the image content.
+         * @param metadata the metadata of the image.
+         */
+        public synchronized void put(String digest, ImageMetadata metadata) {
+            if (capacity == 0) return;
+            entries.put(digest, metadata);
+            var iterator = entries.keySet()
+                                  .iterator();
+            while (entries.size() > capacity) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+
+        /**
+         * Returns the maximum number of images whose metadata are cached.
+         *
+         * @return the capacity of the cache.
+         */
+        public int capacity() {
+            return capacity;
+        }
+    }
+}
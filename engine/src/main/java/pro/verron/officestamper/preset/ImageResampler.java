@@ -0,0 +1,170 @@
+package pro.verron.officestamper.preset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.OfficeStamperException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import java.awt.Color;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resamples images to the pixel size they are displayed at, and re-encodes them with {@code javax.imageio}.
+ * <p>
+ * The resampled contents are kept in a process-wide cache, bounded to the most recently used ones and keyed by the
+ * hash of the source image and the target pixel size, so an image displayed many times at the same size is only
+ * resampled once.
+ * JPEG images stay JPEG, the other formats are re-encoded as PNG to keep their transparency.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+final class ImageResampler {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageResampler.class);
+    private static final int CAPACITY = 64;
+    private static final float JPEG_QUALITY = 0.9f;
+    private static final Map<Key, Optional<byte[]>> CACHE = Collections.synchronizedMap(new LinkedHashMap<>(16,
+            0.75f,
+            true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Optional<byte[]>> eldest) {
+            return size() > CAPACITY;
+        }
+    });
+
+    private ImageResampler() {
+        throw new OfficeStamperException("Utility class shouldn't be instantiated");
+    }
+
+    /**
+     * Resamples an image to the given pixel size.
+     *
+     * @param digest   the hash of the image content.
+     * @param content  the image content.
+     * @param metadata the metadata of the image.
+     * @param widthPx  the target width, in pixels.
+     * @param heightPx the target height, in pixels.
+     *
+     * @return the resampled content, or empty if the image is already small enough, cannot be read by
+     *         {@code javax.imageio}, or would not get lighter.
+     */
+    static Optional<byte[]> resample(
+            String digest,
+            ByteBuffer content,
+            ImageMetadata metadata,
+            int widthPx,
+            int heightPx
+    ) {
+        if (widthPx <= 0 || heightPx <= 0) return Optional.empty();
+        if (widthPx >= metadata.widthPx() || heightPx >= metadata.heightPx()) return Optional.empty();
+        var key = new Key(digest, widthPx, heightPx);
+        var cached = CACHE.get(key);
+        if (cached != null) return cached;
+        var resampled = compute(content, metadata.contentType(), widthPx, heightPx);
+        CACHE.put(key, resampled);
+        return resampled;
+    }
+
+    private static Optional<byte[]> compute(ByteBuffer content, String contentType, int widthPx, int heightPx) {
+        var bytes = new byte[content.remaining()];
+        content.duplicate()
+               .get(bytes);
+        var source = read(bytes);
+        if (source == null) return Optional.empty();
+        try {
+            var jpeg = "image/jpeg".equals(contentType);
+            var type = jpeg ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+            var scaled = scale(source, widthPx, heightPx, type);
+            var encoded = jpeg ? encodeJpeg(scaled) : encodePng(scaled);
+            return encoded.length < bytes.length ? Optional.of(encoded) : Optional.empty();
+        } catch (IOException e) {
+            throw new OfficeStamperException("Failed to resample the image", e);
+        }
+    }
+
+    /**
+     * Reads an image, or returns null when {@code javax.imageio} has no reader for it or fails to decode it, as it
+     * does on CMYK JPEG images, so such images are kept as they are.
+     */
+    @Nullable private static BufferedImage read(byte[] bytes) {
+        try {
+            return ImageIO.read(new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            log.debug("Cannot read the image, keeping it as it is", e);
+            return null;
+        }
+    }
+
+    /**
+     * Halves the image until it is less than twice the target size, then draws it at the target size, since a
+     * single bicubic pass skips most source pixels on large reductions.
+     */
+    private static BufferedImage scale(BufferedImage source, int widthPx, int heightPx, int type) {
+        var current = source;
+        var width = source.getWidth();
+        var height = source.getHeight();
+        do {
+            width = Math.max(width / 2, widthPx);
+            height = Math.max(height / 2, heightPx);
+            current = draw(current, width, height, type);
+        } while (width != widthPx || height != heightPx);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, int type) {
+        var target = new BufferedImage(width, height, type);
+        var graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (type == BufferedImage.TYPE_INT_RGB) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static byte[] encodePng(BufferedImage image)
+            throws IOException {
+        var out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image)
+            throws IOException {
+        var writer = ImageIO.getImageWritersByFormatName("jpeg")
+                            .next();
+        var out = new ByteArrayOutputStream();
+        try (var stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            var param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private record Key(String digest, int widthPx, int heightPx) {}
+}
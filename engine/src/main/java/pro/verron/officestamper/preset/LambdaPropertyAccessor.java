@@ -0,0 +1,234 @@
+package pro.verron.officestamper.preset;
+
+import org.springframework.asm.MethodVisitor;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.expression.AccessException;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
+import org.springframework.expression.spel.CompilablePropertyAccessor;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A {@link PropertyAccessor} reading bean, record and plain accessor methods through generated functions.
+ * <p>
+ * The getter of a property is looked up once per target class and property name, then turned into a
+ * {@link Function} spun by the {@link LambdaMetafactory}, so that each read is a direct call instead of a reflective
+ * one.
+ * Methods the metafactory cannot link against, for example, accessors of non-exported classes, are called through a
+ * {@link MethodHandle}, and properties without getter are left to the reflective lookup of the parent class.
+ * <p>
+ * The accessors handed over to the expression nodes are {@link CompilablePropertyAccessor}, so expressions reading
+ * public types can be compiled by the SpEL compiler.
+ * As for the {@link org.springframework.expression.spel.support.DataBindingPropertyAccessor}, methods declared on
+ * {@link Object} and {@link Class} are never considered as properties.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public class LambdaPropertyAccessor
+        extends ReflectivePropertyAccessor {
+
+    private static final MethodType FUNCTION_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final ClassValue<Map<String, Optional<Getter>>> getters = new ClassValue<>() {
+        @Override protected Map<String, Optional<Getter>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * Creates an accessor allowing both read and write operations.
+     */
+    public LambdaPropertyAccessor() {
+        super(true);
+    }
+
+    private static Function<Object, Object> generate(Method method)
+            throws ReflectiveOperationException {
+        var declaringClass = method.getDeclaringClass();
+        LambdaPropertyAccessor.class.getModule()
+                                    .addReads(declaringClass.getModule());
+        var lookup = MethodHandles.lookup();
+        if (isExported(method)) {
+            var handle = lookup.unreflect(method);
+            try {
+                var site = LambdaMetafactory.metafactory(lookup,
+                        "apply",
+                        MethodType.methodType(Function.class),
+                        FUNCTION_TYPE,
+                        handle,
+                        handle.type()
+                              .wrap());
+                @SuppressWarnings("unchecked") var function = (Function<Object, Object>) site.getTarget()
+                                                                                         .invoke();
+                return function;
+            } catch (Throwable e) {
+                // the metafactory refused the method, the handle below is still a direct call
+            }
+        }
+        var handle = MethodHandles.privateLookupIn(declaringClass, lookup)
+                                  .unreflect(method)
+                                  .asType(FUNCTION_TYPE);
+        return target -> invoke(handle, target);
+    }
+
+    private static boolean isExported(Method method) {
+        var declaringClass = method.getDeclaringClass();
+        return Modifier.isPublic(declaringClass.getModifiers()) && Modifier.isPublic(method.getModifiers())
+               && declaringClass.getModule()
+                                .isExported(declaringClass.getPackageName());
+    }
+
+    private static Object invoke(MethodHandle handle, Object target) {
+        try {
+            return handle.invokeExact(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    protected boolean isCandidateForProperty(Method method, Class<?> targetClass) {
+        Class<?> clazz = method.getDeclaringClass();
+        return clazz != Object.class && clazz != Class.class && !ClassLoader.class.isAssignableFrom(targetClass);
+    }
+
+    @Override
+    public boolean canRead(EvaluationContext context, @Nullable Object target, String name)
+            throws AccessException {
+        return getter(target, name).isPresent() || super.canRead(context, target, name);
+    }
+
+    @Override
+    public TypedValue read(EvaluationContext context, @Nullable Object target, String name)
+            throws AccessException {
+        var getter = getter(target, name);
+        if (getter.isPresent()) return getter.get()
+                                             .read(context, target, name);
+        return super.read(context, target, name);
+    }
+
+    @Override
+    public PropertyAccessor createOptimalAccessor(EvaluationContext context, @Nullable Object target, String name) {
+        return getter(target, name).map(PropertyAccessor.class::cast)
+                                   .orElseGet(() -> super.createOptimalAccessor(context, target, name));
+    }
+
+    private Optional<Getter> getter(@Nullable Object target, String name) {
+        if (target == null || target instanceof Class<?>) return Optional.empty();
+        var type = target.getClass();
+        if (type.isArray()) return Optional.empty();
+        return getters.get(type)
+                      .computeIfAbsent(name, key -> find(type, key));
+    }
+
+    private Optional<Getter> find(Class<?> type, String name) {
+        var method = findGetterForProperty(name, type, false);
+        if (method == null || Modifier.isStatic(method.getModifiers())) return Optional.empty();
+        var accessible = ClassUtils.getPubliclyAccessibleMethodIfPossible(method, type);
+        try {
+            var descriptor = new TypeDescriptor(new MethodParameter(method, -1));
+            return Optional.of(new Getter(type, name, accessible, descriptor, generate(accessible)));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * A getter bound to a single target class and property name.
+     *
+     * @param type       the class of the read targets.
+     * @param name       the name of the property.
+     * @param method     the getter method.
+     * @param descriptor the declared type of the property.
+     * @param function   the generated function calling the getter.
+     */
+    private record Getter(
+            Class<?> type,
+            String name,
+            Method method,
+            TypeDescriptor descriptor,
+            Function<Object, Object> function
+    )
+            implements CompilablePropertyAccessor {
+
+        @Override
+        public Class<?>[] getSpecificTargetClasses() {
+            return new Class<?>[]{type};
+        }
+
+        @Override
+        public boolean canRead(EvaluationContext context, @Nullable Object target, String name) {
+            return target != null && target.getClass() == type && this.name.equals(name);
+        }
+
+        @Override
+        public TypedValue read(EvaluationContext context, @Nullable Object target, String name)
+                throws AccessException {
+            try {
+                var value = function.apply(target);
+                return new TypedValue(value, descriptor.narrow(value));
+            } catch (RuntimeException e) {
+                throw new AccessException("Unable to access property '%s' through getter method %s".formatted(name,
+                        method), e);
+            }
+        }
+
+        @Override
+        public boolean canWrite(EvaluationContext context, @Nullable Object target, String name) {
+            return false;
+        }
+
+        @Override
+        public void write(EvaluationContext context, @Nullable Object target, String name, @Nullable Object newValue)
+                throws AccessException {
+            throw new AccessException("Property '%s' is read-only through getter method %s".formatted(name, method));
+        }
+
+        @Override
+        public boolean isCompilable() {
+            return isExported(method);
+        }
+
+        @Override
+        public Class<?> getPropertyType() {
+            return method.getReturnType();
+        }
+
+        @Override
+        public void generateCode(String propertyName, MethodVisitor mv, CodeFlow cf) {
+            var declaringClass = method.getDeclaringClass();
+            var classDesc = declaringClass.getName()
+                                          .replace('.', '/');
+            var descriptor = cf.lastDescriptor();
+            if (descriptor == null) cf.loadTarget(mv);
+            if (descriptor == null || !classDesc.equals(descriptor.substring(1)))
+                mv.visitTypeInsn(CHECKCAST, classDesc);
+            var isInterface = declaringClass.isInterface();
+            mv.visitMethodInsn(isInterface ? INVOKEINTERFACE : INVOKEVIRTUAL,
+                    classDesc,
+                    method.getName(),
+                    CodeFlow.createSignatureDescriptor(method),
+                    isInterface);
+        }
+    }
+}
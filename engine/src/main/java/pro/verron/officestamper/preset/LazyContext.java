@@ -0,0 +1,218 @@
+package pro.verron.officestamper.preset;
+
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.api.TemplateRequirements;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * A stamping context computing its properties only when an expression of the template reads them.
+ * <p>
+ * Each property holds a plain value, a {@link Supplier} or a {@link CompletableFuture}.
+ * A supplier is called the first time its property is read, and a future is awaited the first time its property is
+ * read; the value, or the failure, is then kept, so each source is called at most once per context.
+ * A supplier returning a future starts an asynchronous computation only when needed.
+ * A property only read in a paragraph removed by {@code displayParagraphIf(false)} is never computed.
+ * Properties are read through the {@link LazyContextAccessor}, registered by all the stampers; a property holding
+ * another lazy context reads its properties lazily as well.
+ * <p>
+ * The futures run in parallel by nature, since they are started before stamping.
+ * To also compute the suppliers a template needs in parallel, rather than one after the other as the placeholders are
+ * met, call {@link #prefetch(TemplateRequirements, Executor)} with the requirements found by a
+ * {@link pro.verron.officestamper.api.TemplateIntrospector} before stamping.
+ * <p>
+ * The kept values make a lazy context meant for a single stamping: create one per document.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public final class LazyContext {
+
+    private final Map<String, Object> sources;
+    private final Map<String, CompletableFuture<Object>> values = new ConcurrentHashMap<>();
+
+    private LazyContext(Map<String, Object> sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * Creates a lazy context with the given properties.
+     *
+     * @param properties the properties, by name, holding plain values, suppliers or futures.
+     *
+     * @return a new lazy context
+     */
+    public static LazyContext of(Map<String, ?> properties) {
+        return new LazyContext(new LinkedHashMap<>(properties));
+    }
+
+    /**
+     * Creates a lazy context without properties, to be filled with {@link #with(String, Object)}.
+     *
+     * @return a new lazy context
+     */
+    public static LazyContext empty() {
+        return new LazyContext(new LinkedHashMap<>());
+    }
+
+    /**
+     * Adds a property to this context.
+     *
+     * @param name   the name of the property.
+     * @param source a plain value, a supplier or a future.
+     *
+     * @return this context
+     */
+    public LazyContext with(String name, Object source) {
+        sources.put(name, source);
+        return this;
+    }
+
+    /**
+     * Returns whether this context holds a property.
+     *
+     * @param name the name of the property.
+     *
+     * @return whether the property exists, computed or not.
+     */
+    public boolean has(String name) {
+        return sources.containsKey(name);
+    }
+
+    /**
+     * Returns the names of the properties of this context.
+     *
+     * @return the names, in their insertion order.
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(sources.keySet());
+    }
+
+    /**
+     * Reads a property, computing it if it was not read before.
+     *
+     * @param name the name of the property.
+     *
+     * @return the value of the property, the value supplied, or the result of the future.
+     *
+     * @throws OfficeStamperException if the property does not exist, or if its source failed, an {@link Error} thrown
+     *                                by its source being rethrown as is.
+     */
+    public Object get(String name) {
+        if (!sources.containsKey(name))
+            throw new OfficeStamperException("Lazy context has no property '%s'".formatted(name));
+        var created = new CompletableFuture<>();
+        var value = values.putIfAbsent(name, created);
+        if (value == null) {
+            start(name, created, Runnable::run);
+            value = created;
+        }
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error error) throw error;
+            throw new OfficeStamperException("Lazy property '%s' failed".formatted(name), e.getCause());
+        }
+    }
+
+    /**
+     * Returns whether a property has been computed, or is being computed.
+     *
+     * @param name the name of the property.
+     *
+     * @return whether its source was called.
+     */
+    public boolean isComputed(String name) {
+        return values.containsKey(name);
+    }
+
+    /**
+     * Starts computing, in parallel, the suppliers of the properties a template reads, so that their values are
+     * ready, or being computed, when the stamping reads them.
+     * <p>
+     * The requirements are found statically: a property only read in a paragraph removed at stamping is computed
+     * anyway, which trades the laziness of such properties for the parallelism of the others.
+     *
+     * @param requirements the paths read by the template to stamp.
+     * @param executor     the executor running the suppliers.
+     *
+     * @return this context
+     */
+    public LazyContext prefetch(TemplateRequirements requirements, Executor executor) {
+        requirements.paths()
+                    .stream()
+                    .map(LazyContext::root)
+                    .distinct()
+                    .filter(sources::containsKey)
+                    .forEach(name -> {
+                        var created = new CompletableFuture<>();
+                        if (values.putIfAbsent(name, created) == null) start(name, created, executor);
+                    });
+        return this;
+    }
+
+    /**
+     * Starts computing, in parallel on virtual threads, the suppliers of the properties a template reads, see
+     * {@link #prefetch(TemplateRequirements, Executor)}.
+     *
+     * @param requirements the paths read by the template to stamp.
+     *
+     * @return this context
+     */
+    public LazyContext prefetch(TemplateRequirements requirements) {
+        return prefetch(requirements, task -> Thread.ofVirtual()
+                                                    .start(task));
+    }
+
+    private static String root(String path) {
+        var end = path.length();
+        var dot = path.indexOf('.');
+        var bracket = path.indexOf('[');
+        if (dot >= 0) end = dot;
+        if (bracket >= 0 && bracket < end) end = bracket;
+        return path.substring(0, end);
+    }
+
+    private void start(String name, CompletableFuture<Object> value, Executor executor) {
+        var source = sources.get(name);
+        if (source instanceof CompletableFuture<?> future) relay(future, value);
+        else if (source instanceof Supplier<?> supplier) {
+            try {
+                executor.execute(() -> {
+                    // any failure completes the value, so a reader never waits for a supplier that died
+                    try {
+                        var supplied = supplier.get();
+                        if (supplied instanceof CompletableFuture<?> future) relay(future, value);
+                        else value.complete(supplied);
+                    } catch (Throwable e) {
+                        value.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                value.completeExceptionally(e);
+            }
+        }
+        else value.complete(source);
+    }
+
+    private static void relay(CompletableFuture<?> future, CompletableFuture<Object> value) {
+        future.whenComplete((result, failure) -> {
+            if (failure == null) value.complete(result);
+            else value.completeExceptionally(failure instanceof CompletionException e && e.getCause() != null
+                    ? e.getCause()
+                    : failure);
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "LazyContext" + sources.keySet();
+    }
+}
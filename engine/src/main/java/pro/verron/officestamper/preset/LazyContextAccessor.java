@@ -0,0 +1,55 @@
+package pro.verron.officestamper.preset;
+
+import org.springframework.expression.AccessException;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypedValue;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.OfficeStamperException;
+
+/**
+ * A {@link PropertyAccessor} reading the properties of a {@link LazyContext}, computing them on their first read.
+ * <p>
+ * Reading a property the context does not hold is left to the other accessors, so a lenient stamper still reports it
+ * as missing.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public class LazyContextAccessor
+        implements PropertyAccessor {
+
+    @Override
+    public Class<?>[] getSpecificTargetClasses() {
+        return new Class<?>[]{LazyContext.class};
+    }
+
+    @Override
+    public boolean canRead(EvaluationContext context, @Nullable Object target, String name) {
+        return target instanceof LazyContext lazy && lazy.has(name);
+    }
+
+    @Override
+    public TypedValue read(EvaluationContext context, @Nullable Object target, String name)
+            throws AccessException {
+        if (!(target instanceof LazyContext lazy) || !lazy.has(name))
+            throw new AccessException("Lazy context has no property '%s'".formatted(name));
+        try {
+            return new TypedValue(lazy.get(name));
+        } catch (OfficeStamperException e) {
+            throw new AccessException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean canWrite(EvaluationContext context, @Nullable Object target, String name) {
+        return false;
+    }
+
+    @Override
+    public void write(EvaluationContext context, @Nullable Object target, String name, @Nullable Object newValue)
+            throws AccessException {
+        throw new AccessException("Cannot write the lazy property '%s'".formatted(name));
+    }
+}
@@ -1,16 +1,24 @@
 package pro.verron.officestamper.preset;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.AccessException;
 import org.springframework.expression.EvaluationContext;
-import org.springframework.expression.PropertyAccessor;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
+import org.springframework.expression.spel.CompilablePropertyAccessor;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 
 import java.util.Map;
 
+/**
+ * A property accessor reading and writing the entries of a {@link Map} as properties.
+ * <p>
+ * Reading a missing key fails, so that other accessors can have a try.
+ * The accessor is compilable, compiled expressions read the entries with {@link Map#get(Object)}.
+ */
 public class MapAccessor
-        implements PropertyAccessor {
+        implements CompilablePropertyAccessor {
 
     @Override
     public Class<?>[] getSpecificTargetClasses() {
@@ -47,6 +55,29 @@ public class MapAccessor
         map.put(name, newValue);
     }
 
+    @Override
+    public boolean isCompilable() {
+        return true;
+    }
+
+    @Override
+    public Class<?> getPropertyType() {
+        return Object.class;
+    }
+
+    @Override
+    public void generateCode(String propertyName, MethodVisitor mv, CodeFlow cf) {
+        String descriptor = cf.lastDescriptor();
+        if (descriptor == null) {
+            cf.loadTarget(mv);
+        }
+        if (descriptor == null || !"Ljava/util/Map".equals(descriptor)) {
+            mv.visitTypeInsn(CHECKCAST, "java/util/Map");
+        }
+        mv.visitLdcInsn(propertyName);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Map", "get", "(Ljava/lang/Object;)Ljava/lang/Object;", true);
+    }
+
     /**
      * Exception thrown from {@code read} in order to reset a cached
      * PropertyAccessor, allowing other accessors to have a try.
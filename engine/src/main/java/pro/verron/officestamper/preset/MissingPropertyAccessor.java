@@ -0,0 +1,83 @@
+package pro.verron.officestamper.preset;
+
+import org.springframework.expression.AccessException;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypedValue;
+import org.springframework.lang.Nullable;
+
+/**
+ * A last resort {@link PropertyAccessor} reading a {@link Missing} sentinel instead of failing.
+ * <p>
+ * Tried after all the other accessors, it answers for the properties none of them could read, either because
+ * the property does not exist on the target, or because the target is null.
+ * Reading a property on a sentinel returns the same sentinel, so a path like {@code customer.address.city} reports
+ * its first missing step.
+ * This lets the stamper detect unresolved placeholders without building an exception for each of them.
+ * <p>
+ * With lenient property access, the stamper only adds it when evaluating the placeholders made of a single property
+ * path, so the sentinel is always the value of the whole placeholder.
+ * Registered in a context for any other expression, the sentinel would flow into operators and method arguments as
+ * an ordinary value.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public class MissingPropertyAccessor
+        implements PropertyAccessor {
+
+    @Override
+    public Class<?>[] getSpecificTargetClasses() {
+        return null;
+    }
+
+    @Override
+    public boolean canRead(EvaluationContext context, @Nullable Object target, String name) {
+        return true;
+    }
+
+    @Override
+    public TypedValue read(EvaluationContext context, @Nullable Object target, String name)
+            throws AccessException {
+        if (target instanceof Missing missing) return new TypedValue(missing);
+        // SpEL reuses the last accessor of a property without asking it again, while a map of the same class, for
+        // example, can hold the key this time: failing makes it look for the right accessor
+        for (var accessor : context.getPropertyAccessors()) {
+            if (accessor != this && accessor.canRead(context, target, name))
+                throw new AccessException("Property '%s' is not missing".formatted(name));
+        }
+        var type = target == null ? null : target.getClass();
+        return new TypedValue(new Missing(name, type));
+    }
+
+    @Override
+    public boolean canWrite(EvaluationContext context, @Nullable Object target, String name) {
+        return false;
+    }
+
+    @Override
+    public void write(EvaluationContext context, @Nullable Object target, String name, @Nullable Object newValue)
+            throws AccessException {
+        throw new AccessException("Cannot write missing property '%s'".formatted(name));
+    }
+
+    /**
+     * The value read for a property that could not be read.
+     *
+     * @param property the name of the first property that could not be read.
+     * @param type     the type of the object the property was read on, or null when it was read on null.
+     */
+    public record Missing(String property, @Nullable Class<?> type) {
+        /**
+         * Describes the reason why the property could not be read.
+         *
+         * @return a human-readable description of the missing property.
+         */
+        public String message() {
+            return type == null
+                    ? "Property '%s' cannot be read on null".formatted(property)
+                    : "Property '%s' cannot be found on type %s".formatted(property, type.getSimpleName());
+        }
+    }
+}
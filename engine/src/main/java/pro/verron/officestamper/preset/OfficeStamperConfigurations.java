@@ -2,6 +2,7 @@ package pro.verron.officestamper.preset;
 
 import pro.verron.officestamper.api.OfficeStamperConfiguration;
 import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.api.OutputCompression;
 import pro.verron.officestamper.core.DocxStamper;
 import pro.verron.officestamper.core.DocxStamperConfiguration;
 import pro.verron.officestamper.preset.CommentProcessorFactory.*;
@@ -48,6 +49,34 @@ public class OfficeStamperConfigurations {
         return configuration;
     }
 
+    /**
+     * Makes a configuration write the rows of {@code repeatTableRow} and the paragraphs of {@code repeatParagraph}
+     * one item at a time, while the stamped document is saved, instead of creating them all in memory.
+     * <p>
+     * The repeated items are only iterated when the document is written, so an {@link Iterable} larger than the
+     * memory can be repeated.
+     * The placeholders of the repeated content must not resolve to images.
+     * <p>
+     * The parts holding repeated content are always streamed into the zip stream on the stamping thread, since their
+     * content is stamped while it is written: never compressed into memory by the output executor, and deflated
+     * without compression rather than stored with {@link OutputCompression#STORED}, since a stored entry needs its
+     * size before its content.
+     * When the configuration has postprocessors, or when the document is stamped in place, the repeated content is
+     * created in the object model instead, so the postprocessors see it and the document can be saved by any means.
+     *
+     * @param configuration the configuration to update.
+     *
+     * @return the updated configuration
+     *
+     * @since 2.7.0
+     */
+    public static OfficeStamperConfiguration withStreamingRepeats(OfficeStamperConfiguration configuration) {
+        configuration.addCommentProcessor(IRepeatProcessor.class, RepeatProcessor::newStreamingInstance);
+        configuration.addCommentProcessor(IParagraphRepeatProcessor.class,
+                ParagraphRepeatProcessor::newStreamingInstance);
+        return configuration;
+    }
+
     /**
      * Creates a new standard OfficeStamperConfiguration.
      *
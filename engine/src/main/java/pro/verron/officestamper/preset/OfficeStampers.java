@@ -2,12 +2,22 @@ package pro.verron.officestamper.preset;
 
 import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import pro.verron.officestamper.api.MailMerger;
+import pro.verron.officestamper.api.MergeOptions;
 import pro.verron.officestamper.api.OfficeStamperConfiguration;
 import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.api.PackStamper;
+import pro.verron.officestamper.api.StagedStamper;
 import pro.verron.officestamper.api.StreamStamper;
+import pro.verron.officestamper.api.TemplateIntrospector;
+import pro.verron.officestamper.core.DocxMailMerger;
+import pro.verron.officestamper.core.DocxPackStamper;
+import pro.verron.officestamper.core.DocxStagedStamper;
 import pro.verron.officestamper.core.DocxStamper;
+import pro.verron.officestamper.core.ZipEntryPartStore;
 
 import java.io.InputStream;
+import java.util.concurrent.Executor;
 
 /**
  * Main class of the docx-stamper library.
@@ -46,13 +56,108 @@ public class OfficeStampers {
      */
     public static StreamStamper<WordprocessingMLPackage> docxStamper(
             OfficeStamperConfiguration config
+    ) {
+        return docxStamper(config, PackageLoading.EAGER);
+    }
+
+    /**
+     * Creates a new instance of the {@link DocxStamper} class with the specified {@link OfficeStamperConfiguration},
+     * loading the templates with the given mode.
+     *
+     * @param config  the configuration for the docx stamper
+     * @param loading how the templates are loaded, see {@link PackageLoading#LAZY} to keep the untouched parts
+     *                compressed
+     *
+     * @return a new instance of the {@link DocxStamper} class
+     */
+    public static StreamStamper<WordprocessingMLPackage> docxStamper(
+            OfficeStamperConfiguration config,
+            PackageLoading loading
     ) {
         return new StreamStamper<>(
-                OfficeStampers::loadWord,
+                switch (loading) {
+                    case EAGER -> OfficeStampers::loadWord;
+                    case LAZY -> ZipEntryPartStore::load;
+                },
                 new DocxStamper(config)
         );
     }
 
+    /**
+     * Creates a new mail merger, stamping one docx template with many contexts into a single document, or a few
+     * documents when the given limits are reached.
+     *
+     * @param config  the configuration used to stamp each record
+     * @param options how the records are separated, and when the merge rolls over to a new document
+     *
+     * @return a new instance of the {@link DocxMailMerger} class
+     */
+    public static MailMerger docxMailMerger(
+            OfficeStamperConfiguration config,
+            MergeOptions options
+    ) {
+        return new DocxMailMerger(config, options);
+    }
+
+    /**
+     * Creates a new staged stamper, resolving the expressions rooted in the given namespace once against a shared
+     * context, before stamping the rest of the template for each recipient.
+     *
+     * @param config    the configuration used by both stages
+     * @param namespace the name of the root property reading the shared context in the template, like
+     *                  {@code shared} in {@code ${shared.company.name}}
+     *
+     * @return a new instance of the {@link DocxStagedStamper} class
+     */
+    public static StagedStamper docxStagedStamper(
+            OfficeStamperConfiguration config,
+            String namespace
+    ) {
+        return new DocxStagedStamper(config, namespace);
+    }
+
+    /**
+     * Creates a new pack stamper, stamping several docx templates concurrently against the same context, on a
+     * virtual thread per template, and evaluating the expressions they share only once.
+     *
+     * @param config the configuration used to stamp each template
+     *
+     * @return a new instance of the {@link DocxPackStamper} class
+     */
+    public static PackStamper docxPackStamper(OfficeStamperConfiguration config) {
+        return new DocxPackStamper(config, null);
+    }
+
+    /**
+     * Creates a new pack stamper, stamping several docx templates concurrently against the same context, on the
+     * given executor, and evaluating the expressions they share only once.
+     *
+     * @param config   the configuration used to stamp each template
+     * @param executor runs the stamping of each template
+     *
+     * @return a new instance of the {@link DocxPackStamper} class
+     */
+    public static PackStamper docxPackStamper(
+            OfficeStamperConfiguration config,
+            Executor executor
+    ) {
+        return new DocxPackStamper(config, executor);
+    }
+
+    /**
+     * Creates a new template introspector, finding the property paths docx templates read from their context, with
+     * the expression parser of the given configuration. The analysis of a template is kept for the next templates
+     * with the same content.
+     *
+     * @param config the configuration of the stampers of the templates
+     *
+     * @return a new template introspector
+     */
+    public static TemplateIntrospector docxIntrospector(OfficeStamperConfiguration config) {
+        var stamper = new DocxStamper(config);
+        return template -> stamper.requirements(loadWord(template));
+    }
+
     private static WordprocessingMLPackage loadWord(InputStream is) {
         try {
             return WordprocessingMLPackage.load(is);
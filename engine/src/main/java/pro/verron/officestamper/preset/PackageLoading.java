@@ -0,0 +1,24 @@
+package pro.verron.officestamper.preset;
+
+/**
+ * How a {@link OfficeStampers#docxStamper(pro.verron.officestamper.api.OfficeStamperConfiguration, PackageLoading)}
+ * stamper loads its templates.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public enum PackageLoading {
+    /**
+     * Loads the templates with docx4j, inflating all the parts of the package in memory.
+     */
+    EAGER,
+    /**
+     * Keeps the templates compressed, and inflates a part only when it is unmarshalled or loaded.
+     * <p>
+     * The parts the stamping does not change, like the styles, numbering, themes, fonts and images, are never
+     * inflated in memory, and are written back unchanged, which reduces the load time and the heap used by the
+     * templates with many or large parts.
+     */
+    LAZY
+}
@@ -0,0 +1,224 @@
+package pro.verron.officestamper.preset;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
+import org.springframework.lang.Nullable;
+import pro.verron.officestamper.api.ExpressionEngine;
+
+import java.lang.reflect.Array;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * An {@link ExpressionEngine} evaluating plain property paths, like {@code customer.address.city},
+ * {@code items[0].name} or {@code labels['title']}, without going through the SpEL parser and its syntax tree.
+ * <p>
+ * A path starts with a property of the root, followed by properties, list or array indexes, and map keys between
+ * single quotes.
+ * Any other expression, including the paths holding spaces, operators, variables, method calls or keywords, is left
+ * to SpEL.
+ * <p>
+ * Properties are read through the property accessors of the evaluation context, tried in the order SpEL tries them,
+ * and the accessor reading a property is kept for the next reads of the same property on the same class, as SpEL
+ * does.
+ * The steps SpEL would handle differently, for example, reading a property of null, an index out of bounds, or a
+ * property without accessor, fall back to the SpEL evaluation, so that the lenient behaviors, the automatic growth of
+ * collections and the reported errors stay the ones of SpEL.
+ * SpEL then evaluates the whole path again, so the getters read before the failing step are called twice: the paths
+ * are assumed free of side effects, as they are when memoized.
+ *
+ * @author Joseph Verron
+ * @version ${version}
+ * @since 2.7.0
+ */
+public final class PathExpressionEngine
+        implements ExpressionEngine {
+
+    private static final Set<String> KEYWORDS = Set.of("and", "or", "not", "eq", "ne", "lt", "gt", "le", "ge", "div",
+            "mod", "instanceof", "matches", "between", "true", "false", "null", "new");
+    private static final Object UNSUPPORTED = new Object();
+
+    @Override
+    public Optional<CompiledExpression> compile(String expression) {
+        var steps = new ArrayList<Step>();
+        var index = identifier(expression, 0, steps);
+        while (index > 0 && index < expression.length()) {
+            var c = expression.charAt(index);
+            if (c == '.') index = identifier(expression, index + 1, steps);
+            else if (c == '[') index = indexer(expression, index + 1, steps);
+            else index = -1;
+        }
+        return index < 0 ? Optional.empty() : Optional.of(new Path(List.copyOf(steps)));
+    }
+
+    /**
+     * Reads a property name, and returns the index following it, or -1 when there is none.
+     */
+    private static int identifier(String expression, int start, List<Step> steps) {
+        var end = start;
+        while (end < expression.length() && isIdentifierPart(expression.charAt(end), end == start)) end++;
+        if (end == start) return -1;
+        var name = expression.substring(start, end);
+        if (KEYWORDS.contains(name.toLowerCase(Locale.ROOT))) return -1;
+        steps.add(new Property(name));
+        return end;
+    }
+
+    private static boolean isIdentifierPart(char c, boolean first) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$' || (!first && c >= '0'
+                                                                                            && c <= '9');
+    }
+
+    /**
+     * Reads an index or a quoted key, and returns the index following its closing bracket, or -1 when there is none.
+     */
+    private static int indexer(String expression, int start, List<Step> steps) {
+        var close = expression.indexOf(']', start);
+        if (close < 0) return -1;
+        var content = expression.substring(start, close);
+        if (content.length() >= 2 && content.startsWith("'") && content.endsWith("'")) {
+            var key = content.substring(1, content.length() - 1);
+            if (key.indexOf('\'') >= 0) return -1;
+            steps.add(new Key(key));
+            return close + 1;
+        }
+        if (content.isEmpty() || content.length() > 9) return -1;
+        for (int i = 0; i < content.length(); i++)
+            if (content.charAt(i) < '0' || content.charAt(i) > '9') return -1;
+        steps.add(new Index(Integer.parseInt(content)));
+        return close + 1;
+    }
+
+    /**
+     * Lists the accessors SpEL tries on a target class: the ones targeting exactly this class, then the ones
+     * targeting one of its supertypes, then the general ones.
+     */
+    private static List<PropertyAccessor> accessorsToTry(Class<?> type, List<PropertyAccessor> accessors) {
+        var exact = new ArrayList<PropertyAccessor>();
+        var inexact = new ArrayList<PropertyAccessor>();
+        var general = new ArrayList<PropertyAccessor>();
+        for (var accessor : accessors) {
+            var targets = accessor.getSpecificTargetClasses();
+            if (targets == null) {
+                general.add(accessor);
+                continue;
+            }
+            for (var target : targets) {
+                if (target == type) exact.add(accessor);
+                else if (target.isAssignableFrom(type)) inexact.add(accessor);
+            }
+        }
+        var result = new ArrayList<PropertyAccessor>(exact.size() + inexact.size() + general.size());
+        result.addAll(exact);
+        result.addAll(inexact);
+        result.addAll(general);
+        return result;
+    }
+
+    private sealed interface Step
+            permits Property, Index, Key {
+        /**
+         * Reads the step on a non-null target.
+         *
+         * @return the value read, or {@code UNSUPPORTED} to fall back to SpEL.
+         */
+        @Nullable Object read(EvaluationContext context, Object target);
+    }
+
+    /**
+     * A compiled path, evaluating its steps one after the other.
+     */
+    private record Path(List<Step> steps)
+            implements CompiledExpression {
+        @Override
+        public @Nullable Object evaluate(EvaluationContext context, Supplier<Object> fallback) {
+            var value = context.getRootObject()
+                               .getValue();
+            for (var step : steps) {
+                if (value == null) return fallback.get();
+                value = step.read(context, value);
+                if (value == UNSUPPORTED) return fallback.get();
+            }
+            return value;
+        }
+
+        @Override
+        public boolean isSideEffectFree() {
+            return true;
+        }
+    }
+
+    /**
+     * A property, read through the accessor found for the last class it was read on.
+     */
+    private static final class Property
+            implements Step {
+        private final String name;
+        @Nullable private volatile Cached cached;
+
+        private Property(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public @Nullable Object read(EvaluationContext context, Object target) {
+            // SpEL reads the static properties of a class target
+            if (target instanceof Class<?>) return UNSUPPORTED;
+            var type = target.getClass();
+            var current = cached;
+            if (current != null && current.type() == type) {
+                try {
+                    return current.accessor()
+                                  .read(context, target, name)
+                                  .getValue();
+                } catch (Exception e) {
+                    // like SpEL, a failing cached accessor might be stale, and another accessor can have a try
+                    cached = null;
+                }
+            }
+            try {
+                for (var accessor : accessorsToTry(type, context.getPropertyAccessors())) {
+                    if (!accessor.canRead(context, target, name)) continue;
+                    if (accessor instanceof ReflectivePropertyAccessor reflective)
+                        accessor = reflective.createOptimalAccessor(context, target, name);
+                    cached = new Cached(type, accessor);
+                    return accessor.read(context, target, name)
+                                   .getValue();
+                }
+                return UNSUPPORTED;
+            } catch (Exception e) {
+                throw new SpelEvaluationException(e, SpelMessage.EXCEPTION_DURING_PROPERTY_READ, name, e.getMessage());
+            }
+        }
+
+        private record Cached(Class<?> type, PropertyAccessor accessor) {}
+    }
+
+    /**
+     * An index of a list or an array.
+     */
+    private record Index(int index)
+            implements Step {
+        @Override
+        public @Nullable Object read(EvaluationContext context, Object target) {
+            if (target instanceof List<?> list) return index < list.size() ? list.get(index) : UNSUPPORTED;
+            if (target.getClass()
+                      .isArray()) return index < Array.getLength(target) ? Array.get(target, index) : UNSUPPORTED;
+            return UNSUPPORTED;
+        }
+    }
+
+    /**
+     * A key of a map.
+     */
+    private record Key(String key)
+            implements Step {
+        @Override
+        public @Nullable Object read(EvaluationContext context, Object target) {
+            return target instanceof Map<?, ?> map ? map.get(key) : UNSUPPORTED;
+        }
+    }
+}
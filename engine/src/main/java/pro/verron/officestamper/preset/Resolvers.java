@@ -180,5 +180,22 @@ public class Resolvers {
         return new ImageResolver();
     }
 
+    /**
+     * Returns an instance of {@link ObjectResolver} that resolves
+     * {@link Image} to an actual image in the resulting .docx document,
+     * resampled to the size it is displayed at.
+     * Large images shown small are then embedded with fewer pixels,
+     * which keeps the output files light.
+     *
+     * @param dpi the resolution of the resampled images, in dots per inch
+     *
+     * @return An instance of {@link ObjectResolver}
+     *
+     * @see Image#resampled(pro.verron.officestamper.api.DocxPart, int)
+     */
+    public static ObjectResolver image(int dpi) {
+        return new ImageResolver(dpi);
+    }
+
 
 }
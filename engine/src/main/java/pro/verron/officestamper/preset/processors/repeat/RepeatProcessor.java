@@ -4,7 +4,6 @@ import org.docx4j.TraversalUtil;
 import org.docx4j.XmlUtils;
 import org.docx4j.finders.ClassFinder;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
-import org.docx4j.wml.Comments;
 import org.docx4j.wml.P;
 import org.docx4j.wml.Tbl;
 import org.docx4j.wml.Tr;
@@ -12,6 +11,7 @@ import org.springframework.lang.Nullable;
 import pro.verron.officestamper.api.*;
 import pro.verron.officestamper.core.CommentUtil;
 import pro.verron.officestamper.core.StandardParagraph;
+import pro.verron.officestamper.core.StreamedRepeats;
 import pro.verron.officestamper.preset.CommentProcessorFactory;
 
 import java.math.BigInteger;
@@ -20,6 +20,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiFunction;
+import java.util.stream.StreamSupport;
 
 import static java.util.Collections.emptyList;
 import static java.util.Objects.requireNonNull;
@@ -37,15 +38,18 @@ public class RepeatProcessor
         implements CommentProcessorFactory.IRepeatProcessor {
 
     private final BiFunction<WordprocessingMLPackage, Tr, List<Tr>> nullSupplier;
+    private final boolean streaming;
     private Map<Tr, Iterable<Object>> tableRowsToRepeat = new HashMap<>();
     private Map<Tr, Comment> tableRowsCommentsToRemove = new HashMap<>();
 
     private RepeatProcessor(
             ParagraphPlaceholderReplacer placeholderReplacer,
-            BiFunction<WordprocessingMLPackage, Tr, List<Tr>> nullSupplier1
+            BiFunction<WordprocessingMLPackage, Tr, List<Tr>> nullSupplier1,
+            boolean streaming
     ) {
         super(placeholderReplacer);
         nullSupplier = nullSupplier1;
+        this.streaming = streaming;
     }
 
     /**
@@ -56,7 +60,24 @@ public class RepeatProcessor
      * @return A new RepeatProcessor.
      */
     public static CommentProcessor newInstance(ParagraphPlaceholderReplacer pr) {
-        return new RepeatProcessor(pr, (document, row) -> emptyList());
+        return new RepeatProcessor(pr, (document, row) -> emptyList(), false);
+    }
+
+    /**
+     * Creates a new RepeatProcessor writing the repeated rows one item at a time, while the document is saved.
+     * <p>
+     * The items are only iterated when the stamped document is written, each row is stamped and written before
+     * the next item is read, so a table can repeat more rows than fit in memory.
+     * The repeated rows are not visible to the postprocessors, and their placeholders must not resolve to images.
+     *
+     * @param pr The PlaceholderReplacer to use.
+     *
+     * @return A new streaming RepeatProcessor.
+     *
+     * @since 2.7.0
+     */
+    public static CommentProcessor newStreamingInstance(ParagraphPlaceholderReplacer pr) {
+        return new RepeatProcessor(pr, (document, row) -> emptyList(), true);
     }
 
     /** {@inheritDoc} */
@@ -74,33 +95,46 @@ public class RepeatProcessor
             int index = content.indexOf(row);
             content.remove(row);
 
+            Comment commentWrapper = requireNonNull(tableRowsCommentsToRemove.get(row));
+            BigInteger commentId = requireNonNull(commentWrapper.getComment()).getId();
             List<Tr> changes;
             if (expressionContexts == null) {
                 changes = nullSupplier.apply(source.document(), row);
             }
+            else if (streaming) {
+                var rows = StreamSupport.stream(expressionContexts.spliterator(), false)
+                                        .map(expressionContext -> List.of(repeatRow(source,
+                                                row,
+                                                commentId,
+                                                expressionContext)))
+                                        .iterator();
+                changes = List.of(StreamedRepeats.of(source.document())
+                                                 .deferRows(source.part(), rows));
+            }
             else {
                 changes = new ArrayList<>();
                 for (Object expressionContext : expressionContexts) {
-                    Tr rowClone = XmlUtils.deepCopy(row);
-                    Comment commentWrapper = requireNonNull(tableRowsCommentsToRemove.get(row));
-                    Comments.Comment comment = requireNonNull(commentWrapper.getComment());
-                    BigInteger commentId = comment.getId();
-                    CommentUtil.deleteCommentFromElements(rowClone.getContent(), commentId);
-                    var classFinder = new ClassFinder(P.class);
-                    TraversalUtil.visit(rowClone, classFinder);
-                    var objects = classFinder.results;
-                    for (Object object : objects) {
-                        P result = (P) object;
-                        StandardParagraph paragraph = StandardParagraph.from(source, result);
-                        placeholderReplacer.resolveExpressionsForParagraph(source, paragraph, expressionContext);
-                    }
-                    changes.add(rowClone);
+                    changes.add(repeatRow(source, row, commentId, expressionContext));
                 }
             }
             content.addAll(index, changes);
         }
     }
 
+    private Tr repeatRow(DocxPart source, Tr row, BigInteger commentId, Object expressionContext) {
+        Tr rowClone = XmlUtils.deepCopy(row);
+        CommentUtil.deleteCommentFromElements(rowClone.getContent(), commentId);
+        var classFinder = new ClassFinder(P.class);
+        TraversalUtil.visit(rowClone, classFinder);
+        var objects = classFinder.results;
+        for (Object object : objects) {
+            P result = (P) object;
+            StandardParagraph paragraph = StandardParagraph.from(source, result);
+            placeholderReplacer.resolveExpressionsForParagraph(source, paragraph, expressionContext);
+        }
+        return rowClone;
+    }
+
     /** {@inheritDoc} */
     @Override public void reset() {
         this.tableRowsToRepeat = new HashMap<>();
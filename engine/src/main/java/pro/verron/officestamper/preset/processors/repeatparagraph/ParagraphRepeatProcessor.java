@@ -7,10 +7,12 @@ import pro.verron.officestamper.api.*;
 import pro.verron.officestamper.core.CommentUtil;
 import pro.verron.officestamper.core.SectionUtil;
 import pro.verron.officestamper.core.StandardParagraph;
+import pro.verron.officestamper.core.StreamedRepeats;
 import pro.verron.officestamper.preset.CommentProcessorFactory;
 import pro.verron.officestamper.preset.Paragraphs;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -33,8 +35,11 @@ public class ParagraphRepeatProcessor
     /* TODO replace the mapping by a Paragraphs to List<Object> mapping to better reflect the change*/
     private Map<Paragraph, Paragraphs> pToRepeat = new HashMap<>();
 
-    private ParagraphRepeatProcessor(ParagraphPlaceholderReplacer placeholderReplacer) {
+    private final boolean streaming;
+
+    private ParagraphRepeatProcessor(ParagraphPlaceholderReplacer placeholderReplacer, boolean streaming) {
         super(placeholderReplacer);
+        this.streaming = streaming;
     }
 
     /// Creates a new instance of [CommentProcessor] using the provided [ParagraphPlaceholderReplacer].
@@ -43,7 +48,24 @@ public class ParagraphRepeatProcessor
     ///
     /// @return a new instance of [ParagraphRepeatProcessor].
     public static CommentProcessor newInstance(ParagraphPlaceholderReplacer placeholderReplacer) {
-        return new ParagraphRepeatProcessor(placeholderReplacer);
+        return new ParagraphRepeatProcessor(placeholderReplacer, false);
+    }
+
+    /// Creates a new instance of [CommentProcessor] writing the repeated paragraphs one item at a time, while the
+    /// document is saved.
+    ///
+    /// The items are only iterated when the stamped document is written, so a paragraph can be repeated more times
+    /// than fit in memory.
+    /// The repeated paragraphs are not visible to the postprocessors, and their placeholders must not resolve to
+    /// images.
+    ///
+    /// @param placeholderReplacer the replacer to use for processing paragraph placeholders.
+    ///
+    /// @return a new streaming instance of [ParagraphRepeatProcessor].
+    ///
+    /// @since 2.7.0
+    public static CommentProcessor newStreamingInstance(ParagraphPlaceholderReplacer placeholderReplacer) {
+        return new ParagraphRepeatProcessor(placeholderReplacer, true);
     }
 
     @Override public void repeatParagraph(Iterable<Object> objects) {
@@ -62,35 +84,62 @@ public class ParagraphRepeatProcessor
             var current = entry.getKey();
             var replacement = entry.getValue();
             var toRemove = replacement.elements(P.class);
-            var toAdd = generateParagraphsToAdd(document, replacement);
+            var toAdd = streaming
+                    ? List.of(StreamedRepeats.of(document.document())
+                                             .deferParagraphs(document.part(), streamParagraphsToAdd(document,
+                                                     replacement)))
+                    : generateParagraphsToAdd(document, replacement);
             current.replace(toRemove, toAdd);
         }
     }
 
     private List<P> generateParagraphsToAdd(DocxPart document, Paragraphs paragraphs) {
         var paragraphsToAdd = new LinkedList<P>();
-        for (var it = paragraphs.data(); it.hasNext(); ) {
-            Object expressionContext = it.next();
-            for (Object paragraphToClone : paragraphs.elements()) {
-                Object clone = XmlUtils.deepCopy(paragraphToClone);
-                var comment = paragraphs.comment();
-                var comment1 = comment.getComment();
-                var commentId = comment1.getId();
-                if (clone instanceof ContentAccessor contentAccessor) {
-                    CommentUtil.deleteCommentFromElements(contentAccessor.getContent(), commentId);
-                }
-                if (clone instanceof P p) {
-                    var paragraph = StandardParagraph.from(document, p);
-                    placeholderReplacer.resolveExpressionsForParagraph(document, paragraph, expressionContext);
-                    paragraphsToAdd.add(p);
-                }
+        for (var it = paragraphs.data(); it.hasNext(); )
+            paragraphsToAdd.addAll(generateParagraphs(document, paragraphs, it.next(), it.hasNext()));
+        return paragraphsToAdd;
+    }
+
+    private Iterator<List<P>> streamParagraphsToAdd(DocxPart document, Paragraphs paragraphs) {
+        var data = paragraphs.data();
+        return new Iterator<>() {
+            @Override public boolean hasNext() {
+                return data.hasNext();
+            }
+
+            @Override public List<P> next() {
+                var expressionContext = data.next();
+                return generateParagraphs(document, paragraphs, expressionContext, data.hasNext());
+            }
+        };
+    }
+
+    private LinkedList<P> generateParagraphs(
+            DocxPart document,
+            Paragraphs paragraphs,
+            Object expressionContext,
+            boolean hasNext
+    ) {
+        var paragraphsToAdd = new LinkedList<P>();
+        for (Object paragraphToClone : paragraphs.elements()) {
+            Object clone = XmlUtils.deepCopy(paragraphToClone);
+            var comment = paragraphs.comment();
+            var comment1 = comment.getComment();
+            var commentId = comment1.getId();
+            if (clone instanceof ContentAccessor contentAccessor) {
+                CommentUtil.deleteCommentFromElements(contentAccessor.getContent(), commentId);
             }
-            var sectPr = paragraphs.previousSectionBreak();
-            if (paragraphs.oddNumberOfBreaks() && sectPr.isPresent() && it.hasNext()) {
-                assert paragraphsToAdd.peekLast() != null : "There should be at least one ";
-                SectionUtil.applySectionBreakToParagraph(sectPr.get(), paragraphsToAdd.peekLast());
+            if (clone instanceof P p) {
+                var paragraph = StandardParagraph.from(document, p);
+                placeholderReplacer.resolveExpressionsForParagraph(document, paragraph, expressionContext);
+                paragraphsToAdd.add(p);
             }
         }
+        var sectPr = paragraphs.previousSectionBreak();
+        if (paragraphs.oddNumberOfBreaks() && sectPr.isPresent() && hasNext) {
+            assert paragraphsToAdd.peekLast() != null : "There should be at least one ";
+            SectionUtil.applySectionBreakToParagraph(sectPr.get(), paragraphsToAdd.peekLast());
+        }
         return paragraphsToAdd;
     }
 
@@ -6,6 +6,8 @@ import org.springframework.lang.Nullable;
 import pro.verron.officestamper.api.DocxPart;
 import pro.verron.officestamper.api.ObjectResolver;
 import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.api.TypeBasedResolver;
+import pro.verron.officestamper.core.ImagePreparation;
 import pro.verron.officestamper.preset.Image;
 
 /**
@@ -13,19 +15,46 @@ import pro.verron.officestamper.preset.Image;
  * type {@link Image}. An expression that resolves to an {@link Image}
  * object will be replaced by an actual image in the resulting .docx document.
  * The image will be put as an inline into the surrounding paragraph of text.
+ * When an image preparation executor is configured, the image is prepared on it and inserted once the
+ * placeholders of the current stamping stage are resolved.
  *
  * @author Joseph Verron
  * @version ${version}
  * @since 1.6.7
  */
 public class ImageResolver
-        implements ObjectResolver {
+        implements TypeBasedResolver {
+
+    @Nullable private final Integer resamplingDpi;
+
+    /**
+     * Creates a resolver inserting the images as they are.
+     */
+    public ImageResolver() {
+        this.resamplingDpi = null;
+    }
+
+    /**
+     * Creates a resolver resampling the images to the size they are displayed at, before inserting them.
+     *
+     * @param resamplingDpi the resolution of the resampled images, in dots per inch.
+     *
+     * @see Image#resampled(DocxPart, int)
+     */
+    public ImageResolver(int resamplingDpi) {
+        this.resamplingDpi = resamplingDpi;
+    }
 
     @Override
-    public boolean canResolve(@Nullable Object object) {
+    public final boolean canResolve(@Nullable Object object) {
         return object instanceof Image;
     }
 
+    @Override
+    public final boolean canResolve(Class<?> type) {
+        return Image.class.isAssignableFrom(type);
+    }
+
     @Override
     public R resolve(
             DocxPart document,
@@ -50,7 +79,8 @@ public class ImageResolver
      */
     private R resolve(DocxPart document, Image image) {
         try {
-            return image.newRun(document, "dummyFileName", "dummyAltText");
+            var inserted = resamplingDpi == null ? image : image.resampled(document, resamplingDpi);
+            return ImagePreparation.newRun(document, inserted, "dummyFileName", "dummyAltText");
         } catch (Exception e) {
             throw new OfficeStamperException("Error while adding image to document!", e);
         }
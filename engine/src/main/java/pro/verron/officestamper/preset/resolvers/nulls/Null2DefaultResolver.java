@@ -4,6 +4,7 @@ import org.docx4j.wml.R;
 import org.springframework.lang.Nullable;
 import pro.verron.officestamper.api.DocxPart;
 import pro.verron.officestamper.api.ObjectResolver;
+import pro.verron.officestamper.api.TypeBasedResolver;
 
 import static pro.verron.officestamper.utils.WmlFactory.newRun;
 
@@ -17,7 +18,7 @@ import static pro.verron.officestamper.utils.WmlFactory.newRun;
  * @since 1.6.7
  */
 public record Null2DefaultResolver(String text)
-        implements ObjectResolver {
+        implements TypeBasedResolver {
 
     /**
      * The Null2DefaultResolver class is an implementation of the ObjectResolver interface
@@ -34,6 +35,11 @@ public record Null2DefaultResolver(String text)
         return object == null;
     }
 
+    @Override
+    public boolean canResolve(Class<?> type) {
+        return false;
+    }
+
     @Override
     public R resolve(
             DocxPart document,
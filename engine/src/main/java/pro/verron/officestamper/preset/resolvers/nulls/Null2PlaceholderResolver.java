@@ -3,9 +3,9 @@ package pro.verron.officestamper.preset.resolvers.nulls;
 import org.docx4j.wml.R;
 import org.springframework.lang.Nullable;
 import pro.verron.officestamper.api.DocxPart;
-import pro.verron.officestamper.api.ObjectResolver;
 import pro.verron.officestamper.api.OfficeStamperException;
 import pro.verron.officestamper.api.Placeholder;
+import pro.verron.officestamper.api.TypeBasedResolver;
 
 import static pro.verron.officestamper.utils.WmlFactory.newRun;
 
@@ -18,7 +18,7 @@ import static pro.verron.officestamper.utils.WmlFactory.newRun;
  * @since 1.6.7
  */
 public class Null2PlaceholderResolver
-        implements ObjectResolver {
+        implements TypeBasedResolver {
 
     /* package */
     public Null2PlaceholderResolver() {
@@ -35,10 +35,15 @@ public class Null2PlaceholderResolver
     }
 
     @Override
-    public boolean canResolve(@Nullable Object object) {
+    public final boolean canResolve(@Nullable Object object) {
         return object == null;
     }
 
+    @Override
+    public final boolean canResolve(Class<?> type) {
+        return false;
+    }
+
     @Override
     public R resolve(
             DocxPart document,
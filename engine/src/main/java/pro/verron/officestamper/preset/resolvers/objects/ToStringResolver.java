@@ -4,6 +4,7 @@ import org.docx4j.wml.R;
 import org.springframework.lang.Nullable;
 import pro.verron.officestamper.api.DocxPart;
 import pro.verron.officestamper.api.ObjectResolver;
+import pro.verron.officestamper.api.TypeBasedResolver;
 
 import static pro.verron.officestamper.utils.WmlFactory.newRun;
 
@@ -17,12 +18,17 @@ import static pro.verron.officestamper.utils.WmlFactory.newRun;
  * * @since 1.6.7
  */
 public class ToStringResolver
-        implements ObjectResolver {
+        implements TypeBasedResolver {
     @Override
-    public boolean canResolve(@Nullable Object object) {
+    public final boolean canResolve(@Nullable Object object) {
         return object != null;
     }
 
+    @Override
+    public final boolean canResolve(Class<?> type) {
+        return true;
+    }
+
     @Override
     public R resolve(
             DocxPart document,
@@ -2,6 +2,7 @@ package pro.verron.officestamper.utils;
 
 import pro.verron.officestamper.api.OfficeStamperException;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.StringCharacterIterator;
@@ -26,6 +27,22 @@ public class ByteUtils {
         return encoder.encodeToString(digest);
     }
 
+    /// Computes the SHA-1 hash of the remaining bytes of the given buffer and encodes the result in Base64.
+    ///
+    /// The position of the buffer is left untouched, so a memory-mapped file is hashed without being copied on the
+    /// heap.
+    ///
+    /// @param buffer the input buffer to be hashed.
+    ///
+    /// @return the SHA-1 hash of the buffer content, encoded in Base64.
+    public static String sha1b64(ByteBuffer buffer) {
+        var messageDigest = findDigest();
+        var encoder = Base64.getEncoder();
+        messageDigest.update(buffer.duplicate());
+        var digest = messageDigest.digest();
+        return encoder.encodeToString(digest);
+    }
+
     private static MessageDigest findDigest() {
         try {
             return MessageDigest.getInstance("SHA-1");
@@ -236,9 +236,99 @@ public class WmlFactory {
             BinaryPartAbstractImage abstractImage,
             String filenameHint,
             String altText
+    ) {
+        var relationshipId = abstractImage.getRelLast()
+                                          .getId();
+        return newRun(maxWidth, abstractImage, relationshipId, filenameHint, altText);
+    }
+
+    /**
+     * Creates a new run containing an image, referenced through the given relationship of the part displaying it.
+     * <p>
+     * docx4j references the last relationship created to the image part, which is not the one of the displaying
+     * part when the image part is shared by several parts, like a header and the main document.
+     *
+     * @param maxWidth       the maximum width of the image, it can be null
+     * @param abstractImage  the binary part abstract image to be included in the run
+     * @param relationshipId the id of the relationship from the displaying part to the image part
+     * @param filenameHint   the filename hint for the image
+     * @param altText        the alternative text for the image
+     *
+     * @return a new run element containing the image
+     */
+    public static R newRun(
+            @Nullable Integer maxWidth,
+            BinaryPartAbstractImage abstractImage,
+            String relationshipId,
+            String filenameHint,
+            String altText
     ) {
         var inline = newInline(abstractImage, filenameHint, altText, maxWidth);
-        return newRun(newDrawing(inline));
+        return newRun(newDrawing(embed(inline, relationshipId)));
+    }
+
+    /**
+     * Creates a new run containing an image displayed at the given extents.
+     *
+     * @param abstractImage the binary part abstract image to be included in the run
+     * @param filenameHint  the filename hint for the image
+     * @param altText       the alternative text for the image
+     * @param cx            the displayed width of the image, in EMU
+     * @param cy            the displayed height of the image, in EMU
+     *
+     * @return a new run element containing the image
+     */
+    public static R newRun(
+            BinaryPartAbstractImage abstractImage,
+            String filenameHint,
+            String altText,
+            long cx,
+            long cy
+    ) {
+        var relationshipId = abstractImage.getRelLast()
+                                          .getId();
+        return newRun(abstractImage, relationshipId, filenameHint, altText, cx, cy);
+    }
+
+    /**
+     * Creates a new run containing an image displayed at the given extents, referenced through the given
+     * relationship of the part displaying it.
+     *
+     * @param abstractImage  the binary part abstract image to be included in the run
+     * @param relationshipId the id of the relationship from the displaying part to the image part
+     * @param filenameHint   the filename hint for the image
+     * @param altText        the alternative text for the image
+     * @param cx             the displayed width of the image, in EMU
+     * @param cy             the displayed height of the image, in EMU
+     *
+     * @return a new run element containing the image
+     */
+    public static R newRun(
+            BinaryPartAbstractImage abstractImage,
+            String relationshipId,
+            String filenameHint,
+            String altText,
+            long cx,
+            long cy
+    ) {
+        var id1 = RANDOM.nextLong(100_000L);
+        var id2 = RANDOM.nextInt(100_000);
+        try {
+            var inline = abstractImage.createImageInline(filenameHint, altText, id1, id2, cx, cy, false);
+            return newRun(newDrawing(embed(inline, relationshipId)));
+        } catch (Exception e) {
+            throw new OfficeStamperException(e);
+        }
+    }
+
+    private static Inline embed(Inline inline, String relationshipId) {
+        inline.getGraphic()
+              .getGraphicData()
+              .getPic()
+              .getBlipFill()
+              .getBlip()
+              .setEmbed(relationshipId);
+        return inline;
     }
 
     /**
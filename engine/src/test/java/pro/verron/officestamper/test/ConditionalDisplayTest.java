@@ -1,10 +1,15 @@
 package pro.verron.officestamper.test;
 
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
+import pro.verron.officestamper.preset.Image;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -13,6 +18,7 @@ import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standa
 import static pro.verron.officestamper.test.ContextFactory.mapContextFactory;
 import static pro.verron.officestamper.test.ContextFactory.objectContextFactory;
 import static pro.verron.officestamper.test.TestUtils.getResource;
+import static pro.verron.officestamper.test.TestUtils.makeResource;
 
 class ConditionalDisplayTest {
 
@@ -815,4 +821,31 @@ class ConditionalDisplayTest {
         var actual = stamper.stampAndLoadAndExtract(template, context);
         assertEquals(expected, actual);
     }
+
+    @DisplayName("Images of removed paragraphs should never be read")
+    @Test
+    void lazyImagesOfRemovedParagraphs()
+            throws IOException {
+        var path = Path.of("..", "test", "sources", "butterfly.png");
+        try (var channel = FileChannel.open(path)) {
+            var context = Map.of("removed",
+                    Image.of(() -> {throw new AssertionError("The image of a removed paragraph was read");}),
+                    "file",
+                    Image.of(path),
+                    "mapped",
+                    Image.of(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())));
+            var template = makeResource("""
+                    <1|>Removed ${removed}<|1><1|displayParagraphIf(false)>
+                    File ${file}
+                    Mapped ${mapped}
+                    """);
+            var stamper = new TestDocxStamper<>(standard());
+            var actual = stamper.stampAndLoadAndExtract(template, context);
+            var expected = """
+                    File /word/media/document_image_rId4.png:rId4:image/png:193.6kB:sha1=t8UNAmo7yJgZJk9g7pLLIb3AvCA=:cy=$d:5732145
+                    Mapped /word/media/document_image_rId4.png:rId4:image/png:193.6kB:sha1=t8UNAmo7yJgZJk9g7pLLIb3AvCA=:cy=$d:5732145
+                    """;
+            assertEquals(expected, actual);
+        }
+    }
 }
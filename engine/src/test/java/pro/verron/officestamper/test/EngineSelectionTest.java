@@ -0,0 +1,131 @@
+package pro.verron.officestamper.test;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.ObjectFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pro.verron.officestamper.api.EngineSelection;
+import pro.verron.officestamper.api.EngineSelection.Engine;
+import pro.verron.officestamper.api.OfficeStamperConfiguration;
+import pro.verron.officestamper.preset.ExceptionResolvers;
+import pro.verron.officestamper.preset.PackageLoading;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standardWithPreprocessing;
+import static pro.verron.officestamper.test.ContextFactory.objectContextFactory;
+import static pro.verron.officestamper.test.TestUtils.getResource;
+
+class EngineSelectionTest {
+
+    private static final String PLACEHOLDERS = "ExpressionReplacementWithFormattingTest.docx";
+    private static final String COMMENTS = "ConditionalDisplayTest.docx";
+
+    private static OfficeStamperConfiguration automatic(
+            OfficeStamperConfiguration configuration,
+            List<EngineSelection> selections
+    ) {
+        return configuration.setExceptionResolver(ExceptionResolvers.passing())
+                            .setAutomaticEngineSelection(true)
+                            .setEngineSelectionListener(selections::add);
+    }
+
+    private static String stamp(OfficeStamperConfiguration configuration, PackageLoading loading, String template) {
+        var context = objectContextFactory().name("Homer Simpson");
+        return new TestDocxStamper<>(configuration, loading).stampAndLoadAndExtract(getResource(template), context);
+    }
+
+    @DisplayName("Templates only holding placeholders should be streamed, and analyzed once per stamper")
+    @Test
+    void placeholdersAreStreamed() {
+        var selections = new ArrayList<EngineSelection>();
+        var configuration = automatic(standard(), selections);
+        var expected = stamp(standard().setExceptionResolver(ExceptionResolvers.passing()),
+                PackageLoading.EAGER,
+                PLACEHOLDERS);
+
+        var context = objectContextFactory().name("Homer Simpson");
+        var lazy = new TestDocxStamper<>(configuration, PackageLoading.LAZY);
+        assertEquals(expected, lazy.stampAndLoadAndExtract(getResource(PLACEHOLDERS), context));
+        assertEquals(expected, lazy.stampAndLoadAndExtract(getResource(PLACEHOLDERS), context));
+        assertEquals(expected, stamp(configuration, PackageLoading.EAGER, PLACEHOLDERS));
+
+        assertEquals(3, selections.size());
+        assertTrue(selections.stream()
+                             .allMatch(selection -> selection.engine() == Engine.STREAMING));
+        assertEquals(List.of(false, true, false),
+                selections.stream()
+                          .map(EngineSelection::cached)
+                          .toList());
+        assertEquals(1,
+                selections.stream()
+                          .map(EngineSelection::template)
+                          .distinct()
+                          .count());
+    }
+
+    @DisplayName("Templates holding comments should be stamped on their object model")
+    @Test
+    void commentsNeedTheObjectModel() {
+        var selections = new ArrayList<EngineSelection>();
+        var expected = stamp(standard().setExceptionResolver(ExceptionResolvers.passing()),
+                PackageLoading.LAZY,
+                COMMENTS);
+        assertEquals(expected, stamp(automatic(standard(), selections), PackageLoading.LAZY, COMMENTS));
+
+        var selection = selections.getFirst();
+        assertEquals(Engine.DOM, selection.engine());
+        assertEquals("the template holds comments", selection.reason());
+    }
+
+    @DisplayName("Inline processors split across runs should be stamped on their object model")
+    @Test
+    void splitInlineProcessors()
+            throws Docx4JException {
+        var document = WordprocessingMLPackage.createPackage();
+        var factory = new ObjectFactory();
+        var paragraph = factory.createP();
+        for (var text : List.of("#", "{displayParagraphIf(false)}", "Hidden")) {
+            var run = factory.createR();
+            var t = factory.createText();
+            t.setValue(text);
+            run.getContent()
+               .add(t);
+            paragraph.getContent()
+                     .add(run);
+        }
+        var mainPart = document.getMainDocumentPart();
+        mainPart.getContent()
+                .add(paragraph);
+        mainPart.addParagraphOfText("Visible");
+        var template = new ByteArrayOutputStream();
+        document.save(template);
+
+        var selections = new ArrayList<EngineSelection>();
+        var configuration = automatic(standard(), selections);
+        var context = objectContextFactory().name("Homer Simpson");
+        var actual = new TestDocxStamper<>(configuration, PackageLoading.LAZY).stampAndLoadAndExtract(new ByteArrayInputStream(
+                template.toByteArray()), context);
+        assertEquals("Visible\n", actual);
+        var selection = selections.getFirst();
+        assertEquals(Engine.DOM, selection.engine());
+        assertEquals("the template holds inline processors", selection.reason());
+    }
+
+    @DisplayName("Configurations with preprocessors should stamp every template on its object model")
+    @Test
+    void preprocessorsNeedTheObjectModel() {
+        var selections = new ArrayList<EngineSelection>();
+        stamp(automatic(standardWithPreprocessing(), selections), PackageLoading.LAZY, PLACEHOLDERS);
+
+        var selection = selections.getFirst();
+        assertEquals(Engine.DOM, selection.engine());
+        assertEquals("the configuration has preprocessors", selection.reason());
+    }
+}
@@ -0,0 +1,110 @@
+package pro.verron.officestamper.test;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.EvaluationContext;
+import pro.verron.officestamper.api.ExpressionEngine;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.preset.ExpressionEngines;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.TestUtils.makeResource;
+
+class ExpressionEngineTest {
+
+    private static final String TEMPLATE = """
+            Dear ${name},
+            your first item is ${items[0].name}, for ${items[0].price} €.
+            Title: ${labels['title']}, shouted ${name.toUpperCase()}.
+            ${items.size()} items, the second one being ${items[1].name}
+            """;
+    private static final Order ORDER = new Order("Homer",
+            List.of(new Item("Donut", 2), new Item("Duff", 3)),
+            Map.of("title", "Mr."));
+
+    private static String stamp(ExpressionEngine engine, String template, Object context) {
+        var configuration = standard().setExpressionEngine(engine);
+        return new TestDocxStamper<>(configuration).stampAndLoadAndExtract(makeResource(template), context);
+    }
+
+    @DisplayName("The path engine should stamp like SpEL")
+    @Test
+    void sameAsSpel() {
+        var expected = """
+                Dear Homer,
+                your first item is Donut, for 2 €.
+                Title: Mr., shouted HOMER.
+                2 items, the second one being Duff
+                """;
+        assertEquals(expected, stamp(ExpressionEngines.spel(), TEMPLATE, ORDER));
+        assertEquals(expected, stamp(ExpressionEngines.paths(), TEMPLATE, ORDER));
+    }
+
+    @DisplayName("The path engine should evaluate the plain paths itself, and leave the other expressions to SpEL")
+    @Test
+    void pathsOnly() {
+        var compiled = new ArrayList<String>();
+        var fallbacks = new AtomicInteger();
+        var paths = ExpressionEngines.paths();
+        ExpressionEngine counting = expression -> paths.compile(expression)
+                                                       .map(path -> {
+                                                           compiled.add(expression);
+                                                           return (context, fallback) -> path.evaluate(context,
+                                                                   () -> {
+                                                                       fallbacks.incrementAndGet();
+                                                                       return fallback.get();
+                                                                   });
+                                                       });
+        stamp(counting, TEMPLATE, ORDER);
+        assertEquals(List.of("name", "items[0].name", "items[0].price", "labels['title']", "items[1].name"),
+                compiled);
+        assertEquals(0, fallbacks.get(), "Plain paths should not fall back to SpEL");
+    }
+
+    @DisplayName("The expressions an engine tells free of side effects should be memoized without SpEL parsing them")
+    @Test
+    void sideEffectFree() {
+        var evaluations = new AtomicInteger();
+        // not even valid SpEL, so only the engine can tell it is free of side effects
+        ExpressionEngine engine = expression -> Optional.of(new ExpressionEngine.CompiledExpression() {
+            @Override
+            public Object evaluate(EvaluationContext context, Supplier<Object> fallback) {
+                return "evaluated " + evaluations.incrementAndGet();
+            }
+
+            @Override
+            public boolean isSideEffectFree() {
+                return true;
+            }
+        });
+        var configuration = standard().setExpressionEngine(engine)
+                                      .setMemoizingExpressions(true);
+        var actual = new TestDocxStamper<>(configuration).stampAndLoadAndExtract(makeResource("${@@a} ${@@a}"),
+                ORDER);
+        assertEquals("evaluated 1 evaluated 1\n", actual);
+    }
+
+    @DisplayName("The path engine should report the errors of SpEL")
+    @Test
+    void sameErrors() {
+        var template = "Dear ${items[5].name} ${missing}";
+        var spel = assertThrows(OfficeStamperException.class,
+                () -> stamp(ExpressionEngines.spel(), template, ORDER));
+        var paths = assertThrows(OfficeStamperException.class,
+                () -> stamp(ExpressionEngines.paths(), template, ORDER));
+        assertEquals(spel.getMessage(), paths.getMessage());
+    }
+
+    public record Order(String name, List<Item> items, Map<String, String> labels) {}
+
+    public record Item(String name, int price) {}
+}
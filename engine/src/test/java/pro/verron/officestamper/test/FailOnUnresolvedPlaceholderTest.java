@@ -1,22 +1,29 @@
 package pro.verron.officestamper.test;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.expression.spel.SpelEvaluationException;
+import pro.verron.officestamper.api.ExceptionResolver;
 import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.api.Placeholder;
 import pro.verron.officestamper.preset.ExceptionResolvers;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
-import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.params.provider.Arguments.argumentSet;
 import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
 import static pro.verron.officestamper.test.ContextFactory.mapContextFactory;
 import static pro.verron.officestamper.test.ContextFactory.objectContextFactory;
 import static pro.verron.officestamper.test.TestUtils.getResource;
+import static pro.verron.officestamper.test.TestUtils.makeResource;
 
 
 /// @author Joseph Verron
@@ -50,4 +57,114 @@ class FailOnUnresolvedPlaceholderTest {
             assertDoesNotThrow(() -> stamper.stampAndLoad(template, context));
         }
     }
+
+    @MethodSource("factories")
+    @ParameterizedTest
+    void detectsMissingPropertiesWithoutExceptions(ContextFactory factory) {
+        var context = factory.name("Homer");
+        var causes = new ArrayList<Exception>();
+        var config = standard().setLenientPropertyAccess(true)
+                               .setExceptionResolver(new ExceptionResolver() {
+                                   @Override
+                                   public String resolve(Placeholder placeholder, String message, Exception cause) {
+                                       causes.add(cause);
+                                       return "error";
+                                   }
+
+                                   @Override public String resolveMissing(Placeholder placeholder, String message) {
+                                       return "missing";
+                                   }
+                               });
+        var template = makeResource("${name} ${nickname} ${nickname.initial} ${name.nickname} ${nickname.length()}");
+        var stamper = new TestDocxStamper<>(config);
+        var actual = stamper.stampAndLoadAndExtract(template, context);
+        assertEquals("Homer missing missing missing error\n", actual);
+        assertEquals(1, causes.size(), "Only the method call on a missing value should have thrown");
+    }
+
+    @MethodSource("factories")
+    @ParameterizedTest
+    void reportsMissingPropertiesWithinExpressionsAsUsual(ContextFactory factory) {
+        var context = factory.name("Homer");
+        var causes = new ArrayList<Exception>();
+        var config = standard().setLenientPropertyAccess(true)
+                               .setExceptionResolver(new ExceptionResolver() {
+                                   @Override
+                                   public String resolve(Placeholder placeholder, String message, Exception cause) {
+                                       causes.add(cause);
+                                       return "error";
+                                   }
+
+                                   @Override public String resolveMissing(Placeholder placeholder, String message) {
+                                       return "missing";
+                                   }
+                               });
+        var template = makeResource("""
+                Hello ${name + ' ' + nickname}
+                ${nickname != null ? 'has' : 'none'} ${nickname ?: 'anonymous'}
+                """);
+        var stamper = new TestDocxStamper<>(config);
+        var actual = stamper.stampAndLoadAndExtract(template, context);
+        assertEquals("""
+                Hello error
+                error error
+                """, actual);
+        assertEquals(3, causes.size());
+        assertTrue(causes.stream()
+                         .allMatch(SpelEvaluationException.class::isInstance),
+                () -> "Expected SpEL evaluation failures, got " + causes);
+    }
+
+    @MethodSource("factories")
+    @ParameterizedTest
+    void throwsOnMissingPropertiesWithinExpressions(ContextFactory factory) {
+        var context = factory.name("Homer");
+        var config = standard().setLenientPropertyAccess(true)
+                               .setExceptionResolver(ExceptionResolvers.throwing());
+        var stamper = new TestDocxStamper<>(config);
+        var concatenation = makeResource("Hello ${name + ' ' + nickname}");
+        assertThrows(OfficeStamperException.class, () -> stamper.stampAndLoadAndExtract(concatenation, context));
+        var ternary = makeResource("${nickname != null ? 'has' : 'none'}");
+        assertThrows(OfficeStamperException.class, () -> stamper.stampAndLoadAndExtract(ternary, context));
+    }
+
+    @MethodSource("factories")
+    @ParameterizedTest
+    void throwsMissingPropertiesOnce(ContextFactory factory) {
+        var context = factory.name("Homer");
+        var causes = new ArrayList<Exception>();
+        var config = standard().setLenientPropertyAccess(true)
+                               .setExceptionResolver(new ExceptionResolver() {
+                                   @Override
+                                   public String resolve(Placeholder placeholder, String message, Exception cause) {
+                                       causes.add(cause);
+                                       return "error";
+                                   }
+
+                                   @Override public String resolveMissing(Placeholder placeholder, String message) {
+                                       throw new OfficeStamperException(message);
+                                   }
+                               });
+        var template = makeResource("${nickname}");
+        var stamper = new TestDocxStamper<>(config);
+        var exception = assertThrows(OfficeStamperException.class,
+                () -> stamper.stampAndLoadAndExtract(template, context));
+        assertTrue(exception.getMessage()
+                            .contains("could not be resolved: "), exception.getMessage());
+        assertEquals(List.of(), causes, "The missing property should not be resolved again as a failure");
+    }
+
+    @Test
+    void readsPropertiesMissingOnlyFromSomeElements() {
+        var context = Map.of("people", List.of(Map.of("name", "Homer"), Map.of("name", "Bart", "nickname", "El Barto")));
+        var config = standard().setLenientPropertyAccess(true)
+                               .setExceptionResolver(ExceptionResolvers.passing());
+        var template = makeResource("<1|>${name} ${nickname}<|1><1|repeatParagraph(people)>");
+        var stamper = new TestDocxStamper<>(config);
+        var actual = stamper.stampAndLoadAndExtract(template, context);
+        assertEquals("""
+                Homer ${nickname}
+                Bart El Barto
+                """, actual);
+    }
 }
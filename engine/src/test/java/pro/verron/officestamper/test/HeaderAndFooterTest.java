@@ -1,12 +1,21 @@
 package pro.verron.officestamper.test;
 
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import pro.verron.officestamper.preset.ExceptionResolvers;
 
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -56,4 +65,70 @@ class HeaderAndFooterTest {
                 ----
                 """, actual);
     }
+
+    @DisplayName("An image used in both header and footer should be stored once")
+    @MethodSource("factories")
+    @ParameterizedTest
+    void sharedImage(ContextFactory factory)
+            throws IOException, Docx4JException {
+        var context = factory.imagedName("Homer Simpson", getImage(Path.of("butterfly.png")));
+        var template = getResource("ExpressionReplacementInHeaderAndFooterTest.docx");
+        var config = standard().setExceptionResolver(ExceptionResolvers.passing());
+        var stamper = new TestDocxStamper<>(config);
+        var document = stamper.stampAndLoad(template, context);
+        var images = document.getParts()
+                             .getParts()
+                             .values()
+                             .stream()
+                             .filter(BinaryPartAbstractImage.class::isInstance)
+                             .toList();
+        assertEquals(1, images.size());
+        var image = images.getFirst();
+        assertEquals(2, image.getSourceRelationships().size(), "Both header and footer should relate to the image");
+    }
+
+    @DisplayName("Each part should display a shared image through its own relationship")
+    @MethodSource("factories")
+    @ParameterizedTest
+    void sharedImageRelationships(ContextFactory factory)
+            throws IOException, Docx4JException {
+        var context = factory.imagedName("Homer Simpson", getImage(Path.of("butterfly.png")));
+        var template = getResource("ExpressionReplacementInHeaderAndFooterTest.docx");
+        var stamped = new AtomicReference<WordprocessingMLPackage>();
+        var config = standard().setExceptionResolver(ExceptionResolvers.passing());
+        config.addPostprocessor(stamped::set);
+        new TestDocxStamper<>(config).stampAndLoad(template, context);
+        var document = stamped.get();
+        var image = document.getParts()
+                            .getParts()
+                            .values()
+                            .stream()
+                            .filter(BinaryPartAbstractImage.class::isInstance)
+                            .map(BinaryPartAbstractImage.class::cast)
+                            .findFirst()
+                            .orElseThrow();
+        assertEquals(1, image.getRels().size(), "The relationships of the image part should be left to docx4j");
+        var embed = Pattern.compile("embed=\"([^\"]+)\"");
+        var displaying = Stream.of(Namespaces.HEADER, Namespaces.FOOTER)
+                               .flatMap(type -> document.getMainDocumentPart()
+                                                        .getRelationshipsPart()
+                                                        .getRelationshipsByType(type)
+                                                        .stream()
+                                                        .map(document.getMainDocumentPart()
+                                                                     .getRelationshipsPart()::getPart))
+                               .map(JaxbXmlPart.class::cast)
+                               .toList();
+        var embeds = 0;
+        for (var part : displaying) {
+            var matcher = embed.matcher(XmlUtils.marshaltoString(part.getJaxbElement()));
+            while (matcher.find()) {
+                var relationship = part.getRelationshipsPart()
+                                       .getRelationshipByID(matcher.group(1));
+                assertEquals(image, part.getRelationshipsPart()
+                                        .getPart(relationship), "Wrong image relationship in " + part.getPartName());
+                embeds++;
+            }
+        }
+        assertEquals(2, embeds);
+    }
 }
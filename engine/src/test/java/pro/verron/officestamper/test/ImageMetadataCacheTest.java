@@ -0,0 +1,70 @@
+package pro.verron.officestamper.test;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import pro.verron.officestamper.api.OfficeStamperConfiguration;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.preset.ExceptionResolvers;
+import pro.verron.officestamper.preset.ImageMetadata;
+
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.params.provider.Arguments.argumentSet;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.ContextFactory.mapContextFactory;
+import static pro.verron.officestamper.test.ContextFactory.objectContextFactory;
+import static pro.verron.officestamper.test.TestUtils.getImage;
+import static pro.verron.officestamper.test.TestUtils.getResource;
+
+class ImageMetadataCacheTest {
+
+    private static final String TEMPLATE = "ExpressionReplacementInHeaderAndFooterTest.docx";
+
+    static Stream<Arguments> factories() {
+        return Stream.of(argumentSet("obj", objectContextFactory()), argumentSet("map", mapContextFactory()));
+    }
+
+    private static OfficeStamperConfiguration config() {
+        return standard().setExceptionResolver(ExceptionResolvers.passing());
+    }
+
+    @DisplayName("Images created from the cached metadata should match the probed ones")
+    @MethodSource("factories")
+    @ParameterizedTest
+    void cachedImageMetadata(ContextFactory factory) {
+        var probing = new TestDocxStamper<>(config().setImageMetadataCapacity(0));
+        var context = factory.imagedName("Homer Simpson", getImage(Path.of("butterfly.png")));
+        var probed = probing.stampAndLoadAndExtract(getResource(TEMPLATE), context);
+        var stamper = new TestDocxStamper<>(config());
+        for (int i = 0; i < 2; i++) {
+            var actual = stamper.stampAndLoadAndExtract(getResource(TEMPLATE),
+                    factory.imagedName("Homer Simpson", getImage(Path.of("butterfly.png"))));
+            assertEquals(probed, actual);
+        }
+    }
+
+    @DisplayName("The image metadata cache capacity should not be negative")
+    @Test
+    void negativeImageMetadataCapacity() {
+        var configuration = standard();
+        var exception = assertThrows(OfficeStamperException.class,
+                () -> configuration.setImageMetadataCapacity(-1));
+        assertEquals("Cache capacity must not be negative, got -1", exception.getMessage());
+    }
+
+    @DisplayName("Stampers configured with the same capacity should share one image metadata cache")
+    @Test
+    void sharedCache() {
+        var cache = ImageMetadata.Cache.shared(ImageMetadata.Cache.DEFAULT_CAPACITY);
+        assertSame(cache, ImageMetadata.Cache.shared(standard().getImageMetadataCapacity()));
+        assertEquals(16, ImageMetadata.Cache.shared(16)
+                                            .capacity());
+    }
+}
@@ -0,0 +1,48 @@
+package pro.verron.officestamper.test;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import pro.verron.officestamper.api.OfficeStamperConfiguration;
+import pro.verron.officestamper.preset.ExceptionResolvers;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.params.provider.Arguments.argumentSet;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.ContextFactory.mapContextFactory;
+import static pro.verron.officestamper.test.ContextFactory.objectContextFactory;
+import static pro.verron.officestamper.test.TestUtils.getImage;
+import static pro.verron.officestamper.test.TestUtils.getResource;
+
+class ImagePreparationTest {
+
+    private static final String TEMPLATE = "ExpressionReplacementInHeaderAndFooterTest.docx";
+
+    static Stream<Arguments> factories() {
+        return Stream.of(argumentSet("obj", objectContextFactory()), argumentSet("map", mapContextFactory()));
+    }
+
+    private static OfficeStamperConfiguration config() {
+        return standard().setExceptionResolver(ExceptionResolvers.passing());
+    }
+
+    @DisplayName("Images prepared in parallel should be inserted as the sequential ones")
+    @MethodSource("factories")
+    @ParameterizedTest
+    void preparedImages(ContextFactory factory) {
+        var sequential = new TestDocxStamper<>(config());
+        var expected = sequential.stampAndLoadAndExtract(getResource(TEMPLATE),
+                factory.imagedName("Homer Simpson", getImage(Path.of("butterfly.png"))));
+        try (var executor = Executors.newFixedThreadPool(4)) {
+            var parallel = new TestDocxStamper<>(config().setImagePreparationExecutor(executor));
+            var actual = parallel.stampAndLoadAndExtract(getResource(TEMPLATE),
+                    factory.imagedName("Homer Simpson", getImage(Path.of("butterfly.png"))));
+            assertEquals(expected, actual);
+        }
+    }
+}
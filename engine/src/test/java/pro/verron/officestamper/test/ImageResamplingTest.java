@@ -0,0 +1,93 @@
+package pro.verron.officestamper.test;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import pro.verron.officestamper.preset.Image;
+import pro.verron.officestamper.preset.Resolvers;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.argumentSet;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.ContextFactory.mapContextFactory;
+import static pro.verron.officestamper.test.ContextFactory.objectContextFactory;
+import static pro.verron.officestamper.test.TestUtils.getImage;
+import static pro.verron.officestamper.test.TestUtils.getResource;
+
+class ImageResamplingTest {
+
+    static Stream<Arguments> images() {
+        return Stream.of(argumentSet("png", "butterfly.png"), argumentSet("jpeg", "map.jpg"));
+    }
+
+    private static long imageSize(ContextFactory factory, String image, TestDocxStamper<Object> stamper)
+            throws IOException, Docx4JException {
+        var context = factory.image(getImage(Path.of(image), 1000));
+        var template = getResource(Path.of("ImageReplacementInGlobalParagraphsTest.docx"));
+        var document = stamper.stampAndLoad(template, context);
+        return document.getParts()
+                       .getParts()
+                       .values()
+                       .stream()
+                       .filter(BinaryPartAbstractImage.class::isInstance)
+                       .map(BinaryPartAbstractImage.class::cast)
+                       .mapToLong(part -> part.getBytes().length)
+                       .sum();
+    }
+
+    private static String extract(ContextFactory factory, String image, TestDocxStamper<Object> stamper) {
+        var context = factory.image(getImage(Path.of(image), 1000));
+        var template = getResource(Path.of("ImageReplacementInGlobalParagraphsTest.docx"));
+        var text = stamper.stampAndLoadAndExtract(template, context);
+        // the content of the image changes, not its part, type or displayed size
+        return text.replaceAll(":[0-9.]+kB:sha1=[^:]+:", ":");
+    }
+
+    @DisplayName("Resampled images should be lighter and displayed at the same size")
+    @MethodSource("images")
+    @ParameterizedTest
+    void resampledImages(String image)
+            throws IOException, Docx4JException {
+        for (var factory : new ContextFactory[]{objectContextFactory(), mapContextFactory()}) {
+            var original = new TestDocxStamper<>(standard());
+            var resampled = new TestDocxStamper<>(standard().addResolver(Resolvers.image(96)));
+            assertEquals(extract(factory, image, original), extract(factory, image, resampled));
+            assertTrue(imageSize(factory, image, resampled) < imageSize(factory, image, original));
+        }
+    }
+
+    @DisplayName("Images that cannot be decoded should be inserted as they are")
+    @Test
+    void unreadableImages()
+            throws IOException, Docx4JException {
+        // the image ends right after its start of scan, so its size can be probed but its pixels cannot be decoded
+        var bytes = getResource(Path.of("map.jpg")).readAllBytes();
+        var scan = 0;
+        while ((bytes[scan] & 0xFF) != 0xFF || (bytes[scan + 1] & 0xFF) != 0xDA) scan++;
+        var unreadable = Arrays.copyOf(bytes, scan + 2);
+        var stamper = new TestDocxStamper<>(standard().addResolver(Resolvers.image(96)));
+        var template = getResource(Path.of("ImageReplacementInGlobalParagraphsTest.docx"));
+        var context = objectContextFactory().image(new Image(unreadable, 1000));
+        var document = stamper.stampAndLoad(template, context);
+        var images = document.getParts()
+                             .getParts()
+                             .values()
+                             .stream()
+                             .filter(BinaryPartAbstractImage.class::isInstance)
+                             .map(BinaryPartAbstractImage.class::cast)
+                             .map(BinaryPartAbstractImage::getBytes)
+                             .toList();
+        assertTrue(images.stream()
+                         .anyMatch(image -> Arrays.equals(unreadable, image)));
+    }
+}
@@ -0,0 +1,115 @@
+package pro.verron.officestamper.test;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.preset.LazyContext;
+import pro.verron.officestamper.preset.OfficeStampers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.TestUtils.makeResource;
+
+class LazyContextTest {
+
+    private static <T> Supplier<T> counting(AtomicInteger calls, T value) {
+        return () -> {
+            calls.incrementAndGet();
+            return value;
+        };
+    }
+
+    /// Each supplier waits for the other one to start, so they only complete when run in parallel.
+    private static String await(CountDownLatch started, String value) {
+        started.countDown();
+        try {
+            if (!started.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("Suppliers ran one by one");
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+
+    @DisplayName("Lazy properties should be computed once, and only when read")
+    @Test
+    void lazyProperties() {
+        var customerCalls = new AtomicInteger();
+        var auditCalls = new AtomicInteger();
+        var context = LazyContext.empty()
+                                 .with("customer", counting(customerCalls, new Customer("Homer", "Springfield")))
+                                 .with("audit", counting(auditCalls, "Audited"))
+                                 .with("total", CompletableFuture.completedFuture(42))
+                                 .with("showAudit", false);
+        var template = makeResource("""
+                Dear ${customer.name} from ${customer.city},
+                your total is ${total}, ${customer.name}.
+                <1|>Audit: ${audit}<|1><1|displayParagraphIf(showAudit)>
+                """);
+        var actual = new TestDocxStamper<>(standard()).stampAndLoadAndExtract(template, context);
+        assertEquals("""
+                Dear Homer from Springfield,
+                your total is 42, Homer.
+                """, actual);
+        assertEquals(1, customerCalls.get(), "The customer should be fetched once");
+        assertEquals(0, auditCalls.get(), "The audit of a removed paragraph should not be fetched");
+        assertFalse(context.isComputed("audit"));
+    }
+
+    @DisplayName("Prefetching should compute the suppliers a template reads in parallel")
+    @Test
+    void prefetch() {
+        var started = new CountDownLatch(2);
+        Supplier<String> first = () -> await(started, "Homer");
+        Supplier<String> second = () -> await(started, "Marge");
+        var template = "${first} and ${second}";
+        var requirements = OfficeStampers.docxIntrospector(standard())
+                                         .requirements(makeResource(template));
+        var context = LazyContext.of(Map.of("first", first, "second", second, "unused", first))
+                                 .prefetch(requirements);
+        var actual = new TestDocxStamper<>(standard()).stampAndLoadAndExtract(makeResource(template), context);
+        assertEquals("Homer and Marge\n", actual);
+        assertFalse(context.isComputed("unused"));
+    }
+
+    @DisplayName("A prefetched supplier throwing an error should fail its readers instead of blocking them")
+    @Test
+    void prefetchError() {
+        Supplier<String> broken = () -> {
+            throw new AssertionError("broken");
+        };
+        var requirements = OfficeStampers.docxIntrospector(standard())
+                                         .requirements(makeResource("${broken}"));
+        var context = LazyContext.of(Map.of("broken", broken))
+                                 .prefetch(requirements);
+        var error = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(AssertionError.class, () -> context.get("broken")));
+        assertEquals("broken", error.getMessage());
+    }
+
+    @DisplayName("A supplier rejected by the prefetching executor should fail its readers instead of blocking them")
+    @Test
+    void prefetchRejected() {
+        var requirements = OfficeStampers.docxIntrospector(standard())
+                                         .requirements(makeResource("${name}"));
+        var context = LazyContext.of(Map.of("name", (Supplier<String>) () -> "Homer"))
+                                 .prefetch(requirements, task -> {
+                                     throw new RejectedExecutionException("shut down");
+                                 });
+        var exception = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(OfficeStamperException.class, () -> context.get("name")));
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+    }
+
+    public record Customer(String name, String city) {}
+}
@@ -0,0 +1,60 @@
+package pro.verron.officestamper.test;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import pro.verron.officestamper.api.OfficeStamperConfiguration;
+import pro.verron.officestamper.preset.ExceptionResolvers;
+import pro.verron.officestamper.preset.PackageLoading;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.params.provider.Arguments.argumentSet;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.ContextFactory.mapContextFactory;
+import static pro.verron.officestamper.test.ContextFactory.objectContextFactory;
+import static pro.verron.officestamper.test.TestUtils.getImage;
+import static pro.verron.officestamper.test.TestUtils.getResource;
+
+class LazyLoadingTest {
+
+    private static final String TEMPLATE = "ExpressionReplacementInHeaderAndFooterTest.docx";
+
+    static Stream<Arguments> factories() {
+        return Stream.of(argumentSet("obj", objectContextFactory()), argumentSet("map", mapContextFactory()));
+    }
+
+    private static OfficeStamperConfiguration config() {
+        return standard().setExceptionResolver(ExceptionResolvers.passing());
+    }
+
+    @DisplayName("Lazily loaded templates should be stamped like eagerly loaded ones, keeping their untouched parts")
+    @MethodSource("factories")
+    @ParameterizedTest
+    void lazyLoading(ContextFactory factory)
+            throws IOException, Docx4JException {
+        var eager = new TestDocxStamper<>(config());
+        var expected = eager.stampAndLoadAndExtract(getResource(TEMPLATE),
+                factory.imagedName("Homer Simpson", getImage(Path.of("butterfly.png"))));
+        var lazy = new TestDocxStamper<>(config(), PackageLoading.LAZY);
+        var actual = lazy.stampAndLoadAndExtract(getResource(TEMPLATE),
+                factory.imagedName("Homer Simpson", getImage(Path.of("butterfly.png"))));
+        assertEquals(expected, actual);
+
+        var stamped = lazy.stampAndLoad(getResource(TEMPLATE),
+                factory.imagedName("Homer Simpson", getImage(Path.of("butterfly.png"))));
+        var original = WordprocessingMLPackage.load(getResource(TEMPLATE));
+        assertEquals(original.getMainDocumentPart()
+                             .getStyleDefinitionsPart()
+                             .getXML(),
+                stamped.getMainDocumentPart()
+                       .getStyleDefinitionsPart()
+                       .getXML());
+    }
+}
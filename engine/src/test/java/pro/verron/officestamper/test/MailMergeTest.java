@@ -0,0 +1,209 @@
+package pro.verron.officestamper.test;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pro.verron.officestamper.api.MergeOptions;
+import pro.verron.officestamper.api.MergeOptions.Separator;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.preset.ExceptionResolvers;
+import pro.verron.officestamper.preset.OfficeStampers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.withStreamingRepeats;
+import static pro.verron.officestamper.test.ContextFactory.objectContextFactory;
+import static pro.verron.officestamper.test.TestUtils.getImage;
+import static pro.verron.officestamper.test.TestUtils.getResource;
+import static pro.verron.officestamper.test.TestUtils.makeResource;
+
+class MailMergeTest {
+
+    private static final String DISPLAY_TEMPLATE = "ConditionalDisplayTest.docx";
+    private static final String IMAGE_TEMPLATE = "ImageReplacementInGlobalParagraphsTest.docx";
+    private static final String HEADER_TEMPLATE = "ExpressionReplacementInHeaderAndFooterTest.docx";
+
+    private static WordprocessingMLPackage load(byte[] docx)
+            throws Docx4JException {
+        return WordprocessingMLPackage.load(new ByteArrayInputStream(docx));
+    }
+
+    private static String extract(WordprocessingMLPackage document) {
+        return new Stringifier(() -> document).stringify(document);
+    }
+
+    private static String extract(Object context) {
+        return new TestDocxStamper<>(standard()).stampAndLoadAndExtract(getResource(Path.of(DISPLAY_TEMPLATE)),
+                context);
+    }
+
+    private static int occurrences(String text, String token) {
+        return text.split(Pattern.quote(token), -1).length - 1;
+    }
+
+    @DisplayName("Records should be stamped one after the other in a single document")
+    @Test
+    void mergeRecords()
+            throws Docx4JException {
+        var factory = objectContextFactory();
+        for (var separator : Separator.values()) {
+            var merger = OfficeStampers.docxMailMerger(standard(), MergeOptions.defaults()
+                                                                               .withSeparator(separator));
+            var out = new ByteArrayOutputStream();
+            merger.merge(getResource(Path.of(DISPLAY_TEMPLATE)),
+                    Stream.of(factory.name("Bart"), factory.name("Homer"), factory.name("Bart")),
+                    out);
+            var merged = extract(load(out.toByteArray()));
+            var bart = extract(factory.name("Bart"));
+            var homer = extract(factory.name("Homer"));
+            assertEquals(3, occurrences(merged, "== Conditional Display"));
+            for (var token : new String[]{"is “Bart”", "is “Homer”", "is not null"})
+                assertEquals(2 * occurrences(bart, token) + occurrences(homer, token), occurrences(merged, token));
+        }
+    }
+
+    @DisplayName("Placeholders left in streamed repeats should be summarized once their rows are written")
+    @Test
+    void streamedSummary() {
+        var config = withStreamingRepeats(standard().setLenientPropertyAccess(true)
+                                                    .setExceptionResolver(ExceptionResolvers.passing()));
+        var template = makeResource("<1|>${name} ${nickname}<|1><1|repeatParagraph(people)>");
+        var people = Map.of("people", List.of(Map.of("name", "Homer")));
+        var err = System.err;
+        var log = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(log, true, UTF_8));
+        try {
+            OfficeStampers.docxMailMerger(config, MergeOptions.defaults())
+                          .merge(template, Stream.of(people), new ByteArrayOutputStream());
+        } finally {
+            System.setErr(err);
+        }
+        assertTrue(log.toString(UTF_8)
+                      .contains("could not be resolved"), log.toString(UTF_8));
+    }
+
+    @DisplayName("Images should be stored once per distinct content across records")
+    @Test
+    void deduplicatedImages()
+            throws Docx4JException {
+        var factory = objectContextFactory();
+        var out = new ByteArrayOutputStream();
+        OfficeStampers.docxMailMerger(standard(), MergeOptions.defaults())
+                      .merge(getResource(Path.of(IMAGE_TEMPLATE)),
+                              Stream.of(factory.image(getImage(Path.of("butterfly.png"))),
+                                      factory.image(getImage(Path.of("map.jpg"))),
+                                      factory.image(getImage(Path.of("butterfly.png")))),
+                              out);
+        var document = load(out.toByteArray());
+        var images = document.getParts()
+                             .getParts()
+                             .values()
+                             .stream()
+                             .filter(BinaryPartAbstractImage.class::isInstance)
+                             .toList();
+        assertEquals(2, images.size());
+        var merged = extract(document);
+        for (var image : images)
+            assertTrue(merged.contains(image.getPartName()
+                                            .getName()), image.getPartName() + " should be displayed");
+    }
+
+    /// The template holds four page breaks, so each record is estimated to five pages.
+    @DisplayName("A merge should roll over to a new document once its page limit is reached")
+    @Test
+    void rollOver()
+            throws Docx4JException {
+        var factory = objectContextFactory();
+        var outputs = new ArrayList<ByteArrayOutputStream>();
+        var merger = OfficeStampers.docxMailMerger(standard(), MergeOptions.defaults()
+                                                                           .withMaxPages(10));
+        var files = merger.merge(getResource(Path.of(DISPLAY_TEMPLATE)),
+                Stream.of("Bart", "Homer", "Bart", "Homer", "Bart")
+                      .map(factory::name),
+                index -> {
+                    var out = new ByteArrayOutputStream();
+                    outputs.add(out);
+                    return out;
+                });
+        assertEquals(3, files);
+        assertEquals(3, outputs.size());
+        var records = 0;
+        for (var output : outputs)
+            records += occurrences(extract(load(output.toByteArray())), "== Conditional Display");
+        assertEquals(5, records);
+    }
+
+    @DisplayName("Records separated by section breaks should keep their own headers and footers")
+    @Test
+    void sectionHeaders()
+            throws Docx4JException {
+        var factory = objectContextFactory();
+        var butterfly = getImage(Path.of("butterfly.png"));
+        var config = standard().setExceptionResolver(ExceptionResolvers.passing());
+        var out = new ByteArrayOutputStream();
+        OfficeStampers.docxMailMerger(config, MergeOptions.defaults())
+                      .merge(getResource(Path.of(HEADER_TEMPLATE)),
+                              Stream.of(factory.imagedName("Homer", butterfly),
+                                      factory.imagedName("Bart", butterfly),
+                                      factory.imagedName("Homer", butterfly)),
+                              out);
+        var merged = extract(load(out.toByteArray()));
+        var homer = "the variable name should be resolved to the value Homer.";
+        var bart = "the variable name should be resolved to the value Bart.";
+        // the third record reuses the header and footer of the first one
+        assertEquals(2, occurrences(merged, homer), merged);
+        assertEquals(2, occurrences(merged, bart), merged);
+        assertEquals(2, occurrences(merged, "[header, name="), merged);
+        assertEquals(2, occurrences(merged, "[footer, name="), merged);
+    }
+
+    @DisplayName("Records separated by page breaks should fail on different headers and footers")
+    @Test
+    void pageHeaders() {
+        var factory = objectContextFactory();
+        var butterfly = getImage(Path.of("butterfly.png"));
+        var config = standard().setExceptionResolver(ExceptionResolvers.passing());
+        var merger = OfficeStampers.docxMailMerger(config, MergeOptions.defaults()
+                                                                       .withSeparator(Separator.PAGE_BREAK));
+        var same = new ByteArrayOutputStream();
+        merger.merge(getResource(Path.of(HEADER_TEMPLATE)),
+                Stream.of(factory.imagedName("Homer", butterfly), factory.imagedName("Homer", butterfly)),
+                same);
+        var template = getResource(Path.of(HEADER_TEMPLATE));
+        var contexts = Stream.of(factory.imagedName("Homer", butterfly), factory.imagedName("Bart", butterfly));
+        var out = new ByteArrayOutputStream();
+        assertThrows(OfficeStamperException.class, () -> merger.merge(template, contexts, out));
+    }
+
+    @DisplayName("Merge options without separator should be rejected")
+    @Test
+    void noSeparator() {
+        var options = MergeOptions.defaults();
+        assertThrows(OfficeStamperException.class, () -> options.withSeparator(null));
+    }
+
+    @DisplayName("A merge without context should fail")
+    @Test
+    void noContext() {
+        var merger = OfficeStampers.docxMailMerger(standard(), MergeOptions.defaults());
+        var template = getResource(Path.of(DISPLAY_TEMPLATE));
+        var out = new ByteArrayOutputStream();
+        var contexts = Stream.empty();
+        assertThrows(OfficeStamperException.class, () -> merger.merge(template, contexts, out));
+    }
+}
@@ -0,0 +1,137 @@
+package pro.verron.officestamper.test;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pro.verron.officestamper.api.OfficeStamperException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.TestUtils.makeResource;
+
+class MethodDispatchTest {
+
+    private static List<Throwable> causes(Throwable throwable) {
+        var causes = new ArrayList<Throwable>();
+        for (var cause = throwable; cause != null; cause = cause.getCause())
+            causes.add(cause);
+        return causes;
+    }
+
+    @DisplayName("Overloads should be resolved by the classes of their arguments, call after call")
+    @Test
+    void overloads() {
+        var configuration = standard().exposeInterfaceToExpressionLanguage(Describer.class, new DescriberImpl());
+        var stamper = new TestDocxStamper<>(configuration);
+        var template = "${describe('a')} ${describe(1)} ${describe('b')} ${describe(2)}";
+        var expected = "text:a number:1 text:b number:2\n";
+        assertEquals(expected, stamper.stampAndLoadAndExtract(makeResource(template), new Object()));
+        assertEquals(expected, stamper.stampAndLoadAndExtract(makeResource(template), new Object()));
+    }
+
+    @DisplayName("An unresolved call should fail the same way each time it is called")
+    @Test
+    void unresolved() {
+        var configuration = standard().exposeInterfaceToExpressionLanguage(Describer.class, new DescriberImpl());
+        var stamper = new TestDocxStamper<>(configuration);
+        var template = "${describe(true)}";
+        var first = assertThrows(OfficeStamperException.class,
+                () -> stamper.stampAndLoadAndExtract(makeResource(template), new Object()));
+        var second = assertThrows(OfficeStamperException.class,
+                () -> stamper.stampAndLoadAndExtract(makeResource(template), new Object()));
+        assertEquals(first.getMessage(), second.getMessage());
+        assertEquals("text:c\n",
+                stamper.stampAndLoadAndExtract(makeResource("${describe('c')}"), new Object()));
+    }
+
+    @DisplayName("Errors thrown by an invoked method should be rethrown as they are")
+    @Test
+    void errors() {
+        var configuration = standard().exposeInterfaceToExpressionLanguage(Describer.class, new DescriberImpl());
+        var stamper = new TestDocxStamper<>(configuration);
+        var template = makeResource("${explode()}");
+        var error = assertThrows(AssertionError.class, () -> stamper.stampAndLoadAndExtract(template, new Object()));
+        assertEquals("exploded", error.getMessage());
+    }
+
+    @DisplayName("Arguments not fitting the parameters should not be reported as thrown by the invoked method")
+    @Test
+    void binding() {
+        var configuration = standard().exposeInterfaceToExpressionLanguage(Describer.class, new DescriberImpl());
+        var stamper = new TestDocxStamper<>(configuration);
+        var template = makeResource("${twice(null)}");
+        var exception = assertThrows(OfficeStamperException.class,
+                () -> stamper.stampAndLoadAndExtract(template, new Object()));
+        var causes = causes(exception);
+        assertTrue(causes.stream()
+                         .anyMatch(cause -> cause.getMessage() != null && cause.getMessage()
+                                                                              .contains("Cannot bind arguments")),
+                () -> "Expected a binding failure in " + causes);
+        assertTrue(causes.stream()
+                         .noneMatch(InvocationTargetException.class::isInstance),
+                () -> "Expected no invocation failure in " + causes);
+    }
+
+    @DisplayName("Methods that cannot be bound as handles should be invoked by reflection")
+    @Test
+    void reflectionFallback() {
+        var configuration = standard().exposeInterfaceToExpressionLanguage(Hidden.class, new HiddenImpl());
+        var stamper = new TestDocxStamper<>(configuration);
+        var template = makeResource("${hidden()}");
+        // the package-private interface cannot be unreflected, and reflection then reports why it cannot invoke it
+        var exception = assertThrows(OfficeStamperException.class,
+                () -> stamper.stampAndLoadAndExtract(template, new Object()));
+        var causes = causes(exception);
+        assertTrue(causes.stream()
+                         .anyMatch(IllegalAccessException.class::isInstance),
+                () -> "Expected an access failure in " + causes);
+    }
+
+    interface Hidden {
+        String hidden();
+    }
+
+    public interface Describer {
+        String describe(String text);
+
+        String describe(Integer number);
+
+        int twice(int number);
+
+        String explode();
+    }
+
+    public static class DescriberImpl
+            implements Describer {
+        @Override
+        public String describe(String text) {
+            return "text:" + text;
+        }
+
+        @Override
+        public String describe(Integer number) {
+            return "number:" + number;
+        }
+
+        @Override
+        public int twice(int number) {
+            return 2 * number;
+        }
+
+        @Override
+        public String explode() {
+            throw new AssertionError("exploded");
+        }
+    }
+
+    static class HiddenImpl
+            implements Hidden {
+        @Override
+        public String hidden() {
+            return "hidden";
+        }
+    }
+}
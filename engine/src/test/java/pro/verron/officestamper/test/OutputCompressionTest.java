@@ -0,0 +1,144 @@
+package pro.verron.officestamper.test;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import pro.verron.officestamper.api.MergeOptions;
+import pro.verron.officestamper.api.OfficeStamperConfiguration;
+import pro.verron.officestamper.api.OutputCompression;
+import pro.verron.officestamper.preset.ExceptionResolvers;
+import pro.verron.officestamper.preset.OfficeStampers;
+import pro.verron.officestamper.preset.PackageLoading;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.argumentSet;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.ContextFactory.objectContextFactory;
+import static pro.verron.officestamper.test.TestUtils.getImage;
+import static pro.verron.officestamper.test.TestUtils.getResource;
+
+class OutputCompressionTest {
+
+    private static final String TEMPLATE = "ExpressionReplacementInHeaderAndFooterTest.docx";
+    private static final String MERGE_TEMPLATE = "ConditionalDisplayTest.docx";
+
+    static Stream<Arguments> loadings() {
+        return Stream.of(argumentSet("eager", PackageLoading.EAGER), argumentSet("lazy", PackageLoading.LAZY));
+    }
+
+    private static OfficeStamperConfiguration config() {
+        return standard().setExceptionResolver(ExceptionResolvers.passing());
+    }
+
+    private static byte[] stamp(OfficeStamperConfiguration config, PackageLoading loading) {
+        var context = objectContextFactory().imagedName("Homer Simpson", getImage(Path.of("butterfly.png")));
+        var out = new ByteArrayOutputStream();
+        OfficeStampers.docxStamper(config, loading)
+                      .stamp(getResource(TEMPLATE), context, out);
+        return out.toByteArray();
+    }
+
+    private static String extract(OfficeStamperConfiguration config, PackageLoading loading) {
+        var context = objectContextFactory().imagedName("Homer Simpson", getImage(Path.of("butterfly.png")));
+        return new TestDocxStamper<>(config, loading).stampAndLoadAndExtract(getResource(TEMPLATE), context);
+    }
+
+    private static int method(byte[] docx, String name)
+            throws IOException {
+        try (var zip = new ZipInputStream(new ByteArrayInputStream(docx))) {
+            for (var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                zip.transferTo(OutputStream.nullOutputStream());
+                if (entry.getName()
+                         .equals(name)) return entry.getMethod();
+            }
+        }
+        throw new IllegalArgumentException("No entry " + name);
+    }
+
+    @DisplayName("Compression policies should change the size of the output, not its content")
+    @MethodSource("loadings")
+    @ParameterizedTest
+    void compressionPolicies(PackageLoading loading)
+            throws IOException {
+        var expected = extract(config(), loading);
+        for (var compression : OutputCompression.values())
+            assertEquals(expected, extract(config().setOutputCompression(compression), loading));
+
+        var stored = stamp(config().setOutputCompression(OutputCompression.STORED), loading);
+        var best = stamp(config().setOutputCompression(OutputCompression.BEST), loading);
+        assertEquals(ZipEntry.STORED, method(stored, "word/document.xml"));
+        assertEquals(ZipEntry.DEFLATED, method(best, "word/document.xml"));
+        assertTrue(stored.length > best.length);
+    }
+
+    @DisplayName("Parts written in parallel should be written in order, like on the stamping thread")
+    @MethodSource("loadings")
+    @ParameterizedTest
+    void parallelWriter(PackageLoading loading) {
+        var sequential = stamp(config().setOutputCompression(OutputCompression.FAST), loading);
+        try (var executor = Executors.newFixedThreadPool(4)) {
+            var parallel = config().setOutputCompression(OutputCompression.FAST)
+                                   .setOutputExecutor(executor);
+            assertEquals(extract(config(), loading), extract(parallel, loading));
+            assertEquals(entries(sequential), entries(stamp(parallel, loading)));
+        }
+    }
+
+    @DisplayName("Merges written in parallel should match the ones written on the merging thread")
+    @Test
+    void parallelMailMerge()
+            throws Docx4JException {
+        var factory = objectContextFactory();
+        var sequential = new ByteArrayOutputStream();
+        OfficeStampers.docxMailMerger(standard(), MergeOptions.defaults())
+                      .merge(getResource(Path.of(MERGE_TEMPLATE)),
+                              Stream.of(factory.name("Bart"), factory.name("Homer")),
+                              sequential);
+        var expected = extract(sequential.toByteArray());
+        try (var executor = Executors.newFixedThreadPool(4)) {
+            for (var compression : OutputCompression.values()) {
+                var config = standard().setOutputCompression(compression)
+                                       .setOutputExecutor(executor);
+                var parallel = new ByteArrayOutputStream();
+                OfficeStampers.docxMailMerger(config, MergeOptions.defaults())
+                              .merge(getResource(Path.of(MERGE_TEMPLATE)),
+                                      Stream.of(factory.name("Bart"), factory.name("Homer")),
+                                      parallel);
+                assertEquals(expected, extract(parallel.toByteArray()));
+            }
+        }
+    }
+
+    private static String extract(byte[] docx)
+            throws Docx4JException {
+        var document = WordprocessingMLPackage.load(new ByteArrayInputStream(docx));
+        return new Stringifier(() -> document).stringify(document);
+    }
+
+    private static String entries(byte[] docx) {
+        try (var zip = new ZipInputStream(new ByteArrayInputStream(docx))) {
+            var names = new StringBuilder();
+            for (var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry())
+                names.append(entry.getName())
+                     .append('\n');
+            return names.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package pro.verron.officestamper.test;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pro.verron.officestamper.preset.OfficeStampers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.TestUtils.makeResource;
+
+class PackStampingTest {
+
+    private static final List<String> TEMPLATES = List.of("""
+            Contract for ${name}
+            Total: ${total}
+            """, """
+            Invoice for ${name}
+            Amount due: ${total}
+            """, """
+            Dear ${name},
+            please find your documents attached.
+            """);
+
+    private static String extract(byte[] docx)
+            throws Docx4JException {
+        var document = WordprocessingMLPackage.load(new ByteArrayInputStream(docx));
+        return new Stringifier(() -> document).stringify(document);
+    }
+
+    @DisplayName("A pack should stamp each template like a single stamper, computing shared expressions once")
+    @Test
+    void pack()
+            throws Docx4JException {
+        var computations = new AtomicInteger();
+        var context = new Customer("Homer", computations);
+        try (var executor = Executors.newFixedThreadPool(3)) {
+            var documents = OfficeStampers.docxPackStamper(standard(), executor)
+                                          .stamp(TEMPLATES.stream()
+                                                          .map(TestUtils::makeResource)
+                                                          .toList(), context);
+            assertEquals(3, documents.size());
+            assertEquals(1, computations.get(), "The total should be computed once for the whole pack");
+            for (int i = 0; i < TEMPLATES.size(); i++) {
+                var expected = new TestDocxStamper<>(standard()).stampAndLoadAndExtract(makeResource(TEMPLATES.get(i)),
+                        new Customer("Homer", new AtomicInteger()));
+                assertEquals(expected, extract(documents.get(i)));
+            }
+        }
+    }
+
+    @DisplayName("A pack should compute shared expressions once, even for the streamed templates")
+    @Test
+    void streamedPack()
+            throws Docx4JException {
+        var computations = new AtomicInteger();
+        var context = new Customer("Homer", computations);
+        var configuration = standard().setAutomaticEngineSelection(true);
+        try (var executor = Executors.newFixedThreadPool(3)) {
+            var documents = OfficeStampers.docxPackStamper(configuration, executor)
+                                          .stamp(TEMPLATES.stream()
+                                                          .map(TestUtils::makeResource)
+                                                          .toList(), context);
+            assertEquals(1, computations.get(), "The total should be computed once for the whole pack");
+            for (int i = 0; i < TEMPLATES.size(); i++) {
+                var expected = new TestDocxStamper<>(standard()).stampAndLoadAndExtract(makeResource(TEMPLATES.get(i)),
+                        new Customer("Homer", new AtomicInteger()));
+                assertEquals(expected, extract(documents.get(i)));
+            }
+        }
+    }
+
+    @DisplayName("A pack stamper should keep one stamper per template stamped at once, from pack to pack")
+    @Test
+    void pooledStampers()
+            throws Docx4JException {
+        var stampers = new AtomicInteger();
+        var configuration = standard().addCommentProcessor(ICustomCommentProcessor.class, replacer -> {
+            stampers.incrementAndGet();
+            return new CustomCommentProcessor(replacer);
+        });
+        try (var executor = Executors.newSingleThreadExecutor()) {
+            var packStamper = OfficeStampers.docxPackStamper(configuration, executor);
+            for (var name : List.of("Homer", "Bart")) {
+                var computations = new AtomicInteger();
+                var documents = packStamper.stamp(TEMPLATES.stream()
+                                                           .map(TestUtils::makeResource)
+                                                           .toList(), new Customer(name, computations));
+                assertEquals(1, computations.get(), "The total should be computed once for each pack");
+                assertEquals("""
+                        Dear %s,
+                        please find your documents attached.
+                        """.formatted(name), extract(documents.get(2)));
+            }
+        }
+        assertEquals(1, stampers.get(), "A single stamper should stamp every template, one at a time");
+    }
+
+    @DisplayName("A pack should be writable as a zip archive, one entry per template")
+    @Test
+    void zip()
+            throws IOException, Docx4JException {
+        var templates = new LinkedHashMap<String, InputStream>();
+        templates.put("contract.docx", makeResource(TEMPLATES.get(0)));
+        templates.put("invoice.docx", makeResource(TEMPLATES.get(1)));
+        var out = new ByteArrayOutputStream();
+        OfficeStampers.docxPackStamper(standard())
+                      .stamp(templates, new Customer("Bart", new AtomicInteger()), out);
+
+        var names = new ArrayList<String>();
+        var texts = new ArrayList<String>();
+        try (var zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+                texts.add(extract(zip.readAllBytes()));
+            }
+        }
+        assertEquals(List.of("contract.docx", "invoice.docx"), names);
+        assertEquals(List.of("""
+                Contract for Bart
+                Total: 42
+                """, """
+                Invoice for Bart
+                Amount due: 42
+                """), texts);
+    }
+
+    public record Customer(String name, AtomicInteger computations) {
+        public int getTotal() {
+            computations.incrementAndGet();
+            return 42;
+        }
+    }
+}
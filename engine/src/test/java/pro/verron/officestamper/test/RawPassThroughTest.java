@@ -0,0 +1,72 @@
+package pro.verron.officestamper.test;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import pro.verron.officestamper.api.OfficeStamperConfiguration;
+import pro.verron.officestamper.preset.ExceptionResolvers;
+import pro.verron.officestamper.preset.OfficeStampers;
+import pro.verron.officestamper.preset.PackageLoading;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.params.provider.Arguments.argumentSet;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.ContextFactory.mapContextFactory;
+import static pro.verron.officestamper.test.ContextFactory.objectContextFactory;
+import static pro.verron.officestamper.test.TestUtils.getImage;
+import static pro.verron.officestamper.test.TestUtils.getResource;
+
+class RawPassThroughTest {
+
+    private static final String TEMPLATE = "ExpressionReplacementInHeaderAndFooterTest.docx";
+
+    static Stream<Arguments> factories() {
+        return Stream.of(argumentSet("obj", objectContextFactory()), argumentSet("map", mapContextFactory()));
+    }
+
+    private static OfficeStamperConfiguration config() {
+        return standard().setExceptionResolver(ExceptionResolvers.passing());
+    }
+
+    private static Map<String, String> compressedEntries(InputStream inputStream)
+            throws IOException {
+        var entries = new HashMap<String, String>();
+        try (var zip = new ZipInputStream(inputStream)) {
+            for (var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                zip.transferTo(OutputStream.nullOutputStream());
+                entries.put(entry.getName(), "crc=%d:compressed=%d".formatted(entry.getCrc(), entry.getCompressedSize()));
+            }
+        }
+        return entries;
+    }
+
+    @DisplayName("Untouched parts of lazily loaded templates should be copied without being compressed again")
+    @MethodSource("factories")
+    @ParameterizedTest
+    void rawPassThrough(ContextFactory factory)
+            throws IOException {
+        var stamper = OfficeStampers.docxStamper(config(), PackageLoading.LAZY);
+        var out = new ByteArrayOutputStream();
+        stamper.stamp(getResource(TEMPLATE),
+                factory.imagedName("Homer Simpson", getImage(Path.of("butterfly.png"))),
+                out);
+        var original = compressedEntries(getResource(TEMPLATE));
+        var stamped = compressedEntries(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(original.get("word/styles.xml"), stamped.get("word/styles.xml"));
+        assertEquals(original.get("word/theme/theme1.xml"), stamped.get("word/theme/theme1.xml"));
+        assertNotEquals(original.get("word/document.xml"), stamped.get("word/document.xml"));
+    }
+}
@@ -0,0 +1,97 @@
+package pro.verron.officestamper.test;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.TestUtils.makeResource;
+
+class RemovalFirstTest {
+
+    @DisplayName("Expressions within content removed by a display condition should never be evaluated")
+    @Test
+    void hiddenContentIsNotEvaluated() {
+        var context = new Context("Homer", new AtomicInteger());
+        var template = makeResource("""
+                Dear ${name},
+                #{displayParagraphIf(false)}Hidden <1|>word<|1><1|replaceWordWith(expensive)>
+                Visible
+                |===
+                |<2|>Hidden table<|2><2|displayTableIf(false)>
+                |<3|>${sku}<|3><3|repeatTableRow(rows)>
+                |===
+                """);
+        var actual = new TestDocxStamper<>(standard()).stampAndLoadAndExtract(template, context);
+        assertEquals("""
+                Dear Homer,
+                Visible
+                """, actual);
+        assertEquals(0, context.reads()
+                               .get(), "The hidden content should not be evaluated");
+    }
+
+    @DisplayName("A failing expression within removed content should not fail the stamping")
+    @Test
+    void hiddenFailureIsIgnored() {
+        var context = new Context("Homer", new AtomicInteger());
+        var template = makeResource("""
+                Dear ${name}
+                |===
+                |<1|>VIP<|1><1|displayTableRowIf(false)>
+                |<2|>${sku}<|2><2|repeatTableRow(failing)>
+                |===
+                """);
+        var actual = new TestDocxStamper<>(standard()).stampAndLoadAndExtract(template, context);
+        assertEquals("""
+                Dear Homer
+                |===
+                
+                |===
+                """, actual);
+    }
+
+    @DisplayName("Inline display conditions within a repeat should be resolved against each repeated element")
+    @Test
+    void repeatedConditions() {
+        var context = new Root(List.of(new Item("a", true), new Item("b", false)));
+        var template = makeResource("""
+                <1|>Item ${name}
+                Hidden? #{displayParagraphIf(show)}
+                <|1><1|repeatDocPart(items)>
+                """);
+        var actual = new TestDocxStamper<>(standard()).stampAndLoadAndExtract(template, context);
+        assertEquals("""
+                Item a
+                Hidden?\s
+                
+                Item b
+                
+                """, actual);
+    }
+
+    public record Root(List<Item> items) {}
+
+    public record Item(String name, boolean show) {}
+
+    public record Context(String name, AtomicInteger reads) {
+        public String getExpensive() {
+            reads.incrementAndGet();
+            return "expensive";
+        }
+
+        public List<Row> getRows() {
+            reads.incrementAndGet();
+            return List.of(new Row("A-1"));
+        }
+
+        public List<Row> getFailing() {
+            throw new IllegalStateException("Hidden expressions should not be evaluated");
+        }
+    }
+
+    public record Row(String sku) {}
+}
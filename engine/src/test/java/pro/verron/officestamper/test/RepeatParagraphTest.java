@@ -1,5 +1,7 @@
 package pro.verron.officestamper.test;
 
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -7,20 +9,32 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pro.verron.officestamper.api.OfficeStamperConfiguration;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.api.OutputCompression;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.withStreamingRepeats;
 import static pro.verron.officestamper.test.ContextFactory.mapContextFactory;
 import static pro.verron.officestamper.test.ContextFactory.objectContextFactory;
+import static pro.verron.officestamper.test.TestUtils.getImage;
 import static pro.verron.officestamper.test.TestUtils.getResource;
 import static pro.verron.officestamper.test.TestUtils.makeResource;
 
@@ -176,6 +190,88 @@ class RepeatParagraphTest {
         assertEquals(expected, actual);
     }
 
+    @MethodSource("tests")
+    @ParameterizedTest(name = "{0} (streamed)")
+    void streamedFeatures(
+            String name,
+            OfficeStamperConfiguration config,
+            Object context,
+            InputStream template,
+            String expected
+    ) {
+        log.info(name);
+        var stamper = new TestDocxStamper<>(withStreamingRepeats(config));
+        var actual = stamper.stampAndLoadAndExtract(template, context);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void shouldStreamLargeIterables() {
+        var config = withStreamingRepeats(standard());
+        var stamper = new TestDocxStamper<>(config);
+        var template = makeResource("<1|>${name}<|1><1|repeatParagraph(names)>");
+        Iterable<Object> names = () -> IntStream.range(0, 1_000)
+                                                .<Object>mapToObj(i -> Map.of("name", "Name " + i))
+                                                .iterator();
+        var actual = stamper.stampAndLoadAndExtract(template, Map.of("names", names));
+        var expected = IntStream.range(0, 1_000)
+                                .mapToObj(i -> "Name " + i + "\n")
+                                .collect(Collectors.joining());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void shouldStreamOnTheStampingThread() {
+        var threads = ConcurrentHashMap.<Thread>newKeySet();
+        try (var executor = Executors.newFixedThreadPool(4)) {
+            var config = withStreamingRepeats(standard()).setOutputExecutor(executor)
+                                                         .setOutputCompression(OutputCompression.STORED);
+            var stamper = new TestDocxStamper<>(config);
+            var template = makeResource("<1|>${name}<|1><1|repeatParagraph(names)>");
+            Iterable<Object> names = () -> IntStream.range(0, 100)
+                                                    .<Object>mapToObj(i -> {
+                                                        threads.add(Thread.currentThread());
+                                                        return Map.of("name", "Name " + i);
+                                                    })
+                                                    .iterator();
+            var actual = stamper.stampAndLoadAndExtract(template, Map.of("names", names));
+            var expected = IntStream.range(0, 100)
+                                    .mapToObj(i -> "Name " + i + "\n")
+                                    .collect(Collectors.joining());
+            assertEquals(expected, actual);
+            assertEquals(Set.of(Thread.currentThread()), threads);
+        }
+    }
+
+    @Test
+    void shouldExpandStreamedRepeatsForPostprocessors()
+            throws Docx4JException {
+        var stamped = new AtomicReference<WordprocessingMLPackage>();
+        var config = withStreamingRepeats(standard());
+        config.addPostprocessor(stamped::set);
+        var stamper = new TestDocxStamper<>(config);
+        var template = makeResource("<1|>${name}<|1><1|repeatParagraph(names)>");
+        var context = FACTORY.names(List.class, "Homer", "Marge");
+        var actual = stamper.stampAndLoadAndExtract(template, context);
+        assertEquals("Homer\nMarge\n", actual);
+
+        var document = stamped.get();
+        assertEquals(actual, new Stringifier(() -> document).stringify(document));
+        var saved = new ByteArrayOutputStream();
+        document.save(saved);
+        var reloaded = WordprocessingMLPackage.load(new ByteArrayInputStream(saved.toByteArray()));
+        assertEquals(actual, new Stringifier(() -> reloaded).stringify(reloaded));
+    }
+
+    @Test
+    void shouldRejectImagesInStreamedRepeats() {
+        var config = withStreamingRepeats(standard());
+        var stamper = new TestDocxStamper<>(config);
+        var template = makeResource("<1|>${image}<|1><1|repeatParagraph(images)>");
+        var context = Map.of("images", List.of(Map.of("image", getImage(Path.of("butterfly.png")))));
+        assertThrows(OfficeStamperException.class, () -> stamper.stampAndLoadAndExtract(template, context));
+    }
+
     @Test
     void shouldAcceptList() {
         var config = standard();
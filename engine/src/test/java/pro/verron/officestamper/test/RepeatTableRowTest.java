@@ -18,6 +18,7 @@ import java.util.stream.Stream;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.params.provider.Arguments.of;
 import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.withStreamingRepeats;
 import static pro.verron.officestamper.test.ContextFactory.mapContextFactory;
 import static pro.verron.officestamper.test.ContextFactory.objectContextFactory;
 import static pro.verron.officestamper.test.TestUtils.getResource;
@@ -182,6 +183,21 @@ class RepeatTableRowTest {
         assertEquals(expected, actual);
     }
 
+    @MethodSource("tests")
+    @ParameterizedTest(name = "{0} (streamed)")
+    void streamedFeatures(
+            String name,
+            OfficeStamperConfiguration config,
+            Object context,
+            InputStream template,
+            String expected
+    ) {
+        log.info(name);
+        var stamper = new TestDocxStamper<>(withStreamingRepeats(config));
+        var actual = stamper.stampAndLoadAndExtract(template, context);
+        assertEquals(expected, actual);
+    }
+
     @Test
     void shouldAcceptList() {
         var config = standard();
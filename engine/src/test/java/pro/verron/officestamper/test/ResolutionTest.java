@@ -1,18 +1,27 @@
 package pro.verron.officestamper.test;
 
+import org.docx4j.wml.R;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 import org.junit.jupiter.api.function.ThrowingSupplier;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import pro.verron.officestamper.api.DocxPart;
+import pro.verron.officestamper.api.ObjectResolver;
 import pro.verron.officestamper.api.OfficeStamperException;
 import pro.verron.officestamper.api.StringResolver;
 import pro.verron.officestamper.preset.ExceptionResolvers;
 import pro.verron.officestamper.preset.OfficeStamperConfigurations;
 
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static pro.verron.officestamper.test.TestUtils.getResource;
+import static pro.verron.officestamper.test.TestUtils.makeResource;
+import static pro.verron.officestamper.utils.WmlFactory.newRun;
 
 class ResolutionTest {
 
@@ -162,8 +171,83 @@ class ResolutionTest {
         }
     }
 
+    @Test
+    void valueDependentResolversAreAskedForEveryValue() {
+        var configuration = OfficeStamperConfigurations.standard();
+        configuration.addResolver(new ShoutingResolver());
+        var template = makeResource("${quiet} ${loud} ${quiet} ${loud} ${number}");
+        var context = Map.of("quiet", "hello", "loud", "!hello", "number", 42);
+
+        var stamper = new TestDocxStamper<>(configuration);
+        var actual = stamper.stampAndLoadAndExtract(template, context);
+        assertEquals("hello HELLO hello HELLO 42\n", actual);
+    }
+
+    @CsvSource({"true,3", "false,6"})
+    @ParameterizedTest
+    void memoizedPlaceholdersAreEvaluatedOncePerRoot(boolean memoizing, int expectedReads) {
+        var configuration = OfficeStamperConfigurations.standard()
+                                                       .setMemoizingExpressions(memoizing);
+        var template = makeResource("""
+                ${name} ${name} ${tick()} ${tick()}
+                <1|>${name} ${name}<|1><1|repeatParagraph(members)>
+                """);
+        var reads = new AtomicInteger();
+        var context = new Family("Simpson", reads, List.of(new Family("Bart", reads, List.of()),
+                new Family("Lisa", reads, List.of())));
+
+        var stamper = new TestDocxStamper<>(configuration);
+        var actual = stamper.stampAndLoadAndExtract(template, context);
+        assertEquals("""
+                Simpson Simpson 1 2
+                Bart Bart
+                Lisa Lisa
+                """, actual);
+        assertEquals(expectedReads, reads.get());
+    }
+
     private static class CustomValue {}
 
+    /// Counts the reads of its name, and the calls to its tick method.
+    public static class Family {
+        private final String name;
+        private final AtomicInteger reads;
+        private final List<Family> members;
+        private int ticks;
+
+        Family(String name, AtomicInteger reads, List<Family> members) {
+            this.name = name;
+            this.reads = reads;
+            this.members = members;
+        }
+
+        public String getName() {
+            reads.incrementAndGet();
+            return name;
+        }
+
+        public List<Family> getMembers() {
+            return members;
+        }
+
+        public int tick() {
+            return ++ticks;
+        }
+    }
+
+    /// Resolves only the strings starting with an exclamation mark, so its decision depends on the value.
+    private static class ShoutingResolver
+            implements ObjectResolver {
+        @Override public boolean canResolve(Object object) {
+            return object instanceof String string && string.startsWith("!");
+        }
+
+        @Override public R resolve(DocxPart document, String expression, Object object) {
+            return newRun(((String) object).substring(1)
+                                           .toUpperCase());
+        }
+    }
+
     private record CustomContext(CustomValue value) {}
 
     private static class CustomResolver
@@ -0,0 +1,79 @@
+package pro.verron.officestamper.test;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.params.provider.Arguments.argumentSet;
+import static pro.verron.officestamper.preset.EvaluationContextConfigurers.compilableConfigurer;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.TestUtils.makeResource;
+
+class SpelCompilationTest {
+
+    static Stream<Arguments> contexts() {
+        record Town(String name) {}
+        record Person(String name, int age, Town town) {}
+        return Stream.of(argumentSet("public records", new Citizen("Homer", 39, new City("Springfield"))),
+                argumentSet("local records", new Person("Homer", 39, new Town("Springfield"))),
+                argumentSet("bean", new Resident("Homer", 39, new City("Springfield"))),
+                argumentSet("map", Map.of("name", "Homer", "age", 39, "town", Map.of("name", "Springfield"))));
+    }
+
+    @DisplayName("Keep resolving properties once the expressions are compiled")
+    @MethodSource("contexts")
+    @ParameterizedTest
+    void compiledPropertyAccess(Object context) {
+        var configuration = standard().setEvaluationContextConfigurer(compilableConfigurer())
+                                      .setSpelParserConfiguration(new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE,
+                                              null));
+        var stamper = new TestDocxStamper<>(configuration);
+        var template = makeResource("""
+                ${name} (${age + 1}) lives in ${town.name}.
+                ${name} (${age + 1}) lives in ${town.name}.
+                ${name} (${age + 1}) lives in ${town.name}.
+                """);
+        var actual = stamper.stampAndLoadAndExtract(template, context);
+        var expected = """
+                Homer (40) lives in Springfield.
+                Homer (40) lives in Springfield.
+                Homer (40) lives in Springfield.
+                """;
+        assertEquals(expected, actual);
+    }
+
+    public record City(String name) {}
+
+    public record Citizen(String name, int age, City town) {}
+
+    public static class Resident {
+        private final String name;
+        private final int age;
+        private final City town;
+
+        public Resident(String name, int age, City town) {
+            this.name = name;
+            this.age = age;
+            this.town = town;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public City getTown() {
+            return town;
+        }
+    }
+}
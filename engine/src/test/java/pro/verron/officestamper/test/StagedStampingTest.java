@@ -0,0 +1,87 @@
+package pro.verron.officestamper.test;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pro.verron.officestamper.api.OfficeStamperException;
+import pro.verron.officestamper.api.StagedTemplate;
+import pro.verron.officestamper.preset.OfficeStampers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.TestUtils.makeResource;
+
+class StagedStampingTest {
+
+    private static final String TEMPLATE = """
+            Dear ${name},
+            ${shared.company} presents ${shared.campaign}.
+            <1|>Legal: ${shared.legal}<|1><1|displayParagraphIf(shared.showLegal)>
+            <2|>VIP offer for ${name}<|2><2|displayParagraphIf(vip)>
+            """;
+
+    private static String stamp(StagedTemplate template, Object context)
+            throws Docx4JException {
+        var out = new ByteArrayOutputStream();
+        template.stamp(context, out);
+        var document = WordprocessingMLPackage.load(new ByteArrayInputStream(out.toByteArray()));
+        return new Stringifier(() -> document).stringify(document);
+    }
+
+    @DisplayName("Shared expressions should be resolved once, and the per-recipient ones for each recipient")
+    @Test
+    void stagedStamping()
+            throws Docx4JException {
+        var calls = new AtomicInteger();
+        var shared = new Shared("Springfield Nuclear", "Summer 2026", "Terms apply", true, calls);
+        var compiled = OfficeStampers.docxStagedStamper(standard(), "shared")
+                                     .compile(makeResource(TEMPLATE), shared);
+
+        assertEquals("""
+                Dear Homer,
+                Springfield Nuclear presents Summer 2026.
+                Legal: Terms apply
+                VIP offer for Homer
+                """, stamp(compiled, new Recipient("Homer", true)));
+        assertEquals("""
+                Dear Bart,
+                Springfield Nuclear presents Summer 2026.
+                Legal: Terms apply
+                """, stamp(compiled, new Recipient("Bart", false)));
+        assertEquals(1, calls.get(), "The shared company should be read in the first stage only");
+
+        var direct = new TestDocxStamper<>(standard()).stampAndLoadAndExtract(makeResource(TEMPLATE),
+                new FullContext("Lisa", false, shared));
+        assertEquals(direct, stamp(compiled, new Recipient("Lisa", false)));
+    }
+
+    @DisplayName("Expressions mixing shared and per-recipient reads should be rejected when compiling")
+    @Test
+    void mixedExpressions() {
+        var shared = new Shared("Springfield Nuclear", "Summer 2026", "Terms apply", true, new AtomicInteger());
+        var stamper = OfficeStampers.docxStagedStamper(standard(), "shared");
+        var template = makeResource("${shared.company + name}");
+        var exception = assertThrows(OfficeStamperException.class, () -> stamper.compile(template, shared));
+        assertTrue(exception.getMessage()
+                            .contains("${shared.company + name}"), exception.getMessage());
+    }
+
+    public record Shared(String company, String campaign, String legal, boolean showLegal, AtomicInteger calls) {
+        @Override
+        public String company() {
+            calls.incrementAndGet();
+            return company;
+        }
+    }
+
+    public record Recipient(String name, boolean vip) {}
+
+    public record FullContext(String name, boolean vip, Shared shared) {}
+}
@@ -0,0 +1,86 @@
+package pro.verron.officestamper.test;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.Text;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import pro.verron.officestamper.api.OfficeStamperConfiguration;
+import pro.verron.officestamper.preset.ExceptionResolvers;
+import pro.verron.officestamper.preset.ExperimentalStampers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.ContextFactory.objectContextFactory;
+import static pro.verron.officestamper.test.TestUtils.getResource;
+
+class StreamingStamperTest {
+
+    private static OfficeStamperConfiguration config() {
+        return standard().setExceptionResolver(ExceptionResolvers.passing());
+    }
+
+    @DisplayName("Streaming stamper should replace placeholders like the DOM stamper")
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "ExpressionReplacementInHeaderAndFooterTest.docx",
+            "ExpressionReplacementInTablesTest.docx",
+            "ExpressionReplacementWithFormattingTest.docx",
+            "ExpressionReplacementInTextBoxesTest.docx",
+    })
+    void sameAsDom(String template) {
+        var context = objectContextFactory().name("Homer Simpson");
+        var expected = new TestDocxStamper<>(config()).stampAndLoadAndExtract(getResource(template), context);
+        var streaming = new TestDocxStamper<>(ExperimentalStampers.docxStreamingStamper(config()));
+        assertEquals(expected, streaming.stampAndLoadAndExtract(getResource(template), context));
+    }
+
+    @DisplayName("Streaming stamper should replace placeholders in runs holding tabs or breaks")
+    @Test
+    void mixedRuns()
+            throws Docx4JException {
+        var factory = new ObjectFactory();
+        var document = WordprocessingMLPackage.createPackage();
+        var run = factory.createR();
+        run.getContent()
+           .add(text(factory, "Name:"));
+        run.getContent()
+           .add(factory.createRTab());
+        run.getContent()
+           .add(text(factory, "${name}"));
+        run.getContent()
+           .add(factory.createBr());
+        run.getContent()
+           .add(text(factory, "End"));
+        var paragraph = factory.createP();
+        paragraph.getContent()
+                 .add(run);
+        document.getMainDocumentPart()
+                .getContent()
+                .add(paragraph);
+        var out = new ByteArrayOutputStream();
+        document.save(out);
+        var template = out.toByteArray();
+
+        var context = objectContextFactory().name("Homer Simpson");
+        var expected = new TestDocxStamper<>(config()).stampAndLoadAndExtract(new ByteArrayInputStream(template),
+                context);
+        var streaming = new TestDocxStamper<>(ExperimentalStampers.docxStreamingStamper(config()));
+        var actual = streaming.stampAndLoadAndExtract(new ByteArrayInputStream(template), context);
+        assertEquals(expected, actual);
+        assertTrue(actual.contains("Homer Simpson"), actual);
+    }
+
+    private static Text text(ObjectFactory factory, String value) {
+        var text = factory.createText();
+        text.setValue(value);
+        return text;
+    }
+}
@@ -0,0 +1,71 @@
+package pro.verron.officestamper.test;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pro.verron.officestamper.preset.OfficeStampers;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static pro.verron.officestamper.preset.OfficeStamperConfigurations.standard;
+import static pro.verron.officestamper.test.TestUtils.makeResource;
+
+class TemplateIntrospectionTest {
+
+    private static final String TEMPLATE = """
+            Invoice ${customer.name} for ${customer.address.city}
+            <2|>Note: ${text}<|2><2|repeatParagraph(notes)>
+            <3|>Shown to VIPs<|3><3|displayParagraphIf(customer.vip)>
+            ${items.size()} items, total ${formatter.format(total)}
+            |===
+            |<1|>${sku}<|1><1|repeatTableRow(items)>
+            |${price * quantity}
+            |===
+            """;
+
+    @DisplayName("Introspection should list the paths read by a template, relative to their repeated elements")
+    @Test
+    void requiredPaths() {
+        var introspector = OfficeStampers.docxIntrospector(standard());
+        var requirements = introspector.requirements(makeResource(TEMPLATE));
+        assertEquals(new TreeSet<>(Set.of("customer.name",
+                "customer.address.city",
+                "customer.vip",
+                "items",
+                "items[].sku",
+                "items[].price",
+                "items[].quantity",
+                "notes",
+                "notes[].text",
+                "formatter",
+                "total")), requirements.paths());
+        assertEquals(Set.of("items"),
+                requirements.expressions()
+                            .get("repeatTableRow(items)"));
+        assertEquals(Set.of("items[].price", "items[].quantity"),
+                requirements.expressions()
+                            .get("price * quantity"));
+
+        assertSame(requirements, introspector.requirements(makeResource(TEMPLATE)), "The analysis should be cached");
+    }
+
+    @DisplayName("Templates only differing by their comments should not share their analysis")
+    @Test
+    void comments() {
+        var introspector = OfficeStampers.docxIntrospector(standard());
+        var items = introspector.requirements(makeResource("""
+                |===
+                |<1|>${sku}<|1><1|repeatTableRow(items)>
+                |===
+                """));
+        var orders = introspector.requirements(makeResource("""
+                |===
+                |<1|>${sku}<|1><1|repeatTableRow(orders)>
+                |===
+                """));
+        assertEquals(new TreeSet<>(Set.of("items", "items[].sku")), items.paths());
+        assertEquals(new TreeSet<>(Set.of("orders", "orders[].sku")), orders.paths());
+    }
+}
@@ -5,6 +5,7 @@ import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import pro.verron.officestamper.api.OfficeStamperConfiguration;
 import pro.verron.officestamper.api.StreamStamper;
 import pro.verron.officestamper.preset.OfficeStampers;
+import pro.verron.officestamper.preset.PackageLoading;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -32,6 +33,27 @@ public final class TestDocxStamper<T> {
         stamper = OfficeStampers.docxStamper(config);
     }
 
+    /**
+     * <p>Constructor for TestDocxStamper, loading the templates with the given mode.</p>
+     *
+     * @param config  a {@link OfficeStamperConfiguration} object
+     * @param loading a {@link PackageLoading} object
+     * @since 2.7.0
+     */
+    public TestDocxStamper(OfficeStamperConfiguration config, PackageLoading loading) {
+        stamper = OfficeStampers.docxStamper(config, loading);
+    }
+
+    /**
+     * <p>Constructor for TestDocxStamper, stamping with the given stamper.</p>
+     *
+     * @param stamper a {@link StreamStamper} object
+     * @since 2.7.0
+     */
+    public TestDocxStamper(StreamStamper<WordprocessingMLPackage> stamper) {
+        this.stamper = stamper;
+    }
+
     /**
      * Stamps the given template resolving the expressions within the template against the specified context.
      * Returns the resulting document after it has been saved and loaded